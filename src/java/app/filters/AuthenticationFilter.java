@@ -33,7 +33,8 @@ public class AuthenticationFilter implements Filter {
             "/AdminDashboardServlet", "/admin/dashboard",
             "/AdminProductServlet", "/admin/products",
             "/AdminOrderServlet", "/admin/orders",
-            "/AdminFeedbackServlet", "/admin/feedback"
+            "/AdminFeedbackServlet", "/admin/feedback",
+            "/AdminQueryStatsServlet", "/admin/querystats"
             // Add other admin-specific servlet URL patterns here
     ));
 
@@ -41,6 +42,7 @@ public class AuthenticationFilter implements Filter {
     private static final Set<String> USER_PATHS = new HashSet<>(Arrays.asList(
             "/UserDashboardServlet", "/user/dashboard",
             "/ProductServlet", "/products", // Viewing products
+            "/AutocompleteServlet", // Also mapped under /products/suggest
             "/CartServlet", "/cart",
             "/CheckoutServlet", "/checkout",
             "/OrderHistoryServlet", "/user/orders",
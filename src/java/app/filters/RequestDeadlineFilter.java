@@ -0,0 +1,86 @@
+package app.filters;
+
+import db.RequestDeadline;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.SQLTimeoutException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Gives each request a time budget ({@code techtrove.request.timeoutMs}, 30 seconds by default) that the
+ * data layer turns into JDBC query and connection-acquire timeouts (see {@link RequestDeadline}).
+ *
+ * Mapped before every other filter so the budget covers the whole request. If a database call runs
+ * out of budget and the response has not been committed yet, the client gets a 503 page instead of
+ * waiting on a hung worker thread.
+ */
+@WebFilter(filterName = "RequestDeadlineFilter", urlPatterns = {"/*"})
+public class RequestDeadlineFilter implements Filter {
+
+    private static final long REQUEST_TIMEOUT_MS = Long.getLong("techtrove.request.timeoutMs", 30000L);
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    // Database setup creates and seeds the schema, which can legitimately take longer than a page view
+    private static final Set<String> EXCLUDED_PATHS = new HashSet<>(Arrays.asList(
+            "/DatabaseSetupServlet", "/db_setup.jsp"
+    ));
+
+    public void init(FilterConfig filterConfig) throws ServletException {
+        System.out.println("RequestDeadlineFilter: Initialized with a budget of " + REQUEST_TIMEOUT_MS + " ms per request.");
+    }
+
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (EXCLUDED_PATHS.contains(path) || RequestDeadline.isActive()) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        RequestDeadline.start(REQUEST_TIMEOUT_MS);
+        try {
+            chain.doFilter(req, res);
+            if (RequestDeadline.isExceeded() && !response.isCommitted()) {
+                sendTimeout(response, path);
+            }
+        } catch (IOException | ServletException | RuntimeException e) {
+            if ((RequestDeadline.isExceeded() || causedByTimeout(e)) && !response.isCommitted()) {
+                sendTimeout(response, path);
+                return;
+            }
+            throw e;
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+
+    private static void sendTimeout(HttpServletResponse response, String path) throws IOException {
+        System.err.println("RequestDeadlineFilter: Request to " + path + " exceeded its " + REQUEST_TIMEOUT_MS + " ms budget.");
+        response.setHeader("Retry-After", RETRY_AFTER_SECONDS);
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                "The request took too long to complete. Please try again in a few moments.");
+    }
+
+    private static boolean causedByTimeout(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void destroy() {
+        System.out.println("RequestDeadlineFilter: Destroyed.");
+    }
+}
@@ -0,0 +1,110 @@
+package app.filters;
+
+import db.DBUtil;
+import db.RequestDeadline;
+import db.UnitOfWork;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Wraps each request in a {@link UnitOfWork} so every manager call made while handling it
+ * shares one JDBC connection and commits once at the end.
+ *
+ * Work is committed before a redirect is sent, so the browser never follows a redirect to a page
+ * that cannot yet see the writes of the request that issued it. Any exception escaping the
+ * servlet, or a database call that ran out of request budget, rolls the unit back.
+ *
+ * It also keeps read-only queries on the primary for a short window after a user's own writes
+ * (see {@link DBUtil#PRIMARY_READS_UNTIL_ATTRIBUTE}), so replica lag never hides them.
+ */
+@WebFilter(filterName = "UnitOfWorkFilter", urlPatterns = {"/*"})
+public class UnitOfWorkFilter implements Filter {
+
+    // Database setup reconfigures DBUtil mid-request, so it must not hold a pooled connection
+    private static final Set<String> EXCLUDED_PATHS = new HashSet<>(Arrays.asList(
+            "/DatabaseSetupServlet", "/db_setup.jsp"
+    ));
+
+    public void init(FilterConfig filterConfig) throws ServletException {
+        System.out.println("UnitOfWorkFilter: Initialized.");
+    }
+
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (EXCLUDED_PATHS.contains(path) || UnitOfWork.isActive()) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        HttpSession session = request.getSession(false);
+        Long primaryReadsUntil = (session != null) ? (Long) session.getAttribute(DBUtil.PRIMARY_READS_UNTIL_ATTRIBUTE) : null;
+        if (primaryReadsUntil != null) {
+            if (primaryReadsUntil > System.currentTimeMillis()) {
+                DBUtil.setPrimaryReadsOnly(true);
+            } else {
+                session.removeAttribute(DBUtil.PRIMARY_READS_UNTIL_ATTRIBUTE);
+            }
+        }
+
+        UnitOfWork.begin();
+        boolean completed = false;
+        try {
+            chain.doFilter(req, new CommitBeforeRedirectResponse(response));
+            completed = true;
+        } finally {
+            DBUtil.setPrimaryReadsOnly(false);
+            if (!completed || RequestDeadline.isExceeded()) { // Don't commit half of a timed-out request
+                UnitOfWork.setRollbackOnly();
+            }
+            try {
+                UnitOfWork.end();
+            } catch (SQLException e) {
+                System.err.println("UnitOfWorkFilter: Failed to complete unit of work for " + path + ": " + e.getMessage());
+                if (completed) { // Don't mask the original exception
+                    throw new ServletException("Failed to commit changes made by this request.", e);
+                }
+            }
+        }
+    }
+
+    public void destroy() {
+        System.out.println("UnitOfWorkFilter: Destroyed.");
+    }
+
+    /**
+     * Commits the pending unit of work before the redirect reaches the client, unless the request ran
+     * out of budget; {@link UnitOfWork#commit()} then marks it rollback-only and the finally block above
+     * rolls it back.
+     */
+    private static class CommitBeforeRedirectResponse extends HttpServletResponseWrapper {
+
+        CommitBeforeRedirectResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            try {
+                UnitOfWork.commit();
+            } catch (SQLException e) {
+                throw new IOException("Failed to commit changes before redirect: " + e.getMessage(), e);
+            }
+            super.sendRedirect(location);
+        }
+    }
+}
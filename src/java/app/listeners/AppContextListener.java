@@ -2,6 +2,7 @@ package app.listeners;
 
 import db.DBUtil;
 import db.DatabaseInitializer;
+import managers.ProductManager;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
@@ -40,6 +41,7 @@ public class AppContextListener implements ServletContextListener {
             try {
                 DatabaseInitializer.initializeDatabaseSchema();
                 System.out.println("Database schema initialization process completed.");
+                warmCatalog();
                 context.setAttribute("dbConfigNeeded", false);
                  // Upon successful initialization, you might want to set an attribute
                 context.setAttribute("dbInitialized", true);
@@ -62,7 +64,17 @@ public class AppContextListener implements ServletContextListener {
         System.out.println("**********************************************");
         System.out.println("TechTroveWebApp: Application Context Destroying...");
         System.out.println("**********************************************");
-        // Add cleanup tasks here if needed, e.g., closing a connection pool
-        // For simple DriverManager connections, there's not much to do here globally.
+        DBUtil.shutdown(); // Close pooled connections so they don't outlive the webapp
+    }
+
+    /**
+     * Loads the product catalog snapshot up front so the first product page view doesn't pay for it.
+     */
+    private void warmCatalog() {
+        try {
+            ProductManager.getCatalog();
+        } catch (Exception e) {
+            System.err.println("AppContextListener: Could not preload product catalog (will load on first use): " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
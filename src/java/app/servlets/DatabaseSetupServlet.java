@@ -3,6 +3,7 @@ package app.servlets;
 
 import db.DBUtil;
 import db.DatabaseInitializer;
+import managers.ProductManager;
 
 import java.io.IOException;
 import java.sql.Connection;
@@ -27,6 +28,7 @@ public class DatabaseSetupServlet extends HttpServlet {
         String dbNameParam = request.getParameter("db_name");
         String user = request.getParameter("db_user");
         String password = request.getParameter("db_password");
+        String replicas = request.getParameter("db_replicas"); // Optional, e.g. "localhost:3307,localhost:3308"
 
         ServletContext context = getServletContext();
         String redirectPage = "db_setup.jsp";
@@ -60,6 +62,8 @@ public class DatabaseSetupServlet extends HttpServlet {
             // 2. Configure DBUtil to use the specified (and now existing) database
             System.out.println("DatabaseSetupServlet: Configuring DBUtil for database: " + dbNameParam);
             DBUtil.configureConnection(host, port, user, password, dbNameParam); // This sets up the full JDBC_URL
+            DBUtil.configureReplicas(replicas); // Read-only queries are spread across these, if any
+            ProductManager.invalidateCatalog(); // Cached catalog belongs to the previous database
 
             // 3. Test connection to the specific database
             System.out.println("DatabaseSetupServlet: Attempting to test connection to database '" + dbNameParam + "'...");
@@ -1,5 +1,6 @@
 package app.servlets.admin;
 
+import db.RowCursor;
 import managers.FeedbackManager;
 import models.Feedback;
 import models.User;
@@ -12,8 +13,6 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.List;
-import java.util.ArrayList;
 
 @WebServlet(name = "AdminFeedbackServlet", urlPatterns = {"/AdminFeedbackServlet", "/admin/feedback"})
 public class AdminFeedbackServlet extends HttpServlet {
@@ -51,17 +50,24 @@ public class AdminFeedbackServlet extends HttpServlet {
         session.removeAttribute("feedbackAdminError");
 
 
-        List<Feedback> allFeedback = new ArrayList<>();
+        // Feedback is streamed to the JSP one row at a time instead of being loaded into a list first
+        RowCursor<Feedback> feedbackCursor = null;
         try {
-            allFeedback = feedbackManager.getAllFeedbackWithDetails(); // Method that joins user and product names
-            request.setAttribute("feedbackList", allFeedback);
-            System.out.println("AdminFeedbackServlet: Fetched " + allFeedback.size() + " feedback entries.");
+            feedbackCursor = feedbackManager.openAllFeedbackCursor(); // Joins user and product names
+            request.setAttribute("feedbackCursor", feedbackCursor);
         } catch (SQLException e) {
             System.err.println("AdminFeedbackServlet: Error fetching all feedback: " + e.getMessage());
             request.setAttribute("errorMessage", "Database error fetching feedback: " + e.getMessage());
         }
 
-        request.getRequestDispatcher("/WEB-INF/jsp/admin/feedback_view.jsp").forward(request, response);
+        try {
+            request.getRequestDispatcher("/WEB-INF/jsp/admin/feedback_view.jsp").forward(request, response);
+        } finally {
+            if (feedbackCursor != null) {
+                System.out.println("AdminFeedbackServlet: Rendered " + feedbackCursor.getRowCount() + " feedback entries.");
+                feedbackCursor.close();
+            }
+        }
     }
 
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
@@ -1,5 +1,6 @@
 package app.servlets.admin;
 
+import db.RowCursor;
 import managers.OrderManager;
 import models.Order;
 import models.User;
@@ -12,8 +13,6 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.List;
-import java.util.ArrayList;
 
 @WebServlet(name = "AdminOrderServlet", urlPatterns = {"/AdminOrderServlet", "/admin/orders"})
 public class AdminOrderServlet extends HttpServlet {
@@ -50,17 +49,24 @@ public class AdminOrderServlet extends HttpServlet {
         session.removeAttribute("orderAdminSuccess");
         session.removeAttribute("orderAdminError");
 
-        List<Order> allOrders = new ArrayList<>();
+        // Orders are streamed to the JSP one at a time instead of being loaded into a list first
+        RowCursor<Order> orderCursor = null;
         try {
-            allOrders = orderManager.getAllOrders(); // Fetch all orders
-            request.setAttribute("orders", allOrders);
-            System.out.println("AdminOrderServlet: Fetched " + allOrders.size() + " total orders.");
+            orderCursor = orderManager.openAllOrdersCursor();
+            request.setAttribute("orderCursor", orderCursor);
         } catch (SQLException e) {
             System.err.println("AdminOrderServlet: Error fetching all orders: " + e.getMessage());
             request.setAttribute("errorMessage", "Database error fetching orders: " + e.getMessage());
         }
 
-        request.getRequestDispatcher("/WEB-INF/jsp/admin/order_view.jsp").forward(request, response);
+        try {
+            request.getRequestDispatcher("/WEB-INF/jsp/admin/order_view.jsp").forward(request, response);
+        } finally {
+            if (orderCursor != null) {
+                System.out.println("AdminOrderServlet: Rendered " + orderCursor.getRowCount() + " orders.");
+                orderCursor.close();
+            }
+        }
     }
 
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
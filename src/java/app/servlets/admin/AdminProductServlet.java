@@ -1,29 +1,42 @@
 // src/java/app/servlets/admin/AdminProductServlet.java
 package app.servlets.admin;
 
+import managers.ProductBulkUpdate;
+import managers.ProductImporter;
 import managers.ProductManager;
+import managers.ProductPage;
 import managers.CategoryManager; 
 import models.Product;
 import models.Category; 
 import models.User;
 import core.IdGenerator; // <<< ADDED THIS IMPORT
+import db.DBUtil;
+import exceptions.InvalidPriceException;
 
 import javax.servlet.ServletException;
+import javax.servlet.annotation.MultipartConfig;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
+import javax.servlet.http.Part;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
-import java.util.List;
 // import java.util.ArrayList; // Not explicitly used
 
 @WebServlet(name = "AdminProductServlet", urlPatterns = {"/AdminProductServlet", "/admin/products"})
+@MultipartConfig(fileSizeThreshold = 1024 * 1024, maxFileSize = 1024L * 1024 * 1024, maxRequestSize = 1024L * 1024 * 1024) // Catalog feed uploads
 public class AdminProductServlet extends HttpServlet {
 
+    private static final int PAGE_SIZE = 50;
+
     private ProductManager productManager;
     private CategoryManager categoryManager;
 
@@ -60,6 +73,10 @@ public class AdminProductServlet extends HttpServlet {
                     request.setAttribute("categories", categoryManager.getAllCategories());
                     targetPage = "/WEB-INF/jsp/admin/product_form.jsp";
                     break;
+                case "bulk_form":
+                    request.setAttribute("categories", categoryManager.getAllCategories());
+                    targetPage = "/WEB-INF/jsp/admin/product_bulk_update.jsp";
+                    break;
                 case "edit_form":
                     String productIdToEdit = request.getParameter("productId");
                     Product productToEdit = productManager.getProductById(productIdToEdit);
@@ -73,10 +90,23 @@ public class AdminProductServlet extends HttpServlet {
                         return;
                     }
                     break;
+                case "import_errors":
+                    ProductImporter.Job job = ProductImporter.getJob(request.getParameter("jobId"));
+                    if (job == null || job.getErrorFile() == null || !Files.exists(job.getErrorFile())) {
+                        response.sendError(HttpServletResponse.SC_NOT_FOUND, "No error file for this import.");
+                        return;
+                    }
+                    response.setContentType("text/csv;charset=UTF-8");
+                    response.setHeader("Content-Disposition", "attachment; filename=\"import-errors-" + job.getId() + ".csv\"");
+                    Files.copy(job.getErrorFile(), response.getOutputStream());
+                    return;
                 case "list":
                 default:
-                    List<Product> products = productManager.getAllProducts();
-                    request.setAttribute("products", products);
+                    ProductPage page = productManager.getProductPage(request.getParameter("pageToken"), PAGE_SIZE);
+                    request.setAttribute("products", page.getProducts());
+                    request.setAttribute("nextPageToken", page.getNextPageToken());
+                    request.setAttribute("isFirstPage", request.getParameter("pageToken") == null);
+                    request.setAttribute("importJobs", ProductImporter.getRecentJobs());
                     String successMsg = (String) session.getAttribute("adminProductSuccess");
                     String errorMsg = (String) session.getAttribute("adminProductError");
                     if (successMsg != null) { request.setAttribute("adminProductSuccess", successMsg); session.removeAttribute("adminProductSuccess");}
@@ -87,7 +117,7 @@ public class AdminProductServlet extends HttpServlet {
         } catch (SQLException e) {
             session.setAttribute("adminProductError", "Database error: " + e.getMessage());
             targetPage = "/WEB-INF/jsp/admin/product_management.jsp"; 
-            try { request.setAttribute("products", productManager.getAllProducts()); } catch (SQLException ex) {
+            try { request.setAttribute("products", productManager.getProductPage(null, PAGE_SIZE).getProducts()); } catch (SQLException ex) {
                  System.err.println("AdminProductServlet: Could not fetch products for error display: " + ex.getMessage());
             }
         }
@@ -157,12 +187,47 @@ public class AdminProductServlet extends HttpServlet {
                          session.setAttribute("adminProductError", "Could not delete product. ID " + productIdToDelete + " not found.");
                     }
                     break;
+                case "bulk_update":
+                    ProductBulkUpdate bulkUpdate = new ProductBulkUpdate();
+                    bulkUpdate.setCategoryId(request.getParameter("categoryId"));
+                    bulkUpdate.setBrand(request.getParameter("brand"));
+                    ProductBulkUpdate.PriceChange priceChange = ProductBulkUpdate.PriceChange.fromParameter(request.getParameter("priceChange"));
+                    String priceValue = request.getParameter("priceValue");
+                    bulkUpdate.setPriceChange(priceChange, (priceChange != ProductBulkUpdate.PriceChange.NONE) ? Double.parseDouble(priceValue != null ? priceValue.trim() : "") : 0);
+                    String stockDelta = request.getParameter("stockDelta");
+                    bulkUpdate.setStockDelta((stockDelta != null && !stockDelta.trim().isEmpty()) ? Integer.parseInt(stockDelta.trim()) : 0);
+                    int updatedCount = productManager.bulkUpdateProducts(bulkUpdate);
+                    session.setAttribute("adminProductSuccess", "Bulk update applied to " + updatedCount + " product(s).");
+                    break;
+                case "import_products":
+                    Part feed = request.getPart("importFile");
+                    String fileName = (feed != null) ? feed.getSubmittedFileName() : null;
+                    ProductImporter.Format format = ProductImporter.Format.forFileName(fileName);
+                    if (feed == null || feed.getSize() == 0) {
+                        session.setAttribute("adminProductError", "Choose a CSV or JSON Lines file to import.");
+                    } else if (format == null) {
+                        session.setAttribute("adminProductError", "Unsupported file type: " + fileName + " (expected .csv or .jsonl).");
+                    } else {
+                        // The request body is gone once we respond, so the background job reads a copy
+                        Path upload = Files.createTempFile("techtrove-import-", "." + format.name().toLowerCase());
+                        try (InputStream in = feed.getInputStream()) {
+                            Files.copy(in, upload, StandardCopyOption.REPLACE_EXISTING);
+                        } catch (IOException e) {
+                            Files.deleteIfExists(upload);
+                            throw e;
+                        }
+                        ProductImporter.Job importJob = ProductImporter.start(upload, format, fileName);
+                        session.setAttribute("adminProductSuccess", "Import of '" + fileName + "' started (job " + importJob.getId() + ").");
+                    }
+                    break;
                 default:
                     session.setAttribute("adminProductError", "Invalid action specified.");
                     break;
             }
         } catch (NumberFormatException e) {
             session.setAttribute("adminProductError", "Invalid number format for price or stock: " + e.getMessage());
+        } catch (IllegalArgumentException | InvalidPriceException e) {
+            session.setAttribute("adminProductError", e.getMessage());
         } catch (SQLException e) {
             session.setAttribute("adminProductError", "Database error processing product: " + e.getMessage());
              e.printStackTrace();
@@ -170,6 +235,8 @@ public class AdminProductServlet extends HttpServlet {
             session.setAttribute("adminProductError", "An unexpected error occurred: " + e.getMessage());
             e.printStackTrace(); 
         }
+        // The product list read after this redirect must reflect the change, not a lagging replica
+        session.setAttribute(DBUtil.PRIMARY_READS_UNTIL_ATTRIBUTE, System.currentTimeMillis() + DBUtil.getReadYourWritesWindowMillis());
         response.sendRedirect(request.getContextPath() + "/AdminProductServlet?action=list");
     }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package app.servlets.admin;
+
+import db.QueryMetrics;
+import models.User;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import java.io.IOException;
+
+@WebServlet(name = "AdminQueryStatsServlet", urlPatterns = {"/AdminQueryStatsServlet", "/admin/querystats"})
+public class AdminQueryStatsServlet extends HttpServlet {
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        System.out.println("AdminQueryStatsServlet: Received GET request.");
+        HttpSession session = request.getSession(false);
+        User loggedInUser = (session != null) ? (User) session.getAttribute("loggedInUser") : null;
+
+        if (loggedInUser == null || loggedInUser.getRole() != User.UserRole.ADMIN) {
+            response.sendRedirect(request.getContextPath() + "/LoginServlet");
+            return;
+        }
+
+        String successMessage = (String) session.getAttribute("queryStatsSuccess");
+        String errorMessage = (String) session.getAttribute("queryStatsError");
+        if (successMessage != null) request.setAttribute("successMessage", successMessage);
+        if (errorMessage != null) request.setAttribute("errorMessage", errorMessage);
+        session.removeAttribute("queryStatsSuccess");
+        session.removeAttribute("queryStatsError");
+
+        request.setAttribute("queryStats", QueryMetrics.getSnapshot());
+        request.setAttribute("slowQueryThresholdMs", QueryMetrics.getSlowQueryThresholdMillis());
+        request.getRequestDispatcher("/WEB-INF/jsp/admin/query_stats.jsp").forward(request, response);
+    }
+
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        System.out.println("AdminQueryStatsServlet: Received POST request.");
+        HttpSession session = request.getSession(false);
+        User loggedInUser = (session != null) ? (User) session.getAttribute("loggedInUser") : null;
+
+        if (loggedInUser == null || loggedInUser.getRole() != User.UserRole.ADMIN) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Access Denied.");
+            return;
+        }
+
+        String action = request.getParameter("action");
+        if ("reset".equals(action)) {
+            QueryMetrics.reset();
+            session.setAttribute("queryStatsSuccess", "Query statistics have been reset.");
+        } else if ("threshold".equals(action)) {
+            try {
+                long thresholdMs = Long.parseLong(request.getParameter("slowQueryThresholdMs").trim());
+                QueryMetrics.setSlowQueryThresholdMillis(thresholdMs);
+                session.setAttribute("queryStatsSuccess", "Slow query threshold set to " + thresholdMs + " ms.");
+            } catch (NumberFormatException | NullPointerException e) {
+                session.setAttribute("queryStatsError", "Please enter a whole number of milliseconds.");
+            } catch (IllegalArgumentException e) {
+                session.setAttribute("queryStatsError", e.getMessage());
+            }
+        } else {
+            session.setAttribute("queryStatsError", "Invalid action.");
+        }
+        response.sendRedirect(request.getContextPath() + "/AdminQueryStatsServlet");
+    }
+}
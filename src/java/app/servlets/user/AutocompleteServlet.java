@@ -0,0 +1,68 @@
+package app.servlets.user;
+
+import managers.ProductCompletionTrie;
+import managers.ProductManager;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+
+/**
+ * Search-as-you-type suggestions: GET /products/suggest?q=logi&limit=8 returns a JSON array of the
+ * best-selling product names and brands starting with {@code q}.
+ *
+ * This is called on every keystroke, so it answers from {@link ProductCompletionTrie} without touching
+ * the database and writes precomputed JSON straight to the response. Responses carry the trie's build
+ * time as an ETag and may be cached briefly by the browser.
+ */
+@WebServlet(name = "AutocompleteServlet", urlPatterns = {"/AutocompleteServlet", "/products/suggest"})
+public class AutocompleteServlet extends HttpServlet {
+
+    private static final int DEFAULT_LIMIT = 8;
+    private static final int MAX_PREFIX_LENGTH = 100;
+    private static final int CACHE_MAX_AGE_SECONDS = 60;
+
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String prefix = request.getParameter("q");
+        if (prefix != null && prefix.length() > MAX_PREFIX_LENGTH) {
+            prefix = prefix.substring(0, MAX_PREFIX_LENGTH);
+        }
+        int limit = DEFAULT_LIMIT;
+        try {
+            if (request.getParameter("limit") != null) {
+                limit = Math.max(1, Math.min(ProductCompletionTrie.MAX_COMPLETIONS, Integer.parseInt(request.getParameter("limit"))));
+            }
+        } catch (NumberFormatException e) {
+            // Keep the default
+        }
+
+        ProductCompletionTrie trie;
+        try {
+            trie = ProductManager.getCompletionTrie();
+        } catch (SQLException e) {
+            System.err.println("AutocompleteServlet: Could not load suggestions: " + e.getMessage());
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Suggestions are temporarily unavailable.");
+            return;
+        }
+
+        // The URL carries the prefix and limit, so the trie version alone identifies the response
+        String etag = "\"ac-" + trie.getBuiltAtMillis() + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "private, max-age=" + CACHE_MAX_AGE_SECONDS);
+        if (etag.equals(request.getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType("application/json;charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        trie.writeCompletionsJson(prefix, limit, out);
+        out.flush();
+    }
+}
@@ -104,8 +104,8 @@ public class CartServlet extends HttpServlet {
                     }
                 }
                 // Using the method name from the CartManager I provided
-                cartManager.addItemToCart(loggedInUser.getUserId(), productId, quantity);
-                session.setAttribute("cartSuccess", "Product added to cart successfully!");
+                int quantityInCart = cartManager.addItemToCart(loggedInUser.getUserId(), productId, quantity);
+                session.setAttribute("cartSuccess", "Product added to cart successfully! You now have " + quantityInCart + " in your cart.");
                 System.out.println("CartServlet: Product " + productId + " (qty " + quantity + ") added for user " + loggedInUser.getUserId());
 
             } else if ("update".equals(action) && cartId != null && !cartId.isEmpty()) {
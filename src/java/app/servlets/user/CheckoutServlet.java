@@ -1,6 +1,9 @@
 // src/java/app/servlets/user/CheckoutServlet.java
 package app.servlets.user;
 
+import db.DBUtil;
+import db.TransactionRetry;
+import db.UnitOfWork;
 import managers.CartManager;
 import managers.OrderManager;
 import managers.PaymentManager;
@@ -98,64 +101,84 @@ public class CheckoutServlet extends HttpServlet {
         }
 
         try {
-            // Corrected method call: getCartItems instead of getCartItemsByUserId
-            List<CartItem> cartItems = cartManager.getCartItems(loggedInUser.getUserId());
-            if (cartItems.isEmpty()) {
+            // The whole checkout runs as one transaction that is replayed from the cart read onwards
+            // if MySQL aborts it with a deadlock or lock wait timeout (concurrent checkouts of the same products)
+            String orderId = TransactionRetry.execute("checkout", () -> placeOrder(loggedInUser));
+            if (orderId == null) {
                 System.out.println("CheckoutServlet: Cart is empty on POST. Redirecting to CartServlet.");
                 session.setAttribute("cartError", "Your cart is empty. Cannot place order.");
                 response.sendRedirect(request.getContextPath() + "/CartServlet");
                 return;
             }
 
-            double totalAmount = cartManager.calculateTotal(cartItems);
-            // For this demo, shipping address can be a placeholder or fetched from User model if available
-            String shippingAddress = (loggedInUser.getAddress() != null && !loggedInUser.getAddress().isEmpty())
-                                     ? loggedInUser.getAddress()
-                                     : "Default Shipping Address - Placeholder";
-
-            // Convert List<CartItem> to List<OrderDetail>
-            List<OrderDetail> orderDetails = new ArrayList<>();
-            for (CartItem cartItem : cartItems) {
-                orderDetails.add(new OrderDetail(
-                    null, // OrderDetailID will be generated by OrderManager/DB
-                    null, // OrderID will be set by OrderManager
-                    cartItem.getProduct().getProductId(),
-                    cartItem.getProduct().getName(),    // Product name at the time of order
-                    cartItem.getQuantity(),
-                    cartItem.getProduct().getPrice()    // Price at the time of order
-                ));
-            }
-
-            // Call the corrected method in OrderManager
-            String orderId = orderManager.createOrder(loggedInUser.getUserId(), orderDetails, totalAmount, shippingAddress);
-
-            System.out.println("CheckoutServlet: Order creation attempted. Order ID: " + orderId);
-
-            // If order placed successfully:
-            // 1. Record payment (simulated)
-            paymentManager.recordPayment(orderId, totalAmount, "Cash on Delivery (Demo)");
-            System.out.println("CheckoutServlet: Payment recorded for order " + orderId);
-
-            // 2. Clear the user's cart
-            cartManager.clearCart(loggedInUser.getUserId());
-            System.out.println("CheckoutServlet: Cart cleared for user " + loggedInUser.getUserId());
-
-            // 3. Redirect to order confirmation/history page
+            // Redirect to order confirmation/history page
+            // Keep this user's reads on the primary briefly so order history shows the new order
+            session.setAttribute(DBUtil.PRIMARY_READS_UNTIL_ATTRIBUTE, System.currentTimeMillis() + DBUtil.getReadYourWritesWindowMillis());
             session.setAttribute("lastOrderId", orderId); // For potential use on confirmation page
             session.setAttribute("orderSuccessMessage", "Your order (ID: " + orderId + ") has been placed successfully!");
             System.out.println("CheckoutServlet: Redirecting to OrderHistoryServlet for confirmation.");
             response.sendRedirect(request.getContextPath() + "/OrderHistoryServlet?action=confirmation");
 
         } catch (SQLException e) {
+            UnitOfWork.setRollbackOnly(); // Order, payment and cart clearing commit together or not at all
             System.err.println("CheckoutServlet: SQL Error during order placement: " + e.getMessage());
             e.printStackTrace();
             session.setAttribute("checkoutError", "Failed to place your order due to a database error. Please try again. Details: " + e.getMessage());
             response.sendRedirect(request.getContextPath() + "/CheckoutServlet"); // Redirect back to GET to show checkout page with error
         } catch (Exception e) { // Catch any other unexpected errors
+            UnitOfWork.setRollbackOnly();
             System.err.println("CheckoutServlet: Unexpected error during order placement: " + e.getMessage());
             e.printStackTrace();
             session.setAttribute("checkoutError", "An unexpected error occurred while placing your order: " + e.getMessage());
             response.sendRedirect(request.getContextPath() + "/CheckoutServlet");
         }
     }
+
+    /**
+     * Creates the order, records the payment and clears the cart. Runs inside {@link TransactionRetry},
+     * so it may run more than once: it re-reads the cart every time and only touches the database.
+     *
+     * @return the new order ID, or null if the cart is empty.
+     */
+    private String placeOrder(User loggedInUser) throws SQLException {
+        // Corrected method call: getCartItems instead of getCartItemsByUserId
+        List<CartItem> cartItems = cartManager.getCartItems(loggedInUser.getUserId());
+        if (cartItems.isEmpty()) {
+            return null;
+        }
+
+        double totalAmount = cartManager.calculateTotal(cartItems);
+        // For this demo, shipping address can be a placeholder or fetched from User model if available
+        String shippingAddress = (loggedInUser.getAddress() != null && !loggedInUser.getAddress().isEmpty())
+                                 ? loggedInUser.getAddress()
+                                 : "Default Shipping Address - Placeholder";
+
+        // Convert List<CartItem> to List<OrderDetail>
+        List<OrderDetail> orderDetails = new ArrayList<>();
+        for (CartItem cartItem : cartItems) {
+            orderDetails.add(new OrderDetail(
+                null, // OrderDetailID will be generated by OrderManager/DB
+                null, // OrderID will be set by OrderManager
+                cartItem.getProduct().getProductId(),
+                cartItem.getProduct().getName(),    // Product name at the time of order
+                cartItem.getQuantity(),
+                cartItem.getProduct().getPrice()    // Price at the time of order
+            ));
+        }
+
+        // Call the corrected method in OrderManager
+        String orderId = orderManager.createOrder(loggedInUser.getUserId(), orderDetails, totalAmount, shippingAddress);
+
+        System.out.println("CheckoutServlet: Order creation attempted. Order ID: " + orderId);
+
+        // If order placed successfully:
+        // 1. Record payment (simulated)
+        paymentManager.recordPayment(orderId, totalAmount, "Cash on Delivery (Demo)");
+        System.out.println("CheckoutServlet: Payment recorded for order " + orderId);
+
+        // 2. Clear the user's cart
+        cartManager.clearCart(loggedInUser.getUserId());
+        System.out.println("CheckoutServlet: Cart cleared for user " + loggedInUser.getUserId());
+        return orderId;
+    }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package app.servlets.user;
 
+import managers.CatalogSnapshot;
+import managers.CategoryManager;
 import managers.ProductManager;
+import managers.ProductQuery;
+import managers.ProductQueryResult;
 import models.Product;
 import models.User; // For checking user session
 
@@ -11,20 +15,29 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
 import java.util.List;
 import java.util.ArrayList; // Import ArrayList
 
 @WebServlet(name = "ProductServlet", urlPatterns = {"/ProductServlet", "/products"})
 public class ProductServlet extends HttpServlet {
 
+    private static final int PAGE_SIZE = 24;
+    // Pages show the user's name, so only the browser may keep them, and must revalidate on every visit
+    private static final String CACHE_CONTROL = "private, no-cache";
+
     private ProductManager productManager;
+    private CategoryManager categoryManager;
 
     @Override
     public void init() throws ServletException {
         super.init();
         try {
             productManager = new ProductManager();
+            categoryManager = new CategoryManager();
             System.out.println("ProductServlet: ProductManager initialized.");
         } catch (SQLException e) {
             System.err.println("ProductServlet: Failed to initialize ProductManager: " + e.getMessage());
@@ -43,29 +56,66 @@ public class ProductServlet extends HttpServlet {
             response.sendRedirect(request.getContextPath() + "/LoginServlet");
             return;
         }
-        // User loggedInUser = (User) session.getAttribute("loggedInUser"); // Not strictly needed just for viewing products
+        User loggedInUser = (User) session.getAttribute("loggedInUser");
+
+        // A listing only changes when the catalog does. The version is read before querying, so the tag can
+        // be older than what gets rendered (costing a re-render later) but never newer.
+        String etag = null;
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        if ("GET".equals(request.getMethod())) {
+            try {
+                etag = catalogETag(ProductManager.getCatalog(), loggedInUser);
+                if (ifNoneMatchMatches(request.getHeader("If-None-Match"), etag)) {
+                    response.setHeader("ETag", etag);
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            } catch (SQLException e) {
+                System.err.println("ProductServlet: Could not read catalog version: " + e.getMessage());
+            }
+        }
 
-        String categoryId = request.getParameter("category");
-        String searchQuery = request.getParameter("search");
+        ProductQuery query = new ProductQuery();
+        query.setSearchText(request.getParameter("search"));
+        query.setCategoryId(request.getParameter("category"));
+        query.setBrand(request.getParameter("brand"));
+        query.setMinPrice(parsePrice(request.getParameter("minPrice")));
+        query.setMaxPrice(parsePrice(request.getParameter("maxPrice")));
+        query.setInStockOnly(request.getParameter("inStock") != null);
+        query.setSortOrder(ProductQuery.SortOrder.fromParameter(request.getParameter("sort"), ProductQuery.SortOrder.RELEVANCE));
+        query.setPageSize(PAGE_SIZE);
+        query.setPageToken(request.getParameter("pageToken"));
         String errorMessage = null;
         List<Product> products = new ArrayList<>(); // Initialize to empty list
+        ProductQueryResult result = null;
 
         try {
-            if (searchQuery != null && !searchQuery.trim().isEmpty()) {
-                System.out.println("ProductServlet: Searching for products with query: " + searchQuery);
-                products = productManager.searchProductsByName(searchQuery.trim());
-            } else if (categoryId != null && !categoryId.trim().isEmpty()) {
-                System.out.println("ProductServlet: Fetching products for category ID: " + categoryId);
-                // Assuming ProductManager has a getProductsByCategoryId method
-                // products = productManager.getProductsByCategoryId(categoryId);
-                // For now, if category filter is present but method not implemented, show all or error
-                // Let's show all for now and add category filtering to ProductManager later if needed.
-                System.out.println("ProductServlet: Category filtering not fully implemented in ProductManager, fetching all products.");
-                products = productManager.getAllProducts();
-            } else {
-                System.out.println("ProductServlet: Fetching all products.");
-                products = productManager.getAllProducts();
+            System.out.println("ProductServlet: Querying products (search=" + query.getSearchText() + ", category="
+                    + query.getCategoryId() + ", brand=" + query.getBrand() + ").");
+            result = productManager.queryProducts(query);
+            if (result.getTotalCount() == 0 && query.getSearchText() != null) {
+                // Fuzzy fallback: retry once with misspelled words corrected ("logitec" -> "logitech")
+                String correctedQuery = productManager.suggestSearchCorrection(query.getSearchText());
+                if (correctedQuery != null) {
+                    System.out.println("ProductServlet: No exact matches; retrying search as: " + correctedQuery);
+                    String originalSearch = query.getSearchText();
+                    query.setSearchText(correctedQuery);
+                    ProductQueryResult corrected = productManager.queryProducts(query);
+                    query.setSearchText(originalSearch); // The form keeps showing what the user typed
+                    if (!corrected.getProducts().isEmpty()) {
+                        result = corrected;
+                        request.setAttribute("correctedQuery", correctedQuery);
+                    }
+                }
             }
+            products = result.getProducts();
+            if (result.hasNextPage()) {
+                request.setAttribute("nextPageUrl", pageUrl(request, result.getNextPageToken()));
+            }
+            if (query.getPageToken() != null) {
+                request.setAttribute("firstPageUrl", pageUrl(request, null));
+            }
+            request.setAttribute("categories", categoryManager.getAllCategories());
         } catch (SQLException e) {
             System.err.println("ProductServlet: SQL error fetching products: " + e.getMessage());
             e.printStackTrace();
@@ -79,15 +129,91 @@ public class ProductServlet extends HttpServlet {
 
         if (errorMessage != null) {
             request.setAttribute("errorMessage", errorMessage);
+        } else if (etag != null) {
+            response.setHeader("ETag", etag); // Error pages aren't tagged, so they are never revalidated as current
         }
         request.setAttribute("products", products);
-        // TODO: Fetch categories for a filter dropdown later
-        // request.setAttribute("categories", categoryManager.getAllCategories());
+        request.setAttribute("queryResult", result);
+        request.setAttribute("productQuery", query);
 
         System.out.println("ProductServlet: Forwarding to products.jsp with " + products.size() + " products.");
         request.getRequestDispatcher("/WEB-INF/jsp/user/products.jsp").forward(request, response);
     }
 
+    /**
+     * This listing's URL with the same filters and sort, at the given page (null for the first).
+     */
+    private static String pageUrl(HttpServletRequest request, String pageToken) throws IOException {
+        StringBuilder url = new StringBuilder(request.getContextPath()).append("/products");
+        char separator = '?';
+        for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+            if (parameter.getKey().equals("pageToken")) {
+                continue;
+            }
+            for (String value : parameter.getValue()) {
+                url.append(separator).append(URLEncoder.encode(parameter.getKey(), "UTF-8"))
+                        .append('=').append(URLEncoder.encode(value, "UTF-8"));
+                separator = '&';
+            }
+        }
+        if (pageToken != null) {
+            url.append(separator).append("pageToken=").append(pageToken); // Already URL-safe
+        }
+        return url.toString();
+    }
+
+    /**
+     * Strong ETag for a listing rendered from {@code catalog} for {@code user}. The URL carries the filters,
+     * sort and page, so the catalog version and the user shown in the navbar identify the page.
+     *
+     * The version is the database's shared catalog version, so every server gives an unchanged page the
+     * same tag, across restarts and periodic reloads. Only while this server's snapshot can't be matched
+     * to one shared version (it missed a change made on another server) does the tag fall back to the
+     * local version, with the load time since local versions restart with the server.
+     */
+    private static String catalogETag(CatalogSnapshot catalog, User user) {
+        int userHash = (user != null) ? Objects.hash(user.getUserId(), user.getFullName()) : 0;
+        String version = (catalog.getCatalogId() != null)
+                ? catalog.getCatalogId() + "-" + catalog.getSharedVersion()
+                : "local-" + Long.toString(catalog.getLoadedAtMillis(), 36) + "-" + catalog.getVersion();
+        return "\"cat-" + version + "-" + Integer.toHexString(userHash) + "\"";
+    }
+
+    /**
+     * Whether an If-None-Match header lists {@code etag} or is "*". Uses weak comparison, as RFC 7232
+     * requires for If-None-Match, so a "W/" prefix added by a proxy still matches.
+     */
+    private static boolean ifNoneMatchMatches(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses an optional price filter; blank or malformed input means no filter.
+     */
+    private static Double parsePrice(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            double price = Double.parseDouble(value.trim());
+            return (price >= 0 && !Double.isInfinite(price)) ? price : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     // doPost could handle adding to cart from this page if buttons are directly on product list
     // For now, we'll assume a separate CartServlet handles cart actions.
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
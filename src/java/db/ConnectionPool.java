@@ -0,0 +1,509 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small bounded JDBC connection pool used behind {@link DBUtil#getConnection()}.
+ *
+ * Physical connections are created lazily up to {@code maxSize}. Callers receive a proxy whose
+ * {@code close()} hands the physical connection back to the pool instead of closing it, so the
+ * existing try-with-resources code in the managers works unchanged.
+ *
+ * A background housekeeper evicts connections that stayed idle longer than {@code idleTimeoutMillis}
+ * (never going below {@code minIdle}), tops the pool back up to {@code minIdle}, and reports
+ * connections held longer than {@code leakThresholdMillis} together with the stack trace of the borrower.
+ *
+ * Each physical connection owns a {@link StatementCache}, so {@code prepareStatement(sql)} on a pooled
+ * connection reuses statements prepared earlier on the same physical connection. Every statement handed
+ * out is wrapped by {@link InstrumentedStatement} so its executions are recorded in {@link QueryMetrics}.
+ */
+public class ConnectionPool {
+
+    // Connections returned within this window are trusted without an extra ping on borrow.
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long HOUSEKEEPING_PERIOD_SECONDS = 15;
+
+    private final String name;
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final int minIdle;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final Object available = new Object(); // Notified when a connection is returned or a slot frees up
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown = false;
+
+    // Statistics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    public ConnectionPool(String name, String jdbcUrl, String user, String password,
+                          int minIdle, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long leakThresholdMillis, int statementCacheSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool maxSize must be positive.");
+        }
+        if (minIdle < 0 || minIdle > maxSize) {
+            throw new IllegalArgumentException("Pool minIdle must be between 0 and maxSize.");
+        }
+        this.name = name;
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+        this.minIdle = minIdle;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-" + name + "-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, HOUSEKEEPING_PERIOD_SECONDS, TimeUnit.SECONDS);
+        System.out.println("ConnectionPool[" + name + "]: Created (min idle " + minIdle + ", max " + maxSize + ").");
+    }
+
+    /**
+     * Borrows a connection, waiting at most the configured borrow timeout.
+     */
+    public Connection getConnection() throws SQLException {
+        return getConnection(borrowTimeoutMillis);
+    }
+
+    /**
+     * Borrows a connection, waiting at most {@code timeoutMillis} for one to become available.
+     *
+     * @throws SQLTransientConnectionException if no connection could be obtained in time.
+     */
+    public Connection getConnection(long timeoutMillis) throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool '" + name + "' has been shut down.");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMillis));
+
+        while (true) {
+            PooledEntry entry = idle.pollFirst();
+            if (entry == null) {
+                if (reserveSlot()) {
+                    try {
+                        entry = createEntry();
+                    } catch (SQLException e) {
+                        freeSlot();
+                        throw e;
+                    }
+                    return lease(entry, System.nanoTime() - start);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeoutCount.incrementAndGet();
+                    throw new SQLTransientConnectionException("Timed out after " + timeoutMillis
+                            + " ms waiting for a connection from pool '" + name + "' (" + describe() + ").", "08001");
+                }
+                awaitAvailable(remaining);
+                continue; // Either an idle connection or a free slot; both are tried from the top
+            }
+            if (!isValid(entry)) {
+                validationFailureCount.incrementAndGet();
+                destroy(entry);
+                continue;
+            }
+            return lease(entry, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Waits until a connection is returned or a slot frees up, or {@code remainingNanos} pass.
+     */
+    private void awaitAvailable(long remainingNanos) throws SQLException {
+        waiters.incrementAndGet();
+        try {
+            synchronized (available) {
+                // Checked under the monitor: a signal sent after this check can only arrive once we wait
+                if (idle.isEmpty() && totalConnections.get() >= maxSize) {
+                    TimeUnit.NANOSECONDS.timedWait(available, remainingNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool '" + name + "'.", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    private void signalAvailable() {
+        if (waiters.get() > 0) {
+            synchronized (available) {
+                available.notifyAll(); // All of them: a waiter may give up without taking the connection
+            }
+        }
+    }
+
+    private void freeSlot() {
+        totalConnections.decrementAndGet();
+        signalAvailable();
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = totalConnections.get();
+            if (current >= maxSize) {
+                return false;
+            }
+            if (totalConnections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection physical = DriverManager.getConnection(jdbcUrl, user, password);
+        createdCount.incrementAndGet();
+        return new PooledEntry(physical, new StatementCache(physical, statementCacheSize));
+    }
+
+    private boolean isValid(PooledEntry entry) {
+        if (System.nanoTime() - entry.lastReturnedNanos < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return entry.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lease(PooledEntry entry, long waitedNanos) {
+        entry.borrowedAtMillis = System.currentTimeMillis();
+        entry.borrowerStack = (leakThresholdMillis > 0) ? new Throwable("Connection borrowed here") : null;
+        entry.leakReported = false;
+        entry.broken = false;
+        borrowed.add(entry);
+
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitedNanos);
+        peakActive.accumulateAndGet(borrowed.size(), Math::max);
+
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(entry));
+    }
+
+    private void release(PooledEntry entry) {
+        borrowed.remove(entry);
+        if (entry.leakReported) {
+            System.out.println("ConnectionPool[" + name + "]: Previously reported leaked connection returned after "
+                    + (System.currentTimeMillis() - entry.borrowedAtMillis) + " ms.");
+        }
+        entry.borrowerStack = null;
+
+        if (shutdown || entry.broken) {
+            destroy(entry);
+            return;
+        }
+        try {
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback(); // Never leak an open transaction to the next borrower
+                entry.physical.setAutoCommit(true);
+            }
+            entry.physical.clearWarnings();
+        } catch (SQLException e) {
+            System.err.println("ConnectionPool[" + name + "]: Discarding connection that failed to reset: " + e.getMessage());
+            destroy(entry);
+            return;
+        }
+        entry.lastReturnedNanos = System.nanoTime();
+        idle.offerFirst(entry); // LIFO keeps the hottest connections in use and lets the rest age out
+        signalAvailable();
+    }
+
+    private void destroy(PooledEntry entry) {
+        destroyedCount.incrementAndGet();
+        entry.statementCache.clear();
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            System.err.println("ConnectionPool[" + name + "]: Error closing physical connection: " + e.getMessage());
+        }
+        freeSlot(); // Only once closed, so a waiter's replacement never takes us past maxSize
+    }
+
+    private void houseKeep() {
+        try {
+            long now = System.nanoTime();
+            long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+            // Evict the oldest idle connections first, but keep at least minIdle around.
+            if (idleTimeoutMillis > 0) {
+                Iterator<PooledEntry> it = idle.descendingIterator();
+                while (it.hasNext() && totalConnections.get() > minIdle) {
+                    PooledEntry entry = it.next();
+                    if (now - entry.lastReturnedNanos > idleTimeoutNanos && idle.remove(entry)) {
+                        destroy(entry);
+                    }
+                }
+            }
+
+            // Top up to minIdle.
+            while (!shutdown && idle.size() < minIdle && reserveSlot()) {
+                try {
+                    PooledEntry entry = createEntry();
+                    entry.lastReturnedNanos = System.nanoTime();
+                    idle.offerLast(entry);
+                    signalAvailable();
+                } catch (SQLException e) {
+                    freeSlot();
+                    System.err.println("ConnectionPool[" + name + "]: Could not pre-fill idle connection: " + e.getMessage());
+                    break;
+                }
+            }
+
+            // Leak detection
+            if (leakThresholdMillis > 0) {
+                long nowMillis = System.currentTimeMillis();
+                for (PooledEntry entry : borrowed) {
+                    if (!entry.leakReported && nowMillis - entry.borrowedAtMillis > leakThresholdMillis) {
+                        entry.leakReported = true;
+                        leakCount.incrementAndGet();
+                        System.err.println("ConnectionPool[" + name + "]: Possible connection leak, held for "
+                                + (nowMillis - entry.borrowedAtMillis) + " ms.");
+                        Throwable stack = entry.borrowerStack;
+                        if (stack != null) {
+                            stack.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("ConnectionPool[" + name + "]: Housekeeping error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Borrowed connections are closed when returned.
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        housekeeper.shutdownNow();
+        List<PooledEntry> drained = new ArrayList<>();
+        idle.drainTo(drained);
+        for (PooledEntry entry : drained) {
+            destroy(entry);
+        }
+        System.out.println("ConnectionPool[" + name + "]: Shut down (" + borrowed.size() + " connection(s) still borrowed).");
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public String getJdbcUrl() {
+        return jdbcUrl;
+    }
+
+    public Stats getStats() {
+        return new Stats(this);
+    }
+
+    private String describe() {
+        return "total=" + totalConnections.get() + ", active=" + borrowed.size() + ", idle=" + idle.size() + ", max=" + maxSize;
+    }
+
+    /**
+     * A point-in-time snapshot of pool counters, suitable for logging or an admin page.
+     */
+    public static class Stats {
+        private final String poolName;
+        private final int totalConnections;
+        private final int activeConnections;
+        private final int idleConnections;
+        private final int maxSize;
+        private final int peakActive;
+        private final long borrowCount;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long timeoutCount;
+        private final long validationFailureCount;
+        private final long leakCount;
+        private final double averageWaitMillis;
+
+        private Stats(ConnectionPool pool) {
+            this.poolName = pool.name;
+            this.totalConnections = pool.totalConnections.get();
+            this.activeConnections = pool.borrowed.size();
+            this.idleConnections = pool.idle.size();
+            this.maxSize = pool.maxSize;
+            this.peakActive = pool.peakActive.get();
+            this.borrowCount = pool.borrowCount.get();
+            this.createdCount = pool.createdCount.get();
+            this.destroyedCount = pool.destroyedCount.get();
+            this.timeoutCount = pool.timeoutCount.get();
+            this.validationFailureCount = pool.validationFailureCount.get();
+            this.leakCount = pool.leakCount.get();
+            this.averageWaitMillis = (borrowCount == 0) ? 0.0
+                    : pool.totalWaitNanos.get() / (double) borrowCount / 1_000_000.0;
+        }
+
+        public String getPoolName() { return poolName; }
+        public int getTotalConnections() { return totalConnections; }
+        public int getActiveConnections() { return activeConnections; }
+        public int getIdleConnections() { return idleConnections; }
+        public int getMaxSize() { return maxSize; }
+        public int getPeakActive() { return peakActive; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getValidationFailureCount() { return validationFailureCount; }
+        public long getLeakCount() { return leakCount; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                   "pool='" + poolName + '\'' +
+                   ", total=" + totalConnections +
+                   ", active=" + activeConnections +
+                   ", idle=" + idleConnections +
+                   ", max=" + maxSize +
+                   ", peakActive=" + peakActive +
+                   ", borrows=" + borrowCount +
+                   ", created=" + createdCount +
+                   ", destroyed=" + destroyedCount +
+                   ", timeouts=" + timeoutCount +
+                   ", validationFailures=" + validationFailureCount +
+                   ", leaks=" + leakCount +
+                   ", avgWaitMs=" + String.format("%.3f", averageWaitMillis) +
+                   '}';
+        }
+    }
+
+    private static class PooledEntry {
+        final Connection physical;
+        final StatementCache statementCache;
+        volatile long lastReturnedNanos = System.nanoTime();
+        volatile long borrowedAtMillis;
+        volatile Throwable borrowerStack;
+        volatile boolean leakReported;
+        volatile boolean broken;
+
+        PooledEntry(Connection physical, StatementCache statementCache) {
+            this.physical = physical;
+            this.statementCache = statementCache;
+        }
+    }
+
+    /**
+     * Handles calls on the Connection proxy handed to callers. {@code close()} returns the physical
+     * connection to the pool; any use after that fails like a closed connection would.
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean closed = false;
+
+        PooledConnectionHandler(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + (closed ? ", closed" : "") + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.", "08003");
+            }
+            try {
+                if ("prepareStatement".equals(methodName) && args.length == 1 && statementCacheSize > 0) {
+                    PreparedStatement ps = entry.statementCache.prepare((String) args[0], (Connection) proxy);
+                    return InstrumentedStatement.wrap(ps, (String) args[0], (Connection) proxy);
+                }
+                if ("prepareStatement".equals(methodName) && args.length == 2 && args[1] instanceof Integer
+                        && statementCacheSize > 0) { // (sql, autoGeneratedKeys)
+                    PreparedStatement ps = entry.statementCache.prepare((String) args[0], (Integer) args[1], (Connection) proxy);
+                    return InstrumentedStatement.wrap(ps, (String) args[0], (Connection) proxy);
+                }
+                Object result = method.invoke(entry.physical, args);
+                if (result instanceof Statement) {
+                    String sql = (args != null && args.length > 0 && args[0] instanceof String) ? (String) args[0] : null;
+                    return InstrumentedStatement.wrap((Statement) result, sql, (Connection) proxy);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw markIfBroken(e.getCause());
+            } catch (SQLException e) {
+                throw markIfBroken(e);
+            }
+        }
+
+        private Throwable markIfBroken(Throwable cause) {
+            if (cause instanceof SQLException) {
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlState.startsWith("08")) {
+                    entry.broken = true; // Connection-level failure; do not hand this one out again
+                }
+            }
+            return cause;
+        }
+    }
+}
@@ -3,15 +3,22 @@ package db;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement; // Not strictly needed here, but often useful in DBUtil
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class DBUtil {
 
     private static String JDBC_DRIVER = "com.mysql.cj.jdbc.Driver";
     // Template for connecting to the server without specifying a DB (for CREATE DATABASE)
     private static String SERVER_URL_TEMPLATE = "jdbc:mysql://%s:%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
-    // Template for connecting to a specific database
-    private static String DB_URL_TEMPLATE = "jdbc:mysql://%s:%s/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC";
+    // Template for connecting to a specific database.
+    // Server-side prepared statements are parsed once per connection; the pool's StatementCache keeps them open.
+    // Batched INSERTs are sent as multi-row statements (one round trip per batch, e.g. for product imports).
+    private static String DB_URL_TEMPLATE = "jdbc:mysql://%s:%s/%s?useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC"
+            + "&useServerPrepStmts=true&useCursorFetch=true&rewriteBatchedStatements=true";
 
     // Store the configured parameters
     private static String dbHost;
@@ -23,6 +30,27 @@ public class DBUtil {
     private static String currentJdbcUrl = ""; // This will hold the full URL to the specific DB
     private static boolean configured = false;
 
+    // Connection pool settings; can be overridden with -D system properties at server startup
+    private static final int POOL_MIN_IDLE = Integer.getInteger("techtrove.db.pool.minIdle", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("techtrove.db.pool.maxSize", 20);
+    private static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("techtrove.db.pool.borrowTimeoutMs", 5000L);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("techtrove.db.pool.idleTimeoutMs", 300000L);
+    private static final long POOL_LEAK_THRESHOLD_MS = Long.getLong("techtrove.db.pool.leakThresholdMs", 60000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("techtrove.db.statementCacheSize", 64);
+
+    // Created lazily on the first getConnection() once a database name is configured
+    private static volatile ConnectionPool pool;
+
+    // Optional read replicas used by getReadConnection()
+    private static final int REPLICA_POOL_MAX_SIZE = Integer.getInteger("techtrove.db.replica.pool.maxSize", 10);
+    private static final long REPLICA_MAX_LAG_SECONDS = Long.getLong("techtrove.db.replica.maxLagSeconds", 5L);
+    private static final long READ_YOUR_WRITES_WINDOW_MS = Long.getLong("techtrove.db.replica.stickinessMs", 10000L);
+    private static volatile ReplicaRouter replicaRouter;
+    private static final ThreadLocal<Boolean> primaryReadsOnly = new ThreadLocal<>();
+
+    /** Session attribute holding the time (epoch millis) until which a user's reads must go to the primary. */
+    public static final String PRIMARY_READS_UNTIL_ATTRIBUTE = "primaryReadsUntil";
+
     static {
         try {
             Class.forName(JDBC_DRIVER);
@@ -41,6 +69,8 @@ public class DBUtil {
      * If dbName is null/empty, it prepares for server-level connection (e.g., to create the DB).
      */
     public static void configureConnection(String host, String port, String user, String password, String name) {
+        closePool(); // Any existing pool points at the old settings
+        closeReplicas();
         dbHost = (host == null || host.trim().isEmpty()) ? "localhost" : host.trim();
         dbPort = (port == null || port.trim().isEmpty()) ? "3306" : port.trim();
         dbUser = user; // User can be empty string for some configs
@@ -66,6 +96,8 @@ public class DBUtil {
     /**
      * Establishes and returns a connection to the configured database.
      * Requires that dbName was previously set in configureConnection or setDatabaseNameAndFinalizeConfiguration.
+     * If a {@link UnitOfWork} is active on the current thread, the connection bound to it is returned instead,
+     * so all calls made while handling one request share a connection and a transaction.
      *
      * @return A Connection object to the specific database.
      * @throws SQLException if a database access error occurs.
@@ -78,7 +110,157 @@ public class DBUtil {
         if (currentJdbcUrl == null || currentJdbcUrl.trim().isEmpty() || !currentJdbcUrl.contains("/" + dbName)) {
              throw new IllegalStateException("JDBC URL is not correctly set for the database: " + dbName);
         }
-        return DriverManager.getConnection(currentJdbcUrl, dbUser, dbPassword);
+        if (UnitOfWork.isActive()) {
+            return UnitOfWork.currentConnection();
+        }
+        return borrowPooledConnection();
+    }
+
+    /**
+     * Borrows a connection straight from the pool, bypassing any active unit of work.
+     * Waits no longer than the current request deadline allows.
+     */
+    static Connection borrowPooledConnection() throws SQLException {
+        ConnectionPool current = getOrCreatePool();
+        if (RequestDeadline.isActive()) {
+            long remaining = RequestDeadline.remainingMillis();
+            try {
+                return current.getConnection(Math.min(POOL_BORROW_TIMEOUT_MS, remaining));
+            } catch (SQLTransientConnectionException e) {
+                if (remaining <= POOL_BORROW_TIMEOUT_MS) {
+                    RequestDeadline.markExceeded();
+                }
+                throw e;
+            }
+        }
+        return current.getConnection();
+    }
+
+    private static ConnectionPool getOrCreatePool() {
+        ConnectionPool current = pool;
+        if (current == null || current.isShutdown()) {
+            synchronized (DBUtil.class) {
+                current = pool;
+                if (current == null || current.isShutdown()) {
+                    current = new ConnectionPool("primary", currentJdbcUrl, dbUser, dbPassword,
+                            Math.min(POOL_MIN_IDLE, POOL_MAX_SIZE), POOL_MAX_SIZE,
+                            POOL_BORROW_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS, POOL_LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static synchronized void closePool() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Configures read replicas from a comma-separated list of {@code host:port} endpoints.
+     * Replicas share the primary's database name and credentials, so this must be called after the
+     * primary is fully configured. A blank list falls back to the {@code techtrove.db.replicas}
+     * system property; if that is blank too, all reads go to the primary.
+     */
+    public static synchronized void configureReplicas(String endpoints) {
+        closeReplicas();
+        if (endpoints == null || endpoints.trim().isEmpty()) {
+            endpoints = System.getProperty("techtrove.db.replicas", "");
+        }
+        if (endpoints.trim().isEmpty()) {
+            return;
+        }
+        if (!isConfigured()) {
+            throw new IllegalStateException("Configure the primary database before adding read replicas.");
+        }
+        List<ConnectionPool> replicaPools = new ArrayList<>();
+        for (String endpoint : endpoints.split(",")) {
+            endpoint = endpoint.trim();
+            if (endpoint.isEmpty()) {
+                continue;
+            }
+            int colon = endpoint.lastIndexOf(':');
+            String host = (colon > 0) ? endpoint.substring(0, colon) : endpoint;
+            String port = (colon > 0) ? endpoint.substring(colon + 1) : "3306";
+            String url = String.format(DB_URL_TEMPLATE, host, port, dbName);
+            replicaPools.add(new ConnectionPool("replica-" + host + ":" + port, url, dbUser, dbPassword,
+                    0, REPLICA_POOL_MAX_SIZE, POOL_BORROW_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS,
+                    POOL_LEAK_THRESHOLD_MS, STATEMENT_CACHE_SIZE));
+        }
+        if (!replicaPools.isEmpty()) {
+            replicaRouter = new ReplicaRouter(replicaPools, REPLICA_MAX_LAG_SECONDS);
+        }
+    }
+
+    private static synchronized void closeReplicas() {
+        if (replicaRouter != null) {
+            replicaRouter.shutdown();
+            replicaRouter = null;
+        }
+    }
+
+    /**
+     * Returns a connection for read-only queries that tolerate slight replication lag.
+     *
+     * Reads go to a healthy replica when replicas are configured. They stay on the primary when:
+     * the current unit of work already holds a connection (so a request sees its own writes),
+     * primary reads were requested for this thread (read-your-writes after a user's own changes),
+     * or no replica is available.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        ReplicaRouter router = replicaRouter;
+        if (router == null || Boolean.TRUE.equals(primaryReadsOnly.get()) || UnitOfWork.hasBoundConnection()) {
+            return getConnection();
+        }
+        Connection replicaConnection = router.borrowReadConnection();
+        return (replicaConnection != null) ? replicaConnection : getConnection();
+    }
+
+    /**
+     * Forces (or stops forcing) getReadConnection() on the current thread to use the primary.
+     */
+    public static void setPrimaryReadsOnly(boolean primaryOnly) {
+        if (primaryOnly) {
+            primaryReadsOnly.set(Boolean.TRUE);
+        } else {
+            primaryReadsOnly.remove();
+        }
+    }
+
+    static boolean isPrimaryReadsOnly() {
+        return Boolean.TRUE.equals(primaryReadsOnly.get());
+    }
+
+    /**
+     * How long after a user's own write their reads should stay on the primary.
+     */
+    public static long getReadYourWritesWindowMillis() {
+        return READ_YOUR_WRITES_WINDOW_MS;
+    }
+
+    public static List<ConnectionPool.Stats> getReplicaStats() {
+        ReplicaRouter router = replicaRouter;
+        return (router != null) ? router.getStats() : Collections.<ConnectionPool.Stats>emptyList();
+    }
+
+    /**
+     * Returns a snapshot of the connection pool counters, or null if no pool has been created yet.
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        ConnectionPool current = pool;
+        return (current != null) ? current.getStats() : null;
+    }
+
+    /**
+     * Releases all pooled connections. Called when the application is undeployed.
+     */
+    public static void shutdown() {
+        ExplainCapture.shutdown();
+        closeReplicas();
+        closePool();
     }
 
     /**
@@ -115,6 +297,8 @@ public class DBUtil {
      * Resets all stored DBUtil configuration parameters.
      */
     public static void resetConfiguration() {
+        closeReplicas();
+        closePool();
         configured = false;
         currentJdbcUrl = "";
         dbHost = null;
@@ -141,6 +325,7 @@ public class DBUtil {
         dbName = name.trim();
 
         if (dbHost != null && dbPort != null) {
+             closePool();
              currentJdbcUrl = String.format(DB_URL_TEMPLATE, dbHost, dbPort, dbName);
              configured = true; // Ensures it's marked as fully configured now
              System.out.println("DBUtil configuration finalized for database: " + currentJdbcUrl);
@@ -22,123 +22,11 @@ public class DatabaseInitializer {
             System.out.println("DatabaseInitializer: DBUtil not configured. Skipping schema creation.");
             throw new IllegalStateException("Database connection is not configured. Cannot initialize schema.");
         }
-        System.out.println("DatabaseInitializer: Initializing database schema (creating tables if they don't exist)...");
-
-
-        String[] createTableSQLs = {
-            // ... (Users, Admins, Categories tables remain the same) ...
-            "CREATE TABLE IF NOT EXISTS Users (" +
-            "    UserID VARCHAR(50) PRIMARY KEY," +
-            "    FullName VARCHAR(100) NOT NULL," +
-            "    Email VARCHAR(100) NOT NULL UNIQUE," +
-            "    Password VARCHAR(255) NOT NULL," +
-            "    PhoneNumber VARCHAR(20)," +
-            "    Address TEXT," +
-            "    Role VARCHAR(20) NOT NULL CHECK (Role IN ('USER', 'ADMIN'))," +
-            "    RegistrationDate DATETIME NOT NULL," +
-            "    ProfilePictureURL VARCHAR(255)" + // This is for User profile, can remain if desired, or be removed too
-            ")",
-
-            "CREATE TABLE IF NOT EXISTS Admins (" +
-            "    AdminID VARCHAR(50) PRIMARY KEY," +
-            "    UserID VARCHAR(50) NOT NULL UNIQUE," +
-            "    Permissions TEXT," +
-            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE CASCADE" +
-            ")",
-
-            "CREATE TABLE IF NOT EXISTS Categories (" +
-            "    CategoryID VARCHAR(50) PRIMARY KEY," +
-            "    Name VARCHAR(100) NOT NULL UNIQUE" +
-            ")",
-
-            // Products Table - REMOVE ImageURL
-            "CREATE TABLE IF NOT EXISTS Products (" +
-            "    ProductID VARCHAR(50) PRIMARY KEY," +
-            "    Name VARCHAR(255) NOT NULL," +
-            "    Brand VARCHAR(100)," +
-            "    Model VARCHAR(100)," +
-            "    Description TEXT," +
-            "    Price DECIMAL(10, 2) NOT NULL CHECK (Price >= 0)," +
-            "    Stock INT NOT NULL CHECK (Stock >= 0)," +
-            "    ManufactureDate DATE," +
-            "    CategoryID VARCHAR(50)," +
-            // "    ImageURL VARCHAR(255)," + // REMOVED
-            "    FOREIGN KEY (CategoryID) REFERENCES Categories(CategoryID) ON DELETE SET NULL" +
-            ")",
-
-            // ... (Cart, Orders, OrderDetails, Feedback, Payments, PurchaseHistory tables remain the same) ...
-            "CREATE TABLE IF NOT EXISTS Cart (" +
-            "    CartID VARCHAR(50) PRIMARY KEY," +
-            "    UserID VARCHAR(50) NOT NULL," +
-            "    ProductID VARCHAR(50) NOT NULL," +
-            "    Quantity INT NOT NULL CHECK (Quantity > 0)," +
-            "    AddedDate DATETIME DEFAULT CURRENT_TIMESTAMP," +
-            "    UNIQUE (UserID, ProductID)," +
-            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE CASCADE," +
-            "    FOREIGN KEY (ProductID) REFERENCES Products(ProductID) ON DELETE CASCADE" +
-            ")",
-
-            "CREATE TABLE IF NOT EXISTS Orders (" +
-            "    OrderID VARCHAR(50) PRIMARY KEY," +
-            "    UserID VARCHAR(50)," +
-            "    OrderDate DATETIME NOT NULL," +
-            "    TotalAmount DECIMAL(12, 2) NOT NULL CHECK (TotalAmount >= 0)," +
-            "    ShippingAddress TEXT," +
-            "    OrderStatus VARCHAR(50) DEFAULT 'PENDING'," +
-            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE SET NULL" +
-            ")",
-
-            "CREATE TABLE IF NOT EXISTS OrderDetails (" +
-            "    OrderDetailID VARCHAR(50) PRIMARY KEY," +
-            "    OrderID VARCHAR(50) NOT NULL," +
-            "    ProductID VARCHAR(50)," +
-            "    ProductName VARCHAR(255) NOT NULL," +
-            "    Quantity INT NOT NULL CHECK (Quantity > 0)," +
-            "    PriceAtOrder DECIMAL(10, 2) NOT NULL CHECK (PriceAtOrder >= 0)," +
-            "    FOREIGN KEY (OrderID) REFERENCES Orders(OrderID) ON DELETE CASCADE," +
-            "    FOREIGN KEY (ProductID) REFERENCES Products(ProductID) ON DELETE SET NULL" +
-            ")",
-
-            "CREATE TABLE IF NOT EXISTS Feedback (" +
-            "    FeedbackID VARCHAR(50) PRIMARY KEY," +
-            "    UserID VARCHAR(50)," +
-            "    ProductID VARCHAR(50)," +
-            "    Message TEXT," +
-            "    Rating INT NOT NULL CHECK (Rating >= 1 AND Rating <= 5)," +
-            "    Timestamp DATETIME NOT NULL," +
-            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE SET NULL," +
-            "    FOREIGN KEY (ProductID) REFERENCES Products(ProductID) ON DELETE SET NULL" +
-            ")",
-
-            "CREATE TABLE IF NOT EXISTS Payments (" +
-            "    PaymentID VARCHAR(50) PRIMARY KEY," +
-            "    OrderID VARCHAR(50) NOT NULL," +
-            "    PaymentMethod VARCHAR(100)," +
-            "    TransactionID VARCHAR(255)," +
-            "    PaymentDate DATETIME NOT NULL," +
-            "    Status VARCHAR(50) NOT NULL," +
-            "    FOREIGN KEY (OrderID) REFERENCES Orders(OrderID) ON DELETE CASCADE" +
-            ")",
-            
-            "CREATE TABLE IF NOT EXISTS PurchaseHistory (" +
-            "   HistoryID VARCHAR(50) PRIMARY KEY, " +
-            "   UserID VARCHAR(50), " +
-            "   OrderID VARCHAR(50) NOT NULL, " +
-            "   PurchaseDate DATETIME NOT NULL, " +
-            "   FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE SET NULL, " +
-            "   FOREIGN KEY (OrderID) REFERENCES Orders(OrderID) ON DELETE CASCADE" +
-            ")"
-        };
-
-        // ... (try-catch block for executing SQLs remains the same) ...
-        try (Connection conn = DBUtil.getConnection();
-             Statement stmt = conn.createStatement()) {
-            for (String sql : createTableSQLs) {
-                stmt.executeUpdate(sql);
-            }
-            System.out.println("Database schema initialization: Tables created/verified successfully.");
-            initializeSampleData(conn); 
+        System.out.println("DatabaseInitializer: Initializing database schema (applying pending migrations)...");
 
+        // Tables, indexes and sample data are versioned migrations; see SchemaMigrator
+        try {
+            SchemaMigrator.migrate();
         } catch (SQLException e) {
             System.err.println("Database schema initialization FAILED: " + e.getMessage());
             e.printStackTrace();
@@ -159,6 +47,20 @@ public class DatabaseInitializer {
     } 
 
     public static void initializeSampleData(Connection conn) {
+        try {
+            seedSampleData(conn);
+        } catch (SQLException e) {
+            // Already logged and rolled back
+        }
+    }
+
+    /**
+     * Inserts the sample catalog and demo accounts in one transaction, unless they already exist.
+     * Applied as schema migration V3.
+     *
+     * @throws SQLException if seeding failed; the transaction has been rolled back.
+     */
+    static void seedSampleData(Connection conn) throws SQLException {
         // ... (try-catch structure, sampleDataExists check, category creation remain the same) ...
         System.out.println("DatabaseInitializer: Checking and initializing sample data if needed...");
         boolean originalAutoCommit = false;
@@ -219,6 +121,7 @@ public class DatabaseInitializer {
             } catch (SQLException ex) {
                 System.err.println("DatabaseInitializer: Error rolling back transaction: " + ex.getMessage());
             }
+            throw e;
         } finally {
              try {
                 if (conn != null) {
@@ -0,0 +1,152 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captures the execution plan of slow SELECT statements in the background.
+ *
+ * When an execution crosses the slow-query threshold, {@link InstrumentedStatement} asks for a plan.
+ * At most once per statement per {@code techtrove.db.explainIntervalMs} (default 5 minutes), a single
+ * daemon worker runs {@code EXPLAIN} on the same SQL with the same bound parameters and stores the
+ * result, plus a short list of findings (full scans, filesort, temporary tables), on the statement's
+ * {@link QueryMetrics.StatementStats}. Requests that arrive while the worker is busy are dropped; the
+ * request thread never waits for a plan.
+ */
+final class ExplainCapture {
+
+    private static final long INTERVAL_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("techtrove.db.explainIntervalMs", 300_000L));
+
+    private static final ThreadPoolExecutor WORKER = new ThreadPoolExecutor(
+            1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(8), r -> {
+                Thread t = new Thread(r, "ExplainCapture");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private ExplainCapture() {
+    }
+
+    /**
+     * Schedules an EXPLAIN for {@code sql} unless one ran for this statement within the interval.
+     */
+    static void requestPlan(QueryMetrics.StatementStats stats, String sql, Object[] params, int paramCount) {
+        if (!isExplainable(sql) || !stats.tryClaimExplain(System.nanoTime(), INTERVAL_NANOS)) {
+            return;
+        }
+        final Object[] boundParams = new Object[paramCount];
+        for (int i = 1; i <= paramCount && params != null && i < params.length; i++) {
+            boundParams[i - 1] = params[i];
+        }
+        try {
+            WORKER.execute(() -> capture(stats, sql, boundParams));
+        } catch (RejectedExecutionException e) {
+            // Worker shut down; plans are best-effort
+        }
+    }
+
+    private static boolean isExplainable(String sql) {
+        return sql != null && sql.trim().regionMatches(true, 0, "SELECT", 0, 6);
+    }
+
+    private static void capture(QueryMetrics.StatementStats stats, String sql, Object[] params) {
+        // Not inside a unit of work on this thread, so this borrows its own pooled connection
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                describePlan(stats, rs);
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("ExplainCapture: Could not explain \"" + stats.getSql() + "\": " + e.getMessage());
+        }
+    }
+
+    private static void describePlan(QueryMetrics.StatementStats stats, ResultSet rs) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columns = meta.getColumnCount();
+        List<String[]> rows = new ArrayList<>();
+        String[] header = new String[columns];
+        for (int c = 1; c <= columns; c++) {
+            header[c - 1] = meta.getColumnLabel(c);
+        }
+        rows.add(header);
+
+        Set<String> findings = new LinkedHashSet<>();
+        while (rs.next()) {
+            String[] row = new String[columns];
+            for (int c = 1; c <= columns; c++) {
+                String value = rs.getString(c);
+                row[c - 1] = (value == null) ? "NULL" : value;
+            }
+            rows.add(row);
+
+            String table = safeGet(rs, "table");
+            String type = safeGet(rs, "type");
+            String extra = safeGet(rs, "Extra");
+            if ("ALL".equalsIgnoreCase(type)) {
+                findings.add("Full table scan on " + table + " (rows ~" + safeGet(rs, "rows") + ")");
+            } else if ("index".equalsIgnoreCase(type)) {
+                findings.add("Full index scan on " + table);
+            }
+            if (extra != null) {
+                String lower = extra.toLowerCase(Locale.ROOT);
+                if (lower.contains("using filesort")) {
+                    findings.add("Filesort on " + table);
+                }
+                if (lower.contains("using temporary")) {
+                    findings.add("Temporary table for " + table);
+                }
+            }
+        }
+        stats.setExplainPlan(formatTable(rows), new ArrayList<>(findings));
+    }
+
+    private static String safeGet(ResultSet rs, String column) {
+        try {
+            return rs.getString(column);
+        } catch (SQLException e) {
+            return null; // Column not present in this server's EXPLAIN format
+        }
+    }
+
+    private static String formatTable(List<String[]> rows) {
+        int columns = rows.get(0).length;
+        int[] widths = new int[columns];
+        for (String[] row : rows) {
+            for (int c = 0; c < columns; c++) {
+                widths[c] = Math.max(widths[c], row[c].length());
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String[] row : rows) {
+            for (int c = 0; c < columns; c++) {
+                sb.append(String.format("%-" + widths[c] + "s", row[c]));
+                if (c < columns - 1) {
+                    sb.append(" | ");
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static void shutdown() {
+        WORKER.shutdownNow();
+    }
+}
@@ -0,0 +1,165 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * Wraps statements handed out by the connection pool so that every execution is timed and recorded
+ * in {@link QueryMetrics}.
+ *
+ * For prepared statements the bound parameters are captured from the {@code setXxx} calls so a slow
+ * execution can be logged with them (redacted). Result sets returned by {@code executeQuery} are
+ * wrapped to count the rows the caller actually reads. When a {@link RequestDeadline} is active, each
+ * execution gets a query timeout derived from the time remaining.
+ */
+final class InstrumentedStatement implements InvocationHandler {
+
+    private final Statement target;
+    private final String preparedSql; // null for plain statements; the SQL arrives with each execute call
+    private final Connection owner;
+    private Object[] params;
+    private int paramCount;
+
+    private InstrumentedStatement(Statement target, String preparedSql, Connection owner) {
+        this.target = target;
+        this.preparedSql = preparedSql;
+        this.owner = owner;
+    }
+
+    static Statement wrap(Statement target, String preparedSql, Connection owner) {
+        Class<?> type = (target instanceof CallableStatement) ? CallableStatement.class
+                : (target instanceof PreparedStatement) ? PreparedStatement.class
+                : Statement.class;
+        return (Statement) Proxy.newProxyInstance(
+                InstrumentedStatement.class.getClassLoader(),
+                new Class<?>[]{type},
+                new InstrumentedStatement(target, preparedSql, owner));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "getConnection":
+                return owner;
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "clearParameters":
+                paramCount = 0;
+                break;
+            case "execute":
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+            case "executeBatch":
+            case "executeLargeBatch":
+                return timedExecute(proxy, method, args);
+            default:
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                        && preparedSql != null) {
+                    captureParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                }
+                break;
+        }
+        return invokeTarget(method, args);
+    }
+
+    private Object timedExecute(Object proxy, Method method, Object[] args) throws Throwable {
+        String sql = (args != null && args.length > 0 && args[0] instanceof String) ? (String) args[0] : preparedSql;
+        if (sql == null) {
+            sql = "<batch>";
+        }
+        QueryMetrics.StatementStats stats = QueryMetrics.statsFor(sql);
+        if (RequestDeadline.isActive()) {
+            target.setQueryTimeout(RequestDeadline.queryTimeoutSeconds());
+        }
+        boolean failed = true;
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invokeTarget(method, args);
+            failed = false;
+        } catch (SQLTimeoutException e) {
+            RequestDeadline.markExceeded();
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            stats.record(elapsed, failed);
+            if (QueryMetrics.isSlow(elapsed)) {
+                QueryMetrics.logSlowQuery(sql, elapsed, params, paramCount);
+                if (!failed) {
+                    ExplainCapture.requestPlan(stats, sql, params, paramCount);
+                }
+            }
+        }
+        if (result instanceof ResultSet) {
+            return countingResultSet((ResultSet) result, stats, (Statement) proxy);
+        }
+        if (result instanceof Integer || result instanceof Long) {
+            stats.addRowsAffected(Math.max(0L, ((Number) result).longValue()));
+        } else if (result instanceof int[]) {
+            for (int count : (int[]) result) {
+                stats.addRowsAffected(Math.max(0, count));
+            }
+        }
+        return result;
+    }
+
+    private void captureParameter(int index, Object value) {
+        if (params == null) {
+            params = new Object[Math.max(8, index + 1)];
+        } else if (index >= params.length) {
+            params = Arrays.copyOf(params, Math.max(params.length * 2, index + 1));
+        }
+        params[index] = value;
+        paramCount = Math.max(paramCount, index);
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static ResultSet countingResultSet(final ResultSet rs, final QueryMetrics.StatementStats stats,
+                                               final Statement statement) {
+        return (ResultSet) Proxy.newProxyInstance(
+                InstrumentedStatement.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getStatement":
+                            return statement;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(rs, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                        stats.addRowsReturned(1);
+                    }
+                    return result;
+                });
+    }
+}
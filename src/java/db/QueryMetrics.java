@@ -0,0 +1,275 @@
+package db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Per-statement timing statistics for every SQL statement executed through the connection pool.
+ *
+ * Statements are grouped by normalized SQL text (literals replaced by {@code ?}, whitespace collapsed,
+ * IN-lists folded), and for each group we keep the call count, error count, rows returned/affected and a
+ * fixed-bucket latency histogram from which p50/p95/p99 are estimated.
+ *
+ * Executions slower than the slow-query threshold are logged together with their bound parameters in
+ * redacted form. The threshold defaults to {@code techtrove.db.slowQueryMs} (500 ms) and can be changed at
+ * runtime with {@link #setSlowQueryThresholdMillis(long)}. Slow SELECTs also get their execution plan
+ * captured in the background (see {@link ExplainCapture}).
+ */
+public class QueryMetrics {
+
+    // Histogram bucket upper bounds in microseconds (1-2.5-5 series from 50us to 10s); last bucket is unbounded
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+            50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private static final int MAX_TRACKED_STATEMENTS = 500;
+    private static final int MAX_NORMALIZATION_CACHE = 2000;
+    private static final String OVERFLOW_KEY = "<other statements>";
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final ConcurrentHashMap<String, StatementStats> STATS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, String> NORMALIZED = new ConcurrentHashMap<>();
+    private static volatile long slowQueryThresholdNanos =
+            Long.getLong("techtrove.db.slowQueryMs", 500L) * 1_000_000L;
+
+    private QueryMetrics() {
+    }
+
+    /**
+     * Returns the stats bucket for a SQL text, creating it on first use.
+     */
+    static StatementStats statsFor(String sql) {
+        String key = normalize(sql);
+        StatementStats stats = STATS.get(key);
+        if (stats == null) {
+            if (STATS.size() >= MAX_TRACKED_STATEMENTS) {
+                key = OVERFLOW_KEY;
+            }
+            stats = STATS.computeIfAbsent(key, StatementStats::new);
+        }
+        return stats;
+    }
+
+    /**
+     * Normalizes a SQL text so that executions differing only in literals share one stats entry.
+     */
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "<unknown>";
+        }
+        String cached = NORMALIZED.get(sql);
+        if (cached != null) {
+            return cached;
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?+)");
+        if (NORMALIZED.size() < MAX_NORMALIZATION_CACHE) {
+            NORMALIZED.put(sql, normalized);
+        }
+        return normalized;
+    }
+
+    static boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= slowQueryThresholdNanos;
+    }
+
+    static void logSlowQuery(String sql, long elapsedNanos, Object[] params, int paramCount) {
+        System.err.println("SLOW QUERY (" + (elapsedNanos / 1_000_000) + " ms): " + normalize(sql)
+                + " params=" + redact(params, paramCount));
+    }
+
+    /**
+     * Renders bound parameters without leaking their values: strings keep only their first character
+     * and length, other values keep their type (numbers and dates are shown, since they identify plan
+     * shapes but not people).
+     */
+    static String redact(Object[] params, int paramCount) {
+        if (params == null || paramCount == 0) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i <= paramCount && i < params.length; i++) {
+            if (i > 1) {
+                sb.append(", ");
+            }
+            Object value = params[i];
+            if (value == null) {
+                sb.append("NULL");
+            } else if (value instanceof CharSequence) {
+                String s = value.toString();
+                sb.append('\'').append(s.isEmpty() ? "" : s.charAt(0) + "***").append("'(len ").append(s.length()).append(')');
+            } else if (value instanceof Number || value instanceof Boolean
+                    || value instanceof java.util.Date || value instanceof java.time.temporal.Temporal) {
+                sb.append(value);
+            } else {
+                sb.append('<').append(value.getClass().getSimpleName()).append('>');
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    public static long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdNanos / 1_000_000L;
+    }
+
+    public static void setSlowQueryThresholdMillis(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Slow query threshold cannot be negative.");
+        }
+        slowQueryThresholdNanos = millis * 1_000_000L;
+    }
+
+    /**
+     * Returns all tracked statements, most expensive (by total time) first.
+     */
+    public static List<StatementStats> getSnapshot() {
+        List<StatementStats> list = new ArrayList<>(STATS.values());
+        Collections.sort(list, Comparator.comparingLong(StatementStats::getTotalNanos).reversed());
+        return list;
+    }
+
+    public static void reset() {
+        STATS.clear();
+    }
+
+    private static int bucketFor(long elapsedNanos) {
+        long micros = elapsedNanos / 1_000L;
+        for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+            if (micros <= BUCKET_BOUNDS_MICROS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS_MICROS.length;
+    }
+
+    /**
+     * Aggregated statistics for one normalized SQL statement.
+     */
+    public static class StatementStats {
+        private final String sql;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rowsReturned = new LongAdder();
+        private final LongAdder rowsAffected = new LongAdder();
+        private final LongAdder slowCalls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+        private final AtomicLong lastExplainNanos = new AtomicLong(Long.MIN_VALUE);
+        private volatile String explainPlan;
+        private volatile List<String> explainFindings = Collections.emptyList();
+        private volatile long explainCapturedAtMillis;
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        void record(long elapsedNanos, boolean failed) {
+            calls.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            histogram.incrementAndGet(bucketFor(elapsedNanos));
+            if (failed) {
+                errors.increment();
+            }
+            if (isSlow(elapsedNanos)) {
+                slowCalls.increment();
+            }
+        }
+
+        void addRowsReturned(long rows) {
+            rowsReturned.add(rows);
+        }
+
+        void addRowsAffected(long rows) {
+            rowsAffected.add(rows);
+        }
+
+        /**
+         * Returns true for exactly one caller per interval, so a statement is explained at most once per interval.
+         */
+        boolean tryClaimExplain(long nowNanos, long intervalNanos) {
+            long last = lastExplainNanos.get();
+            if (last != Long.MIN_VALUE && nowNanos - last < intervalNanos) {
+                return false;
+            }
+            return lastExplainNanos.compareAndSet(last, nowNanos);
+        }
+
+        void setExplainPlan(String plan, List<String> findings) {
+            this.explainFindings = Collections.unmodifiableList(findings);
+            this.explainPlan = plan;
+            this.explainCapturedAtMillis = System.currentTimeMillis();
+        }
+
+        public String getSql() { return sql; }
+        public long getCalls() { return calls.sum(); }
+        public long getErrors() { return errors.sum(); }
+        public long getRowsReturned() { return rowsReturned.sum(); }
+        public long getRowsAffected() { return rowsAffected.sum(); }
+        public long getSlowCalls() { return slowCalls.sum(); }
+        public long getTotalNanos() { return totalNanos.sum(); }
+        public double getTotalMillis() { return totalNanos.sum() / 1_000_000.0; }
+        public double getMaxMillis() { return maxNanos.get() / 1_000_000.0; }
+        public String getExplainPlan() { return explainPlan; }
+        public List<String> getExplainFindings() { return explainFindings; }
+        public long getExplainCapturedAtMillis() { return explainCapturedAtMillis; }
+
+        public double getMeanMillis() {
+            long n = calls.sum();
+            return (n == 0) ? 0.0 : totalNanos.sum() / (double) n / 1_000_000.0;
+        }
+
+        public double getP50Millis() { return percentileMillis(0.50); }
+        public double getP95Millis() { return percentileMillis(0.95); }
+        public double getP99Millis() { return percentileMillis(0.99); }
+
+        /**
+         * Estimates a percentile as the upper bound of the histogram bucket it falls in
+         * (capped at the observed maximum).
+         */
+        public double percentileMillis(double percentile) {
+            long total = 0;
+            long[] counts = new long[histogram.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0.0;
+            }
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    double upperMillis = (i < BUCKET_BOUNDS_MICROS.length)
+                            ? BUCKET_BOUNDS_MICROS[i] / 1_000.0
+                            : Double.MAX_VALUE;
+                    return Math.min(upperMillis, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s calls=%d errors=%d rows=%d p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+                    sql, getCalls(), getErrors(), getRowsReturned(), getP50Millis(), getP95Millis(), getP99Millis(), getMaxMillis());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only queries across a set of read replicas.
+ *
+ * Each replica gets its own {@link ConnectionPool}. Reads are spread round-robin over the replicas
+ * currently marked healthy. A background health check pings every replica and, where the account
+ * has the privilege to ask, takes replicas whose replication lag exceeds {@code maxLagSeconds} out
+ * of rotation until they catch up. A replica that fails to hand out a connection is marked
+ * unhealthy immediately and the next one is tried.
+ *
+ * Callers fall back to the primary when no replica is available; see {@link DBUtil#getReadConnection()}.
+ */
+public class ReplicaRouter {
+
+    private static final long HEALTH_CHECK_PERIOD_SECONDS = 5;
+    private static final long REPLICA_BORROW_TIMEOUT_MS = 1000;
+
+    private final List<Replica> replicas;
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final long maxLagSeconds;
+    private final ScheduledExecutorService healthChecker;
+
+    ReplicaRouter(List<ConnectionPool> replicaPools, long maxLagSeconds) {
+        List<Replica> list = new ArrayList<>();
+        for (ConnectionPool replicaPool : replicaPools) {
+            list.add(new Replica(replicaPool));
+        }
+        this.replicas = Collections.unmodifiableList(list);
+        this.maxLagSeconds = maxLagSeconds;
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ReplicaRouter-health-check");
+            t.setDaemon(true);
+            return t;
+        });
+        this.healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, HEALTH_CHECK_PERIOD_SECONDS, TimeUnit.SECONDS);
+        System.out.println("ReplicaRouter: Routing reads across " + replicas.size() + " replica(s).");
+    }
+
+    /**
+     * Borrows a connection from the next healthy replica, or returns null if none could provide one.
+     */
+    Connection borrowReadConnection() {
+        int count = replicas.size();
+        int start = Math.floorMod(nextIndex.getAndIncrement(), count);
+        for (int i = 0; i < count; i++) {
+            Replica replica = replicas.get((start + i) % count);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.pool.getConnection(REPLICA_BORROW_TIMEOUT_MS);
+            } catch (SQLException e) {
+                replica.markUnhealthy("borrow failed: " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    private void checkHealth() {
+        for (Replica replica : replicas) {
+            try (Connection conn = replica.pool.getConnection(REPLICA_BORROW_TIMEOUT_MS)) {
+                long lag = replicationLagSeconds(conn);
+                if (lag > maxLagSeconds) {
+                    replica.markUnhealthy("replication lag " + lag + "s exceeds " + maxLagSeconds + "s");
+                } else {
+                    replica.markHealthy();
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.markUnhealthy("health check failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the replica's lag in seconds, 0 if it cannot be determined (e.g. missing REPLICATION CLIENT
+     * privilege or a plain standalone server used as a stand-in replica).
+     */
+    private static long replicationLagSeconds(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+            if (rs.next()) {
+                long lag = rs.getLong("Seconds_Behind_Source");
+                return rs.wasNull() ? Long.MAX_VALUE : lag; // NULL means replication is not running
+            }
+            return 0;
+        } catch (SQLException e) {
+            if (!conn.isValid(2)) {
+                throw e;
+            }
+            return 0;
+        }
+    }
+
+    void shutdown() {
+        healthChecker.shutdownNow();
+        for (Replica replica : replicas) {
+            replica.pool.shutdown();
+        }
+    }
+
+    List<ConnectionPool.Stats> getStats() {
+        List<ConnectionPool.Stats> stats = new ArrayList<>();
+        for (Replica replica : replicas) {
+            stats.add(replica.pool.getStats());
+        }
+        return stats;
+    }
+
+    int getHealthyCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    private static class Replica {
+        final ConnectionPool pool;
+        volatile boolean healthy = true;
+
+        Replica(ConnectionPool pool) {
+            this.pool = pool;
+        }
+
+        void markUnhealthy(String reason) {
+            if (healthy) {
+                System.err.println("ReplicaRouter: Taking " + pool.getJdbcUrl() + " out of rotation (" + reason + ").");
+            }
+            healthy = false;
+        }
+
+        void markHealthy() {
+            if (!healthy) {
+                System.out.println("ReplicaRouter: " + pool.getJdbcUrl() + " is healthy again.");
+            }
+            healthy = true;
+        }
+    }
+}
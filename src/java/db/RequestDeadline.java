@@ -0,0 +1,91 @@
+package db;
+
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread-bound deadline for the request currently being handled.
+ *
+ * While a deadline is active, every statement executed through the pool gets a query timeout equal
+ * to the remaining budget (rounded up to whole seconds, the JDBC granularity), and borrowing a pooled
+ * connection waits no longer than the remaining budget. Once the deadline has passed, further
+ * statements fail immediately with a {@link SQLTimeoutException} instead of starting.
+ *
+ * The deadline is set by {@code app.filters.RequestDeadlineFilter}; threads without one (background
+ * jobs, health checks) are unaffected.
+ */
+public final class RequestDeadline {
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+    private boolean exceeded = false;
+
+    private RequestDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Starts a deadline {@code budgetMillis} from now on the current thread.
+     */
+    public static void start(long budgetMillis) {
+        CURRENT.set(new RequestDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis)));
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * True if a database call on this thread was refused or timed out because of the deadline.
+     */
+    public static boolean isExceeded() {
+        RequestDeadline current = CURRENT.get();
+        return current != null && current.exceeded;
+    }
+
+    /**
+     * Records that a database call on this thread ran out of budget.
+     */
+    static void markExceeded() {
+        RequestDeadline current = CURRENT.get();
+        if (current != null) {
+            current.exceeded = true;
+        }
+    }
+
+    /**
+     * Returns the milliseconds left before the deadline, or {@code Long.MAX_VALUE} if no deadline is active.
+     *
+     * @throws SQLTimeoutException if the deadline has already passed.
+     */
+    static long remainingMillis() throws SQLTimeoutException {
+        RequestDeadline current = CURRENT.get();
+        if (current == null) {
+            return Long.MAX_VALUE;
+        }
+        long remainingNanos = current.deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            current.exceeded = true;
+            throw new SQLTimeoutException("Request deadline exceeded; database call not started.", "HYT00");
+        }
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remainingNanos));
+    }
+
+    /**
+     * Returns the query timeout to apply to the next statement, in seconds (0 meaning none).
+     *
+     * @throws SQLTimeoutException if the deadline has already passed.
+     */
+    static int queryTimeoutSeconds() throws SQLTimeoutException {
+        long remaining = remainingMillis();
+        if (remaining == Long.MAX_VALUE) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+    }
+}
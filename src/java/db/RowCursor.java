@@ -0,0 +1,158 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A closeable, forward-only iterator over the rows of a query, mapping one row at a time.
+ *
+ * The statement is executed with a positive fetch size, and the connection URL sets
+ * {@code useCursorFetch=true}, so MySQL keeps the result set in a server-side cursor and sends
+ * {@code fetchSize} rows per round trip. Memory use therefore stays bounded however many rows the
+ * query returns. Unlike a fully streamed result set, a cursor does not block other statements on the same
+ * connection, so code that iterates the cursor can still run queries (e.g. inside a unit of work).
+ *
+ * The cursor owns its connection, statement and result set, and must be closed; use try-with-resources
+ * or close it in a {@code finally} block after rendering. Database errors during iteration are rethrown
+ * as {@link CursorException}.
+ */
+public class RowCursor<T> implements Iterator<T>, AutoCloseable {
+
+    public static final int DEFAULT_FETCH_SIZE = Integer.getInteger("techtrove.db.cursorFetchSize", 500);
+
+    /**
+     * Maps the row the result set is positioned on.
+     */
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private final Connection conn;
+    private final PreparedStatement pstmt;
+    private final ResultSet rs;
+    private final RowMapper<T> mapper;
+    private boolean positioned = false; // rs is on a row not yet returned by next()
+    private boolean exhausted = false;
+    private boolean closed = false;
+    private long rowCount = 0;
+
+    private RowCursor(Connection conn, PreparedStatement pstmt, ResultSet rs, RowMapper<T> mapper) {
+        this.conn = conn;
+        this.pstmt = pstmt;
+        this.rs = rs;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Executes {@code sql} on {@code conn} and returns a cursor over its rows. The cursor takes ownership
+     * of {@code conn}: it is closed when the cursor is closed, or immediately if the query fails.
+     */
+    public static <T> RowCursor<T> open(Connection conn, String sql, int fetchSize, RowMapper<T> mapper,
+                                        Object... params) throws SQLException {
+        PreparedStatement pstmt = null;
+        try {
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            ResultSet rs = pstmt.executeQuery();
+            return new RowCursor<>(conn, pstmt, rs, mapper);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(pstmt, conn);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (positioned) {
+            return true;
+        }
+        if (exhausted || closed) {
+            return false;
+        }
+        try {
+            positioned = rs.next();
+        } catch (SQLException e) {
+            throw new CursorException(e);
+        }
+        exhausted = !positioned;
+        return positioned;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        positioned = false;
+        rowCount++;
+        try {
+            return mapper.map(rs);
+        } catch (SQLException e) {
+            throw new CursorException(e);
+        }
+    }
+
+    /**
+     * Number of rows returned by {@link #next()} so far.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * The connection the cursor reads from, for follow-up queries made while iterating.
+     */
+    public Connection getConnection() {
+        return conn;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            rs.close();
+        } catch (SQLException e) {
+            System.err.println("RowCursor: Error closing result set: " + e.getMessage());
+        }
+        closeQuietly(pstmt, conn);
+    }
+
+    private static void closeQuietly(PreparedStatement pstmt, Connection conn) {
+        if (pstmt != null) {
+            try {
+                pstmt.close();
+            } catch (SQLException e) {
+                System.err.println("RowCursor: Error closing statement: " + e.getMessage());
+            }
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("RowCursor: Error closing connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A database error raised while iterating a cursor.
+     */
+    public static class CursorException extends RuntimeException {
+        public CursorException(SQLException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+}
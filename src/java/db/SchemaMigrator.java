@@ -0,0 +1,344 @@
+package db;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned schema migrations with a checksummed history table.
+ *
+ * Each {@link Migration} has a version, a description and either a list of SQL statements or a piece of
+ * Java code. Applied versions are recorded in {@code SchemaHistory} together with a CRC32 checksum of
+ * their content. On startup the migrator reads the history once; if every known version is recorded
+ * with a matching checksum, it returns without touching the schema. Otherwise it takes a MySQL advisory
+ * lock (so concurrently starting servers don't race), applies the missing versions in order and records
+ * each one.
+ *
+ * Applied migrations must never be edited: a checksum mismatch stops startup. Add a new version instead.
+ */
+public class SchemaMigrator {
+
+    private static final String HISTORY_TABLE = "SchemaHistory";
+    private static final String LOCK_NAME = "techtrove_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    // MySQL error codes
+    private static final int ER_NO_SUCH_TABLE = 1146;
+    private static final int ER_DUP_KEYNAME = 1061;
+    private static final int ER_DUP_FIELDNAME = 1060;
+
+    private static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            new Migration(1, "Baseline tables", baselineTables()),
+            new Migration(2, "Secondary indexes for order history, feedback, payments and product name lookups", new String[]{
+                    "CREATE INDEX idx_orders_user_date ON Orders (UserID, OrderDate)",
+                    "CREATE INDEX idx_feedback_product_time ON Feedback (ProductID, Timestamp)",
+                    "CREATE INDEX idx_payments_order_date ON Payments (OrderID, PaymentDate)",
+                    "CREATE INDEX idx_products_name ON Products (Name)"
+            }),
+            new Migration(3, "Sample catalog and demo accounts", "java:DatabaseInitializer.seedSampleData",
+                    DatabaseInitializer::seedSampleData),
+            new Migration(4, "Catalog version stamp and product change times", new String[]{
+                    "CREATE TABLE IF NOT EXISTS CatalogVersion (" +
+                    "ID TINYINT PRIMARY KEY, " +
+                    "CatalogID CHAR(36) NOT NULL, " + // Identifies this database; a snapshot file from another is ignored
+                    "Version BIGINT NOT NULL)",
+                    "INSERT IGNORE INTO CatalogVersion (ID, CatalogID, Version) VALUES (1, UUID(), 1)",
+                    "ALTER TABLE Products ADD COLUMN UpdatedAt TIMESTAMP(3) NOT NULL " +
+                    "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)",
+                    "CREATE INDEX idx_products_updated ON Products (UpdatedAt)"
+            })
+    ));
+
+    /**
+     * Code-based migration step.
+     */
+    interface MigrationStep {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * Brings the schema up to the latest version.
+     *
+     * @return the number of migrations applied (0 when the schema was already current).
+     * @throws SQLException if a migration fails, or an applied migration's checksum no longer matches.
+     */
+    public static int migrate() throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Connection conn = DBUtil.getConnection()) {
+            if (pending(readHistory(conn)).isEmpty()) {
+                System.out.println("SchemaMigrator: Schema is current at version " + latestVersion()
+                        + " (checked in " + (System.currentTimeMillis() - start) + " ms).");
+                return 0;
+            }
+
+            acquireLock(conn);
+            try {
+                createHistoryTable(conn);
+                List<Migration> pending = pending(readHistory(conn)); // Another server may have migrated meanwhile
+                for (Migration migration : pending) {
+                    apply(conn, migration);
+                }
+                System.out.println("SchemaMigrator: Applied " + pending.size() + " migration(s); schema is at version "
+                        + latestVersion() + ".");
+                return pending.size();
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Returns the applied versions and their checksums, or an empty map if the history table doesn't exist yet.
+     */
+    private static Map<Integer, Long> readHistory(Connection conn) throws SQLException {
+        Map<Integer, Long> history = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT Version, Checksum FROM " + HISTORY_TABLE)) {
+            while (rs.next()) {
+                history.put(rs.getInt("Version"), rs.getLong("Checksum"));
+            }
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_NO_SUCH_TABLE) {
+                throw e;
+            }
+        }
+        return history;
+    }
+
+    private static List<Migration> pending(Map<Integer, Long> history) throws SQLException {
+        List<Migration> pending = new ArrayList<>();
+        for (Migration migration : MIGRATIONS) {
+            Long recorded = history.get(migration.version);
+            if (recorded == null) {
+                pending.add(migration);
+            } else if (recorded != migration.checksum) {
+                throw new SQLException("Schema migration V" + migration.version + " (" + migration.description
+                        + ") was modified after it was applied (checksum " + recorded + " in " + HISTORY_TABLE
+                        + ", " + migration.checksum + " in code). Add a new migration instead of editing an applied one.");
+            }
+        }
+        return pending;
+    }
+
+    private static void createHistoryTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " (" +
+                    "    Version INT PRIMARY KEY," +
+                    "    Description VARCHAR(255) NOT NULL," +
+                    "    Checksum BIGINT NOT NULL," +
+                    "    AppliedAt DATETIME NOT NULL," +
+                    "    ExecutionMs BIGINT NOT NULL" +
+                    ")");
+        }
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        System.out.println("SchemaMigrator: Applying V" + migration.version + " - " + migration.description + "...");
+        long start = System.currentTimeMillis();
+        if (migration.step != null) {
+            migration.step.apply(conn);
+        } else {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : migration.statements) {
+                    try {
+                        stmt.executeUpdate(sql);
+                    } catch (SQLException e) {
+                        // MySQL DDL is not transactional; tolerate indexes and columns left over from a partially applied run
+                        if (e.getErrorCode() != ER_DUP_KEYNAME && e.getErrorCode() != ER_DUP_FIELDNAME) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        String sql = "INSERT INTO " + HISTORY_TABLE + " (Version, Description, Checksum, AppliedAt, ExecutionMs) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.setLong(3, migration.checksum);
+            pstmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            pstmt.setLong(5, elapsed);
+            pstmt.executeUpdate();
+        }
+        System.out.println("SchemaMigrator: V" + migration.version + " applied in " + elapsed + " ms.");
+    }
+
+    private static void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another server to finish migrating the schema.");
+                }
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("SchemaMigrator: Error releasing migration lock: " + e.getMessage());
+        }
+    }
+
+    private static long checksum(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    private static String[] baselineTables() {
+        return new String[]{
+            "CREATE TABLE IF NOT EXISTS Users (" +
+            "    UserID VARCHAR(50) PRIMARY KEY," +
+            "    FullName VARCHAR(100) NOT NULL," +
+            "    Email VARCHAR(100) NOT NULL UNIQUE," +
+            "    Password VARCHAR(255) NOT NULL," +
+            "    PhoneNumber VARCHAR(20)," +
+            "    Address TEXT," +
+            "    Role VARCHAR(20) NOT NULL CHECK (Role IN ('USER', 'ADMIN'))," +
+            "    RegistrationDate DATETIME NOT NULL," +
+            "    ProfilePictureURL VARCHAR(255)" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS Admins (" +
+            "    AdminID VARCHAR(50) PRIMARY KEY," +
+            "    UserID VARCHAR(50) NOT NULL UNIQUE," +
+            "    Permissions TEXT," +
+            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE CASCADE" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS Categories (" +
+            "    CategoryID VARCHAR(50) PRIMARY KEY," +
+            "    Name VARCHAR(100) NOT NULL UNIQUE" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS Products (" +
+            "    ProductID VARCHAR(50) PRIMARY KEY," +
+            "    Name VARCHAR(255) NOT NULL," +
+            "    Brand VARCHAR(100)," +
+            "    Model VARCHAR(100)," +
+            "    Description TEXT," +
+            "    Price DECIMAL(10, 2) NOT NULL CHECK (Price >= 0)," +
+            "    Stock INT NOT NULL CHECK (Stock >= 0)," +
+            "    ManufactureDate DATE," +
+            "    CategoryID VARCHAR(50)," +
+            "    FOREIGN KEY (CategoryID) REFERENCES Categories(CategoryID) ON DELETE SET NULL" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS Cart (" +
+            "    CartID VARCHAR(50) PRIMARY KEY," +
+            "    UserID VARCHAR(50) NOT NULL," +
+            "    ProductID VARCHAR(50) NOT NULL," +
+            "    Quantity INT NOT NULL CHECK (Quantity > 0)," +
+            "    AddedDate DATETIME DEFAULT CURRENT_TIMESTAMP," +
+            "    UNIQUE (UserID, ProductID)," +
+            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE CASCADE," +
+            "    FOREIGN KEY (ProductID) REFERENCES Products(ProductID) ON DELETE CASCADE" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS Orders (" +
+            "    OrderID VARCHAR(50) PRIMARY KEY," +
+            "    UserID VARCHAR(50)," +
+            "    OrderDate DATETIME NOT NULL," +
+            "    TotalAmount DECIMAL(12, 2) NOT NULL CHECK (TotalAmount >= 0)," +
+            "    ShippingAddress TEXT," +
+            "    OrderStatus VARCHAR(50) DEFAULT 'PENDING'," +
+            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE SET NULL" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS OrderDetails (" +
+            "    OrderDetailID VARCHAR(50) PRIMARY KEY," +
+            "    OrderID VARCHAR(50) NOT NULL," +
+            "    ProductID VARCHAR(50)," +
+            "    ProductName VARCHAR(255) NOT NULL," +
+            "    Quantity INT NOT NULL CHECK (Quantity > 0)," +
+            "    PriceAtOrder DECIMAL(10, 2) NOT NULL CHECK (PriceAtOrder >= 0)," +
+            "    FOREIGN KEY (OrderID) REFERENCES Orders(OrderID) ON DELETE CASCADE," +
+            "    FOREIGN KEY (ProductID) REFERENCES Products(ProductID) ON DELETE SET NULL" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS Feedback (" +
+            "    FeedbackID VARCHAR(50) PRIMARY KEY," +
+            "    UserID VARCHAR(50)," +
+            "    ProductID VARCHAR(50)," +
+            "    Message TEXT," +
+            "    Rating INT NOT NULL CHECK (Rating >= 1 AND Rating <= 5)," +
+            "    Timestamp DATETIME NOT NULL," +
+            "    FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE SET NULL," +
+            "    FOREIGN KEY (ProductID) REFERENCES Products(ProductID) ON DELETE SET NULL" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS Payments (" +
+            "    PaymentID VARCHAR(50) PRIMARY KEY," +
+            "    OrderID VARCHAR(50) NOT NULL," +
+            "    PaymentMethod VARCHAR(100)," +
+            "    TransactionID VARCHAR(255)," +
+            "    PaymentDate DATETIME NOT NULL," +
+            "    Status VARCHAR(50) NOT NULL," +
+            "    FOREIGN KEY (OrderID) REFERENCES Orders(OrderID) ON DELETE CASCADE" +
+            ")",
+
+            "CREATE TABLE IF NOT EXISTS PurchaseHistory (" +
+            "   HistoryID VARCHAR(50) PRIMARY KEY, " +
+            "   UserID VARCHAR(50), " +
+            "   OrderID VARCHAR(50) NOT NULL, " +
+            "   PurchaseDate DATETIME NOT NULL, " +
+            "   FOREIGN KEY (UserID) REFERENCES Users(UserID) ON DELETE SET NULL, " +
+            "   FOREIGN KEY (OrderID) REFERENCES Orders(OrderID) ON DELETE CASCADE" +
+            ")"
+        };
+    }
+
+    /**
+     * One schema version. SQL migrations are checksummed over their statements; code migrations over a
+     * descriptor that must change whenever the code's effect changes.
+     */
+    static final class Migration {
+        final int version;
+        final String description;
+        final String[] statements;
+        final MigrationStep step;
+        final long checksum;
+
+        Migration(int version, String description, String[] statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+            this.step = null;
+            this.checksum = checksum(String.join(";\n", statements));
+        }
+
+        Migration(int version, String description, String descriptor, MigrationStep step) {
+            this.version = version;
+            this.description = description;
+            this.statements = null;
+            this.step = step;
+            this.checksum = checksum(descriptor);
+        }
+    }
+}
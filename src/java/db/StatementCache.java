@@ -0,0 +1,219 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An LRU cache of prepared statements, keyed by SQL text, owned by one pooled physical connection.
+ *
+ * {@code conn.prepareStatement(sql)} on a pooled connection returns a cached statement when the same
+ * SQL was prepared before on that physical connection. Closing the returned statement clears its
+ * parameters and hands it back to the cache instead of closing it, so with server-side prepared
+ * statements enabled the server only parses and plans each statement once per connection.
+ *
+ * If the cached statement for a SQL text is already in use (e.g. nested queries), a second,
+ * uncached statement is prepared for the caller.
+ *
+ * {@code prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)} is cached too, separately from the
+ * plain statement for the same SQL.
+ */
+public class StatementCache {
+
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static final AtomicLong EVICTIONS = new AtomicLong();
+
+    private final Connection physical;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    StatementCache(Connection physical, final int maxSize) {
+        this.physical = physical;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= maxSize) {
+                    return false;
+                }
+                EVICTIONS.incrementAndGet();
+                CachedStatement evicted = eldest.getValue();
+                evicted.evicted = true;
+                if (!evicted.inUse) {
+                    closeQuietly(evicted.statement);
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a prepared statement for {@code sql}, reusing a cached one if possible.
+     *
+     * @param owner the pooled connection proxy the caller holds; returned from {@code getConnection()}
+     *              so callers can never reach the physical connection through the statement.
+     */
+    synchronized PreparedStatement prepare(String sql, Connection owner) throws SQLException {
+        return prepare(sql, Statement.NO_GENERATED_KEYS, owner);
+    }
+
+    /**
+     * As {@link #prepare(String, Connection)}, for {@code prepareStatement(sql, autoGeneratedKeys)}.
+     */
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys, Connection owner) throws SQLException {
+        String key = (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS) ? "keys:" + sql : sql; // No SQL starts with "keys:"
+        CachedStatement cached = statements.get(key);
+        if (cached != null) {
+            if (!cached.inUse) {
+                HITS.incrementAndGet();
+                cached.inUse = true;
+                return wrap(cached, owner);
+            }
+            MISSES.incrementAndGet();
+            return physical.prepareStatement(sql, autoGeneratedKeys); // Same SQL is busy on this connection; don't cache a duplicate
+        }
+        MISSES.incrementAndGet();
+        cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+        cached.inUse = true;
+        statements.put(key, cached);
+        return wrap(cached, owner);
+    }
+
+    private synchronized void giveBack(CachedStatement cached) {
+        cached.inUse = false;
+        boolean reusable = !cached.evicted;
+        if (reusable) {
+            try {
+                ResultSet open = cached.statement.getResultSet();
+                if (open != null) {
+                    open.close(); // Caller forgot to close it; don't carry it over to the next borrower
+                }
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+                cached.statement.clearWarnings();
+                cached.statement.setQueryTimeout(0); // Set per execution from the request deadline
+                cached.statement.setFetchSize(0);    // Cursor fetch is opted into per use (see RowCursor)
+            } catch (SQLException e) {
+                reusable = false;
+            }
+        }
+        if (!reusable) {
+            closeQuietly(cached.statement);
+            statements.values().remove(cached);
+        }
+    }
+
+    /**
+     * Closes every cached statement. Called before the physical connection is closed.
+     */
+    synchronized void clear() {
+        List<CachedStatement> all = new ArrayList<>(statements.values());
+        statements.clear();
+        for (CachedStatement cached : all) {
+            closeQuietly(cached.statement);
+        }
+    }
+
+    synchronized int size() {
+        return statements.size();
+    }
+
+    private PreparedStatement wrap(CachedStatement cached, Connection owner) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new CachedStatementHandler(cached, owner));
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("StatementCache: Error closing prepared statement: " + e.getMessage());
+        }
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    public static long getEvictionCount() {
+        return EVICTIONS.get();
+    }
+
+    public static double getHitRatio() {
+        long hits = HITS.get();
+        long total = hits + MISSES.get();
+        return (total == 0) ? 0.0 : hits / (double) total;
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    /**
+     * Handles calls on the statement proxy given to one borrower.
+     */
+    private class CachedStatementHandler implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection owner;
+        private boolean closed = false;
+
+        CachedStatementHandler(CachedStatement cached, Connection owner) {
+            this.cached = cached;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(cached);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return cached.statement.toString();
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed.");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package db;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a transactional operation in its own {@link UnitOfWork} and replays it when MySQL aborts it
+ * with a transient error (deadlock, lock wait timeout).
+ *
+ * Every attempt starts a fresh unit of work on a fresh connection, so a failed attempt is rolled back
+ * completely before the next one begins. For replay to be safe, the work must re-read everything it
+ * depends on (e.g. the cart) inside the callback and must not touch anything outside the database
+ * (session attributes, responses, emails) until {@link #execute} returns. Any unit of work that was
+ * already active on the thread is suspended for the duration and resumed afterwards.
+ *
+ * Retries back off exponentially with jitter and stop after {@code techtrove.db.retry.maxAttempts}
+ * attempts (default 4), once {@code techtrove.db.retry.budgetMs} (default 2000 ms) has been spent, or
+ * when the request deadline is about to run out.
+ */
+public final class TransactionRetry {
+
+    private static final int MAX_ATTEMPTS = Integer.getInteger("techtrove.db.retry.maxAttempts", 4);
+    private static final long BUDGET_MS = Long.getLong("techtrove.db.retry.budgetMs", 2000L);
+    private static final long BASE_BACKOFF_MS = 20;
+    private static final long MAX_BACKOFF_MS = 500;
+
+    // MySQL vendor error codes
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    private static final LongAdder OPERATIONS = new LongAdder();
+    private static final LongAdder RETRIES = new LongAdder();
+    private static final LongAdder RECOVERED = new LongAdder();
+    private static final LongAdder EXHAUSTED = new LongAdder();
+
+    /**
+     * A unit of transactional work that may be run more than once.
+     */
+    public interface TransactionalWork<T> {
+        T run() throws SQLException;
+    }
+
+    private TransactionRetry() {
+    }
+
+    /**
+     * Runs {@code work} in its own transaction, retrying transient failures.
+     *
+     * @param operationName used in log messages.
+     * @return the value returned by the successful attempt.
+     * @throws SQLException the last error if the work failed permanently or the retry budget ran out.
+     */
+    public static <T> T execute(String operationName, TransactionalWork<T> work) throws SQLException {
+        OPERATIONS.increment();
+        long start = System.currentTimeMillis();
+        UnitOfWork outer = UnitOfWork.suspend();
+        boolean outerPrimaryReadsOnly = DBUtil.isPrimaryReadsOnly();
+        DBUtil.setPrimaryReadsOnly(true); // Reads inside a transaction must see its own writes and current data
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    T result = runOnce(work);
+                    if (attempt > 1) {
+                        RECOVERED.increment();
+                        System.out.println("TransactionRetry: " + operationName + " succeeded on attempt " + attempt + ".");
+                    }
+                    return result;
+                } catch (SQLException e) {
+                    if (!isTransient(e)) {
+                        throw e;
+                    }
+                    long backoff = backoffMillis(attempt);
+                    long elapsed = System.currentTimeMillis() - start;
+                    if (attempt >= MAX_ATTEMPTS || elapsed + backoff > BUDGET_MS || !deadlineAllows(backoff)) {
+                        EXHAUSTED.increment();
+                        System.err.println("TransactionRetry: Giving up on " + operationName + " after " + attempt
+                                + " attempt(s) and " + elapsed + " ms: " + e.getMessage());
+                        throw e;
+                    }
+                    RETRIES.increment();
+                    System.err.println("TransactionRetry: " + operationName + " attempt " + attempt + " failed ("
+                            + e.getMessage() + "); retrying in " + backoff + " ms.");
+                    sleep(backoff);
+                }
+            }
+        } finally {
+            DBUtil.setPrimaryReadsOnly(outerPrimaryReadsOnly);
+            UnitOfWork.resume(outer);
+        }
+    }
+
+    private static <T> T runOnce(TransactionalWork<T> work) throws SQLException {
+        UnitOfWork.begin();
+        boolean completed = false;
+        try {
+            T result = work.run();
+            if (RequestDeadline.isExceeded()) { // The work swallowed a timeout; don't commit what it did before it
+                throw new SQLTimeoutException("Request deadline exceeded; transaction rolled back.");
+            }
+            completed = true;
+            return result;
+        } finally {
+            if (!completed) {
+                UnitOfWork.setRollbackOnly();
+            }
+            try {
+                UnitOfWork.end(); // Commit failures (e.g. deadlock detected at commit) surface here
+            } catch (SQLException e) {
+                if (completed) {
+                    throw e;
+                }
+                System.err.println("TransactionRetry: Error ending failed attempt: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * True for errors after which the whole transaction can safely be replayed.
+     */
+    public static boolean isTransient(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                for (SQLException s = (SQLException) t; s != null; s = s.getNextException()) {
+                    if (s instanceof SQLTransactionRollbackException
+                            || "40001".equals(s.getSQLState())
+                            || s.getErrorCode() == ER_LOCK_DEADLOCK
+                            || s.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt - 1, 20));
+        return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+    }
+
+    private static boolean deadlineAllows(long backoffMillis) {
+        if (!RequestDeadline.isActive()) {
+            return true;
+        }
+        try {
+            return RequestDeadline.remainingMillis() > backoffMillis;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void sleep(long millis) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting to retry a transaction.", e);
+        }
+    }
+
+    public static long getOperationCount() {
+        return OPERATIONS.sum();
+    }
+
+    public static long getRetryCount() {
+        return RETRIES.sum();
+    }
+
+    public static long getRecoveredCount() {
+        return RECOVERED.sum();
+    }
+
+    public static long getExhaustedCount() {
+        return EXHAUSTED.sum();
+    }
+}
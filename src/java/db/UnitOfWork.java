@@ -0,0 +1,292 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A thread-bound unit of work that lets every manager call made while handling one request
+ * share a single JDBC connection and a single transaction.
+ *
+ * While a unit of work is active, {@link DBUtil#getConnection()} returns a view of the bound
+ * connection instead of borrowing a new one from the pool. The connection is only borrowed on the
+ * first database access, so requests that never touch the database cost nothing.
+ *
+ * Managers keep their existing try-with-resources and transaction code: on the joined view,
+ * {@code close()}, {@code setAutoCommit()} and {@code commit()} are deferred to the unit of work,
+ * and {@code rollback()} rolls back and marks the whole unit rollback-only.
+ *
+ * Typical use (see {@code app.filters.UnitOfWorkFilter}):
+ * <pre>
+ *     UnitOfWork.begin();
+ *     try {
+ *         ... manager calls ...
+ *     } catch (Exception e) {
+ *         UnitOfWork.setRollbackOnly();
+ *         throw e;
+ *     } finally {
+ *         UnitOfWork.end();
+ *     }
+ * </pre>
+ */
+public final class UnitOfWork {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private Connection pooledConnection; // Borrowed lazily from the pool
+    private Connection joinedView;       // What managers see
+    private boolean rollbackOnly = false;
+    private int depth = 1;
+    private List<Runnable> afterCommit; // Run once the current transaction has committed
+
+    private UnitOfWork() {
+    }
+
+    /**
+     * Starts a unit of work on the current thread, or joins the one already active.
+     */
+    public static void begin() {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            current.depth++;
+            return;
+        }
+        CURRENT.set(new UnitOfWork());
+    }
+
+    /**
+     * Ends the unit of work started by the matching {@link #begin()}. The outermost call commits
+     * (or rolls back if marked rollback-only) and returns the connection to the pool.
+     *
+     * @throws SQLException if the final commit fails; the transaction is rolled back in that case.
+     */
+    public static void end() throws SQLException {
+        UnitOfWork current = CURRENT.get();
+        if (current == null) {
+            throw new IllegalStateException("No unit of work is active on this thread.");
+        }
+        if (--current.depth > 0) {
+            return;
+        }
+        CURRENT.remove();
+        current.finish();
+    }
+
+    /**
+     * Commits the work done so far without ending the unit of work. Used before a response is
+     * committed (e.g. on redirect) so the client never observes a page before its writes are durable.
+     * Does nothing if no unit of work is active, no connection was used, or the unit is rollback-only.
+     * If a database call on this thread ran out of request budget, the unit is marked rollback-only
+     * instead, so a timed-out request never commits the writes it made before the timeout.
+     */
+    public static void commit() throws SQLException {
+        UnitOfWork current = CURRENT.get();
+        if (current == null || current.pooledConnection == null || current.rollbackOnly) {
+            return;
+        }
+        if (RequestDeadline.isExceeded()) {
+            current.rollbackOnly = true; // Rolled back when the unit of work ends
+            return;
+        }
+        try {
+            current.pooledConnection.commit();
+        } catch (SQLException e) {
+            current.rollbackOnly = true;
+            throw e;
+        }
+        current.runAfterCommit();
+    }
+
+    /**
+     * Runs {@code action} once the work done so far is committed, or right away if no unit of work is
+     * active (the caller's change is already durable then). Discarded if the unit of work rolls back.
+     * Used to keep in-memory caches in step with committed data only.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork current = CURRENT.get();
+        if (current == null) {
+            action.run();
+            return;
+        }
+        if (current.afterCommit == null) {
+            current.afterCommit = new ArrayList<>();
+        }
+        current.afterCommit.add(action);
+    }
+
+    /**
+     * Marks the active unit of work so that it rolls back instead of committing when it ends.
+     */
+    public static void setRollbackOnly() {
+        UnitOfWork current = CURRENT.get();
+        if (current != null) {
+            current.rollbackOnly = true;
+        }
+    }
+
+    public static boolean isRollbackOnly() {
+        UnitOfWork current = CURRENT.get();
+        return current != null && current.rollbackOnly;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * Detaches the active unit of work (if any) from the current thread so an independent one can run.
+     * Must be paired with {@link #resume(UnitOfWork)}.
+     */
+    static UnitOfWork suspend() {
+        UnitOfWork current = CURRENT.get();
+        CURRENT.remove();
+        return current;
+    }
+
+    /**
+     * Reattaches a unit of work detached by {@link #suspend()}.
+     */
+    static void resume(UnitOfWork suspended) {
+        if (suspended != null) {
+            CURRENT.set(suspended);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * True if a unit of work is active and has already borrowed its connection.
+     */
+    static boolean hasBoundConnection() {
+        UnitOfWork current = CURRENT.get();
+        return current != null && current.pooledConnection != null;
+    }
+
+    /**
+     * Returns the connection view bound to the active unit of work, borrowing it on first use.
+     */
+    static Connection currentConnection() throws SQLException {
+        UnitOfWork current = CURRENT.get();
+        if (current == null) {
+            throw new IllegalStateException("No unit of work is active on this thread.");
+        }
+        if (current.pooledConnection == null) {
+            Connection conn = DBUtil.borrowPooledConnection();
+            try {
+                conn.setAutoCommit(false);
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+            current.pooledConnection = conn;
+            current.joinedView = (Connection) Proxy.newProxyInstance(
+                    UnitOfWork.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new JoinedConnectionHandler(current));
+        }
+        return current.joinedView;
+    }
+
+    private void finish() throws SQLException {
+        if (pooledConnection == null) {
+            if (!rollbackOnly) {
+                runAfterCommit();
+            }
+            return;
+        }
+        try {
+            if (rollbackOnly) {
+                afterCommit = null;
+                pooledConnection.rollback();
+            } else {
+                pooledConnection.commit();
+                runAfterCommit();
+            }
+        } catch (SQLException e) {
+            afterCommit = null;
+            if (!rollbackOnly) {
+                try {
+                    pooledConnection.rollback();
+                } catch (SQLException ex) {
+                    System.err.println("UnitOfWork: Error rolling back after failed commit: " + ex.getMessage());
+                }
+            }
+            throw e;
+        } finally {
+            try {
+                pooledConnection.close(); // The pool restores auto-commit
+            } catch (SQLException e) {
+                System.err.println("UnitOfWork: Error returning connection to pool: " + e.getMessage());
+            }
+            pooledConnection = null;
+            joinedView = null;
+        }
+    }
+
+    private void runAfterCommit() {
+        List<Runnable> actions = afterCommit;
+        afterCommit = null;
+        if (actions == null) {
+            return;
+        }
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                System.err.println("UnitOfWork: Error in after-commit action: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Connection view handed to managers while a unit of work is active.
+     */
+    private static class JoinedConnectionHandler implements InvocationHandler {
+        private final UnitOfWork unitOfWork;
+
+        JoinedConnectionHandler(UnitOfWork unitOfWork) {
+            this.unitOfWork = unitOfWork;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "setAutoCommit":
+                case "commit":
+                    return null; // Deferred to UnitOfWork.end()
+                case "getAutoCommit":
+                    return false;
+                case "isClosed":
+                    return unitOfWork.pooledConnection == null;
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        unitOfWork.rollbackOnly = true;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UnitOfWorkConnection[" + unitOfWork.pooledConnection + "]";
+                default:
+                    break;
+            }
+            Connection target = unitOfWork.pooledConnection;
+            if (target == null) {
+                throw new SQLException("The unit of work this connection belonged to has ended.", "08003");
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -2,15 +2,14 @@
 package managers;
 
 import db.DBUtil;
-import models.Cart;
 import models.CartItem;
 import models.Product;
+import models.ProductSummary;
 import core.IdGenerator;
 import exceptions.InvalidQuantityException; 
 import exceptions.NoQuantityLeftException; 
 
 import java.sql.*;
-import java.time.LocalDate; // <<< ADDED THIS IMPORT
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,8 +28,8 @@ public class CartManager {
 
     public List<CartItem> getCartItems(String userId) throws SQLException {
         List<CartItem> cartItems = new ArrayList<>();
-        String sql = "SELECT c.CartID, c.ProductID, c.Quantity, p.Name, p.Price, p.Stock, p.Brand, " +
-                     "p.Model, p.Description, p.ManufactureDate, p.CategoryID " + 
+        // Only the columns the cart and checkout pages show; Description (TEXT) stays in the database
+        String sql = "SELECT c.CartID, c.ProductID, c.Quantity, p.Name, p.Brand, p.Price, p.Stock, p.CategoryID " +
                      "FROM Cart c JOIN Products p ON c.ProductID = p.ProductID " +
                      "WHERE c.UserID = ?";
 
@@ -39,20 +38,7 @@ public class CartManager {
             pstmt.setString(1, userId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    java.sql.Date sqlMfgDate = rs.getDate("ManufactureDate");
-                    LocalDate mfgDate = (sqlMfgDate != null) ? sqlMfgDate.toLocalDate() : null; // Now LocalDate is recognized
-                    
-                    Product product = new Product(
-                            rs.getString("ProductID"),
-                            rs.getString("Name"),
-                            rs.getString("Brand"),
-                            rs.getString("Model"),        
-                            rs.getString("Description"),  
-                            rs.getDouble("Price"),
-                            rs.getInt("Stock"), 
-                            mfgDate,                      
-                            rs.getString("CategoryID")    
-                    );
+                    ProductSummary product = ProductManager.mapResultSetToSummary(rs);
                     CartItem item = new CartItem(
                             rs.getString("CartID"),
                             product,
@@ -68,65 +54,85 @@ public class CartManager {
     // ... (The rest of your CartManager.java methods should remain the same as the version you confirmed was working,
     //      ensuring they are consistent with the Product model not having imageUrl)
 
-    public void addItemToCart(String userId, String productId, int quantity)
+    /**
+     * Adds {@code quantity} of a product to the user's cart, or to the quantity already there, provided the
+     * product has enough stock for the new total.
+     *
+     * Done as one INSERT ... SELECT ... ON DUPLICATE KEY UPDATE: the SELECT only yields the product row if
+     * it exists with enough stock for {@code quantity}, the UPDATE only raises an existing quantity if the
+     * total still fits, and the UNIQUE (UserID, ProductID) key makes concurrent adds of the same product
+     * merge instead of failing. The new quantity comes back as the statement's LAST_INSERT_ID (0 when
+     * nothing changed), so a successful add is a single round trip.
+     *
+     * @return the product's quantity in the cart after the add.
+     */
+    public int addItemToCart(String userId, String productId, int quantity)
             throws SQLException, InvalidQuantityException, NoQuantityLeftException {
         if (quantity <= 0) {
             throw new InvalidQuantityException("Quantity to add to cart must be positive.");
         }
 
-        Product product = productManager.getProductById(productId); 
-        if (product == null) {
-            throw new SQLException("Product with ID " + productId + " not found.");
-        }
-        
-        Cart existingCartEntry = findCartEntry(userId, productId);
-
-        if (existingCartEntry != null) {
-            int newQuantity = existingCartEntry.getQuantity() + quantity;
-            if (product.getStock() < newQuantity) { 
-                 throw new NoQuantityLeftException("Not enough stock for " + product.getName() +
-                                              " to increase quantity. Requested total: " + newQuantity + ", Available: " + product.getStock());
-            }
-            updateCartItemQuantity(existingCartEntry.getCartId(), newQuantity);
-            System.out.println("Updated CartID " + existingCartEntry.getCartId() + " to quantity " + newQuantity);
-        } else {
-            if (product.getStock() < quantity) { 
-                 throw new NoQuantityLeftException("Not enough stock for " + product.getName() +
-                                                  ". Requested: " + quantity + ", Available: " + product.getStock());
-            }
-            String cartId = IdGenerator.generateCartId();
-            String sql = "INSERT INTO Cart (CartID, UserID, ProductID, Quantity, AddedDate) VALUES (?, ?, ?, ?, ?)";
-            try (Connection conn = DBUtil.getConnection();
-                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
-                pstmt.setString(1, cartId);
-                pstmt.setString(2, userId);
-                pstmt.setString(3, productId);
-                pstmt.setInt(4, quantity);
-                pstmt.setTimestamp(5, Timestamp.valueOf(java.time.LocalDateTime.now()));
-                pstmt.executeUpdate();
-                System.out.println("Added new CartID " + cartId + " for user " + userId + " product " + productId + " with quantity " + quantity);
+        String cartId = IdGenerator.generateCartId(); // Only used if the product isn't in the cart yet
+        String sql = "INSERT INTO Cart (CartID, UserID, ProductID, Quantity, AddedDate) " +
+                     "SELECT ?, ?, p.ProductID, LAST_INSERT_ID(?), ? FROM Products p WHERE p.ProductID = ? AND p.Stock >= ? " +
+                     "ON DUPLICATE KEY UPDATE Quantity = IF(Cart.Quantity + ? <= p.Stock, " +
+                     "LAST_INSERT_ID(Cart.Quantity + ?), Cart.Quantity + LAST_INSERT_ID(0))"; // Else unchanged, reported as 0
+        long newQuantity;
+        try (Connection conn = DBUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, cartId);
+            pstmt.setString(2, userId);
+            pstmt.setInt(3, quantity);
+            pstmt.setTimestamp(4, Timestamp.valueOf(java.time.LocalDateTime.now()));
+            pstmt.setString(5, productId);
+            pstmt.setInt(6, quantity);
+            pstmt.setInt(7, quantity);
+            pstmt.setInt(8, quantity);
+            int affectedRows = pstmt.executeUpdate();
+            newQuantity = 0;
+            if (affectedRows > 0) {
+                // The LAST_INSERT_ID(expr) value from the OK packet; no extra "SELECT LAST_INSERT_ID()" round trip
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        newQuantity = keys.getLong(1);
+                    }
+                }
             }
         }
+
+        if (newQuantity == 0) {
+            rejectAdd(userId, productId, quantity);
+        }
+        System.out.println("Cart for user " + userId + " now has product " + productId + " with quantity " + newQuantity);
+        return (int) newQuantity;
     }
 
-    private Cart findCartEntry(String userId, String productId) throws SQLException {
-        String sql = "SELECT * FROM Cart WHERE UserID = ? AND ProductID = ?";
+    /**
+     * Throws the reason {@link #addItemToCart} changed nothing; the extra query only runs when an add is refused.
+     */
+    private void rejectAdd(String userId, String productId, int quantity)
+            throws SQLException, NoQuantityLeftException {
+        String sql = "SELECT p.Name, p.Stock, c.Quantity FROM Products p " +
+                     "LEFT JOIN Cart c ON c.ProductID = p.ProductID AND c.UserID = ? WHERE p.ProductID = ?";
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, userId);
             pstmt.setString(2, productId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Cart(
-                            rs.getString("CartID"),
-                            rs.getString("UserID"),
-                            rs.getString("ProductID"),
-                            rs.getInt("Quantity")
-                    );
+                if (!rs.next()) {
+                    throw new SQLException("Product with ID " + productId + " not found.");
+                }
+                String name = rs.getString("Name");
+                int stock = rs.getInt("Stock");
+                int inCart = rs.getInt("Quantity"); // 0 if not in the cart
+                if (inCart > 0) {
+                    throw new NoQuantityLeftException("Not enough stock for " + name +
+                                                      " to increase quantity. Requested total: " + (inCart + quantity) + ", Available: " + stock);
                 }
+                throw new NoQuantityLeftException("Not enough stock for " + name +
+                                                  ". Requested: " + quantity + ", Available: " + stock);
             }
         }
-        return null;
     }
 
     public void updateCartItemQuantity(String cartId, int newQuantity)
@@ -149,7 +155,7 @@ public class CartManager {
             }
         }
 
-        Product product = productManager.getProductById(productId); 
+        Product product = productManager.getProductById(productId); // The primary's stock, not the catalog snapshot's
         if (product == null) {
             throw new SQLException("Product associated with cart item " + cartId + " not found.");
         }
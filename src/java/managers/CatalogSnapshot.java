@@ -0,0 +1,427 @@
+package managers;
+
+import models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, versioned view of the whole product catalog.
+ *
+ * Snapshots are never modified: every change produces a new snapshot (copy-on-write), which
+ * {@link ProductManager} publishes atomically. Readers can therefore use a snapshot without locks.
+ * Products are kept sorted by name, matching the previous {@code ORDER BY Name} listing.
+ *
+ * Each product also has a dense integer ordinal, used by the in-memory indexes instead of its ID. A full
+ * load numbers products in name order; a patch keeps existing ordinals, appends new products at the end
+ * and leaves a null hole for deleted ones until the next reload. The ID-to-ordinal map and the price and
+ * stock columns live in a {@link ProductColumnStore}, which filters and sorts scan instead of the objects.
+ *
+ * The {@link Product} objects inside a snapshot are private copies and must be treated as read-only.
+ */
+public final class CatalogSnapshot {
+
+    // MySQL's default collation compares names case-insensitively; ID breaks ties deterministically
+    static final Comparator<Product> BY_NAME = Comparator
+            .comparing(Product::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Product::getProductId);
+
+    private final long version;
+    private final long loadedAtMillis;
+    private final List<Product> productsByName;
+    private final Product[] productsByOrdinal;       // null where a product was deleted
+    private final ProductColumnStore columns;
+    private final ProductSearchIndex searchIndex;
+    private final ProductTrigramIndex trigramIndex;
+    private final ProductFacetIndex facetIndex;
+    private final boolean ordinalsInNameOrder;        // True until a patch adds or renames a product
+    private final String catalogId;                   // Null while sharedVersion is unknown
+    private final long sharedVersion;                 // CatalogVersion.Version fully reflected here, or -1
+
+    private CatalogSnapshot(long version, long loadedAtMillis, List<Product> productsByName,
+                            Product[] productsByOrdinal, ProductColumnStore columns,
+                            ProductSearchIndex searchIndex, ProductTrigramIndex trigramIndex,
+                            ProductFacetIndex facetIndex, boolean ordinalsInNameOrder,
+                            String catalogId, long sharedVersion) {
+        this.version = version;
+        this.loadedAtMillis = loadedAtMillis;
+        this.productsByName = Collections.unmodifiableList(productsByName);
+        this.productsByOrdinal = productsByOrdinal;
+        this.columns = columns;
+        this.searchIndex = searchIndex;
+        this.trigramIndex = trigramIndex;
+        this.facetIndex = facetIndex;
+        this.ordinalsInNameOrder = ordinalsInNameOrder;
+        this.catalogId = catalogId;
+        this.sharedVersion = sharedVersion;
+    }
+
+    /**
+     * Builds a snapshot from freshly loaded rows.
+     */
+    static CatalogSnapshot of(long version, List<Product> products) {
+        List<Product> sorted = new ArrayList<>(products.size());
+        for (Product product : products) {
+            sorted.add(copyOf(product));
+        }
+        sorted.sort(BY_NAME);
+        Product[] byOrdinal = sorted.toArray(new Product[0]);
+        return new CatalogSnapshot(version, System.currentTimeMillis(), sorted, byOrdinal,
+                ProductColumnStore.build(byOrdinal), ProductSearchIndex.build(byOrdinal),
+                ProductTrigramIndex.build(byOrdinal), ProductFacetIndex.build(byOrdinal), true, null, -1);
+    }
+
+    /**
+     * Returns a new snapshot with {@code product} added or replaced.
+     */
+    CatalogSnapshot withProduct(long newVersion, Product product) {
+        Product copy = copyOf(product);
+        List<Product> updated = new ArrayList<>(productsByName.size() + 1);
+        for (Product existing : productsByName) {
+            if (!existing.getProductId().equals(copy.getProductId())) {
+                updated.add(existing);
+            }
+        }
+        int insertAt = Collections.binarySearch(updated, copy, BY_NAME);
+        updated.add(insertAt < 0 ? -insertAt - 1 : insertAt, copy);
+
+        int ordinal = columns.ordinalOf(copy.getProductId());
+        if (ordinal >= 0) {
+            Product before = productsByOrdinal[ordinal];
+            Product[] byOrdinal = productsByOrdinal.clone();
+            byOrdinal[ordinal] = copy;
+            return new CatalogSnapshot(newVersion, loadedAtMillis, updated, byOrdinal, columns.withProduct(ordinal, copy),
+                    searchIndex.withDocument(ordinal, before, copy), trigramIndex.withDocument(before, copy),
+                    facetIndex.withDocument(ordinal, before, copy),
+                    ordinalsInNameOrder && before.getName().equals(copy.getName()), catalogId, sharedVersion);
+        }
+        int newOrdinal = productsByOrdinal.length;
+        Product[] byOrdinal = Arrays.copyOf(productsByOrdinal, newOrdinal + 1);
+        byOrdinal[newOrdinal] = copy;
+        return new CatalogSnapshot(newVersion, loadedAtMillis, updated, byOrdinal,
+                columns.withProduct(newOrdinal, copy), searchIndex.withDocument(newOrdinal, null, copy),
+                trigramIndex.withDocument(null, copy), facetIndex.withDocument(newOrdinal, null, copy), false,
+                catalogId, sharedVersion);
+    }
+
+    /**
+     * Returns a new snapshot without the given product.
+     */
+    CatalogSnapshot withoutProduct(long newVersion, String productId) {
+        int ordinal = columns.ordinalOf(productId);
+        if (ordinal < 0) {
+            return new CatalogSnapshot(newVersion, loadedAtMillis, productsByName,
+                    productsByOrdinal, columns, searchIndex, trigramIndex, facetIndex, ordinalsInNameOrder,
+                    catalogId, sharedVersion);
+        }
+        List<Product> updated = new ArrayList<>(productsByName.size());
+        for (Product existing : productsByName) {
+            if (!existing.getProductId().equals(productId)) {
+                updated.add(existing);
+            }
+        }
+        Product[] byOrdinal = productsByOrdinal.clone();
+        byOrdinal[ordinal] = null;
+        return new CatalogSnapshot(newVersion, loadedAtMillis, updated, byOrdinal, columns.withoutProduct(productId),
+                searchIndex.withoutDocument(ordinal, productsByOrdinal[ordinal]),
+                trigramIndex.withDocument(productsByOrdinal[ordinal], null),
+                facetIndex.withDocument(ordinal, productsByOrdinal[ordinal], null), ordinalsInNameOrder, catalogId, sharedVersion);
+    }
+
+    /**
+     * Returns a new snapshot with the stock of the given products set to new absolute values.
+     * Stock isn't searchable text, so the search indexes are shared with this snapshot; only the stock
+     * column changes, plus the in-stock bitmap for products whose stock crossed zero. Names don't change
+     * either, so each product is found in the name-ordered list by binary search instead of a full pass.
+     */
+    CatalogSnapshot withStock(long newVersion, Map<String, Integer> stockByProductId) {
+        int[] changedOrdinals = new int[stockByProductId.size()];
+        int[] changedStock = new int[stockByProductId.size()];
+        int changed = 0;
+        for (Map.Entry<String, Integer> entry : stockByProductId.entrySet()) {
+            int ordinal = columns.ordinalOf(entry.getKey());
+            if (ordinal >= 0 && columns.stock(ordinal) != entry.getValue()) {
+                changedOrdinals[changed] = ordinal;
+                changedStock[changed++] = entry.getValue();
+            }
+        }
+        if (changed == 0) {
+            return new CatalogSnapshot(newVersion, loadedAtMillis, productsByName, productsByOrdinal, columns,
+                    searchIndex, trigramIndex, facetIndex, ordinalsInNameOrder, catalogId, sharedVersion);
+        }
+        changedOrdinals = Arrays.copyOf(changedOrdinals, changed);
+        changedStock = Arrays.copyOf(changedStock, changed);
+
+        List<Product> updated = new ArrayList<>(productsByName);
+        Product[] byOrdinal = productsByOrdinal.clone();
+        ProductFacetIndex facets = facetIndex;
+        for (int i = 0; i < changed; i++) {
+            Product existing = productsByOrdinal[changedOrdinals[i]];
+            Product copy = copyOf(existing);
+            copy.setStock(changedStock[i]);
+            updated.set(Collections.binarySearch(productsByName, existing, BY_NAME), copy);
+            byOrdinal[changedOrdinals[i]] = copy;
+            facets = facets.withDocument(changedOrdinals[i], existing, copy);
+        }
+        return new CatalogSnapshot(newVersion, loadedAtMillis, updated, byOrdinal,
+                columns.withStock(changedOrdinals, changedStock), searchIndex, trigramIndex, facets, ordinalsInNameOrder,
+                catalogId, sharedVersion);
+    }
+
+    /**
+     * Same products under a new version, for changes that show on catalog pages without touching the
+     * products themselves (category names).
+     */
+    CatalogSnapshot withVersion(long newVersion) {
+        return new CatalogSnapshot(newVersion, loadedAtMillis, productsByName, productsByOrdinal, columns,
+                searchIndex, trigramIndex, facetIndex, ordinalsInNameOrder, catalogId, sharedVersion);
+    }
+
+    /**
+     * Same products, marked as reflecting every change up to {@code sharedVersion} of the database's
+     * catalog (or, with a null {@code catalogId}, as not known to match any one version).
+     */
+    CatalogSnapshot withSharedVersion(String catalogId, long sharedVersion) {
+        return new CatalogSnapshot(version, loadedAtMillis, productsByName, productsByOrdinal, columns,
+                searchIndex, trigramIndex, facetIndex, ordinalsInNameOrder, catalogId, sharedVersion);
+    }
+
+    /**
+     * Increases with every change applied to the catalog in this process (product writes, stock changes,
+     * reloads). It restarts with the server and differs between servers; see {@link #getSharedVersion()}.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The database's CatalogID, or null if this snapshot isn't known to match a single shared version.
+     */
+    public String getCatalogId() {
+        return catalogId;
+    }
+
+    /**
+     * The CatalogVersion.Version up to which this snapshot reflects every change, or -1 if unknown. Every
+     * product, stock and category write bumps it, so unlike {@link #getVersion()} it is the same on every
+     * server and survives restarts.
+     */
+    public long getSharedVersion() {
+        return sharedVersion;
+    }
+
+    /**
+     * When the underlying data was last read from the database (patches don't reset it).
+     */
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    public List<Product> getProducts() {
+        return productsByName;
+    }
+
+    public Product getProduct(String productId) {
+        int ordinal = columns.ordinalOf(productId);
+        return (ordinal >= 0) ? productsByOrdinal[ordinal] : null;
+    }
+
+    public int size() {
+        return productsByName.size();
+    }
+
+    /**
+     * Full-text search over name, brand, model and description; best matches first.
+     * Terms are AND-ed; {@code OR} between terms separates alternatives.
+     */
+    public List<Product> search(String query) {
+        int[] ordinals = searchIndex.search(query);
+        List<Product> results = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            Product product = productsByOrdinal[ordinal];
+            if (product != null) {
+                results.add(product);
+            }
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Evaluates the filters of {@code query} against the bitmap indexes and counts the category and brand
+     * facets (each with every filter but its own), then sorts and pages the matches.
+     *
+     * Pages are keyset-paginated: the page token holds the sort key of the previous page's last product
+     * and the page starts after it. In name order the ordinals already follow (Name, ProductID), so the
+     * seek goes straight into the match bitmap and a deep page costs no more than the first one.
+     */
+    public ProductQueryResult query(ProductQuery query) {
+        OrdinalBitmap base = facetIndex.baseFilter(query.isInStockOnly(), query.getMinPrice(), query.getMaxPrice(), columns);
+        int[] rankedHits = null;
+        if (query.getSearchText() != null) {
+            rankedHits = searchIndex.search(query.getSearchText());
+            int[] sortedHits = rankedHits.clone();
+            Arrays.sort(sortedHits);
+            base = base.and(OrdinalBitmap.of(sortedHits));
+        }
+        OrdinalBitmap categoryFilter = facetIndex.category(query.getCategoryId());
+        OrdinalBitmap brandFilter = facetIndex.brand(query.getBrand());
+        OrdinalBitmap withCategory = (categoryFilter != null) ? base.and(categoryFilter) : base;
+        OrdinalBitmap withBrand = (brandFilter != null) ? base.and(brandFilter) : base;
+        OrdinalBitmap matches = (brandFilter != null) ? withCategory.and(brandFilter) : withCategory;
+
+        Map<String, Integer> categoryCounts = facetIndex.countCategories(withBrand);
+        Map<String, Integer> brandCounts = facetIndex.countBrands(withCategory);
+
+        int totalCount = matches.cardinality();
+        int pageSize = (query.getPageSize() > 0) ? query.getPageSize() : Integer.MAX_VALUE;
+        int limit = (pageSize < Integer.MAX_VALUE) ? pageSize + 1 : pageSize; // One extra tells if there's a next page
+        Comparator<Product> order = comparatorFor(query.getSortOrder(), rankedHits != null);
+        ProductPageToken token = ProductPageToken.decode(query.getPageToken(), query.getSortOrder(), query.filterHash());
+
+        List<Product> products;
+        int seekOrdinal = (order == BY_NAME && rankedHits == null) ? seekOrdinal(token) : -2;
+        if (seekOrdinal >= -1) {
+            int[] page = matches.membersAfter(seekOrdinal, limit);
+            products = new ArrayList<>(page.length);
+            for (int ordinal : page) {
+                products.add(productsByOrdinal[ordinal]);
+            }
+        } else {
+            List<Product> sorted = new ArrayList<>(totalCount);
+            int[] byPrice = null;
+            if (ordinalsInNameOrder && (query.getSortOrder() == ProductQuery.SortOrder.PRICE_ASC
+                    || query.getSortOrder() == ProductQuery.SortOrder.PRICE_DESC)) {
+                // Ties break by ordinal, which is name order here, so this equals sorting with 'order'
+                byPrice = columns.sortByPrice(matches, query.getSortOrder() == ProductQuery.SortOrder.PRICE_DESC);
+            }
+            if (byPrice != null) {
+                for (int ordinal : byPrice) {
+                    sorted.add(productsByOrdinal[ordinal]);
+                }
+            } else if (rankedHits != null) {
+                for (int ordinal : rankedHits) {
+                    if (matches.contains(ordinal)) {
+                        sorted.add(productsByOrdinal[ordinal]);
+                    }
+                }
+            } else {
+                for (int ordinal : matches.toArray()) {
+                    sorted.add(productsByOrdinal[ordinal]);
+                }
+            }
+            if (byPrice == null && order != null && (rankedHits != null || order != BY_NAME || !ordinalsInNameOrder)) {
+                sorted.sort(order);
+            }
+            int start = (token == null) ? 0
+                    : (order != null) ? firstAfter(sorted, token.toProbe(), order) : indexAfter(sorted, token.getProductId());
+            products = new ArrayList<>(sorted.subList(start, (int) Math.min(sorted.size(), (long) start + limit)));
+        }
+
+        String nextPageToken = null;
+        if (products.size() > pageSize) {
+            products.remove(pageSize);
+            nextPageToken = ProductPageToken.after(products.get(pageSize - 1), query.getSortOrder(), query.filterHash()).encode();
+        }
+        long[] priceRange = columns.priceRangeCents(matches);
+        return new ProductQueryResult(products, totalCount, nextPageToken,
+                (priceRange != null) ? priceRange[0] / 100.0 : null, (priceRange != null) ? priceRange[1] / 100.0 : null,
+                categoryCounts, brandCounts);
+    }
+
+    /**
+     * The product order for a sort, each completed by {@link #BY_NAME} so it is total; null for search relevance.
+     */
+    private static Comparator<Product> comparatorFor(ProductQuery.SortOrder sortOrder, boolean hasSearchText) {
+        switch (sortOrder) {
+            case PRICE_ASC:
+                return Comparator.comparingDouble(Product::getPrice).thenComparing(BY_NAME);
+            case PRICE_DESC:
+                return Comparator.comparingDouble(Product::getPrice).reversed().thenComparing(BY_NAME);
+            case NEWEST:
+                return Comparator.comparing(Product::getManufactureDate, Comparator.nullsLast(Comparator.<LocalDate>reverseOrder()))
+                        .thenComparing(BY_NAME);
+            case NAME:
+                return BY_NAME;
+            default: // RELEVANCE: search ranking, or name order without search text
+                return hasSearchText ? null : BY_NAME;
+        }
+    }
+
+    /**
+     * The ordinal to continue a name-ordered listing after: -1 for the first page, or -2 if ordinals aren't in
+     * name order or the token's product was since renamed or deleted (the caller then seeks by sort key).
+     */
+    private int seekOrdinal(ProductPageToken token) {
+        if (!ordinalsInNameOrder) {
+            return -2;
+        }
+        if (token == null) {
+            return -1;
+        }
+        int ordinal = columns.ordinalOf(token.getProductId());
+        return (ordinal >= 0 && productsByOrdinal[ordinal].getName().equals(token.getName())) ? ordinal : -2;
+    }
+
+    /**
+     * Index of the first product sorting after {@code probe}.
+     */
+    private static int firstAfter(List<Product> sorted, Product probe, Comparator<Product> order) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(sorted.get(mid), probe) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index after the given product in a relevance-ranked list. Relevance has no stable key to seek by, so if
+     * that product no longer matches, the listing starts over.
+     */
+    private static int indexAfter(List<Product> ranked, String productId) {
+        for (int i = 0; i < ranked.size(); i++) {
+            if (ranked.get(i).getProductId().equals(productId)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns {@code query} with misspelled words replaced by the closest product name, brand or model
+     * word (e.g. "logitec" -> "logitech"), or null if nothing needed or allowed correcting.
+     */
+    public String correctQuery(String query) {
+        return trigramIndex.correct(query, searchIndex);
+    }
+
+    /**
+     * Exclusive upper bound of the ordinals in use; some ordinals below it may be holes.
+     */
+    int ordinalLimit() {
+        return productsByOrdinal.length;
+    }
+
+    /**
+     * The product with the given ordinal, or null if it was deleted.
+     */
+    Product productAt(int ordinal) {
+        return productsByOrdinal[ordinal];
+    }
+
+    static Product copyOf(Product product) {
+        return new Product(product.getProductId(), product.getName(), product.getBrand(), product.getModel(),
+                product.getDescription(), product.getPrice(), product.getStock(), product.getManufactureDate(),
+                product.getCategoryId());
+    }
+}
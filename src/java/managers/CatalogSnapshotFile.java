@@ -0,0 +1,274 @@
+package managers;
+
+import models.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The catalog persisted to a local binary file, so a restarted server can serve product pages from it
+ * straight away instead of first reading the whole Products table.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header   64 bytes   magic "TTCS", format version, catalog stamp (ID + version) and max UpdatedAt the
+ *                       rows were read at, write time, counts, string data offset, file length, CRC32 of
+ *                       everything after the header
+ *   records  40 bytes per product: string refs for ID, name, brand, model, description and category
+ *                       (-1 = null), price in paise, stock, manufacture date as epoch day
+ *   offsets  4 bytes per string + 1: start of each string within the string data
+ *   strings  UTF-8, each distinct string once (brands and categories repeat a lot)
+ * </pre>
+ * Fixed-width records keep the reader a single pass over a memory-mapped buffer. A file that fails any
+ * check (magic, version, length, bounds, checksum) is rejected and the catalog is loaded from the database.
+ */
+final class CatalogSnapshotFile {
+
+    private static final int MAGIC = 0x54544353; // "TTCS"
+    private static final short FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 40;
+    private static final int NULL_REF = -1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final String catalogId;
+    private final long catalogVersion;
+    private final long maxUpdatedAtMillis;
+    private final long writtenAtMillis;
+    private final List<Product> products;
+
+    CatalogSnapshotFile(String catalogId, long catalogVersion, long maxUpdatedAtMillis, long writtenAtMillis,
+                        List<Product> products) {
+        this.catalogId = catalogId;
+        this.catalogVersion = catalogVersion;
+        this.maxUpdatedAtMillis = maxUpdatedAtMillis;
+        this.writtenAtMillis = writtenAtMillis;
+        this.products = products;
+    }
+
+    /**
+     * The CatalogVersion.CatalogID of the database the rows came from.
+     */
+    String getCatalogId() {
+        return catalogId;
+    }
+
+    long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    /**
+     * The newest Products.UpdatedAt among the rows, i.e. where a delta read should start.
+     */
+    long getMaxUpdatedAtMillis() {
+        return maxUpdatedAtMillis;
+    }
+
+    long getWrittenAtMillis() {
+        return writtenAtMillis;
+    }
+
+    List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * Writes the file next to {@code file} and moves it into place atomically, so readers never see a
+     * half-written file.
+     */
+    void write(Path file) throws IOException {
+        Map<String, Integer> refs = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        ref(catalogId, refs, strings); // Always string 0
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_BYTES);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(new UnclosableOutputStream(Channels.newOutputStream(channel)), crc), 1 << 16));
+            for (Product product : products) {
+                out.writeInt(ref(product.getProductId(), refs, strings));
+                out.writeInt(ref(product.getName(), refs, strings));
+                out.writeInt(ref(product.getBrand(), refs, strings));
+                out.writeInt(ref(product.getModel(), refs, strings));
+                out.writeInt(ref(product.getDescription(), refs, strings));
+                out.writeInt(ref(product.getCategoryId(), refs, strings));
+                out.writeLong(ProductColumnStore.toCents(product.getPrice()));
+                out.writeInt(product.getStock());
+                out.writeInt((product.getManufactureDate() != null)
+                        ? (int) product.getManufactureDate().toEpochDay() : NO_DATE);
+            }
+            int offset = 0;
+            for (byte[] string : strings) {
+                out.writeInt(offset);
+                offset += string.length;
+            }
+            out.writeInt(offset);
+            for (byte[] string : strings) {
+                out.write(string);
+            }
+            out.close(); // Flushes; the channel itself stays open
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC);
+            header.putShort(FORMAT_VERSION);
+            header.putShort((short) 0);
+            header.putLong(catalogVersion);
+            header.putLong(maxUpdatedAtMillis);
+            header.putLong(writtenAtMillis);
+            header.putInt(products.size());
+            header.putInt(strings.size());
+            header.putLong(stringDataOffset(products.size(), strings.size()));
+            header.putLong(channel.size());
+            header.putLong(crc.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps and validates {@code file}.
+     *
+     * @throws IOException if the file can't be read or fails validation.
+     */
+    static CatalogSnapshotFile read(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("unexpected file size " + size);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size); // Stays valid after the channel closes
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a catalog snapshot file");
+        }
+        if (buffer.getShort(4) != FORMAT_VERSION) {
+            throw new IOException("unsupported format version " + buffer.getShort(4));
+        }
+        long catalogVersion = buffer.getLong(8);
+        long maxUpdatedAtMillis = buffer.getLong(16);
+        long writtenAtMillis = buffer.getLong(24);
+        int productCount = buffer.getInt(32);
+        int stringCount = buffer.getInt(36);
+        long stringData = buffer.getLong(40);
+        if (productCount < 0 || stringCount < 1 || buffer.getLong(48) != buffer.capacity()
+                || stringData != stringDataOffset(productCount, stringCount) || stringData > buffer.capacity()) {
+            throw new IOException("inconsistent header");
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(HEADER_BYTES);
+        crc.update(body);
+        if (crc.getValue() != buffer.getLong(56)) {
+            throw new IOException("checksum mismatch");
+        }
+
+        String[] strings = new String[stringCount];
+        int offsets = HEADER_BYTES + productCount * RECORD_BYTES;
+        int stringBytes = buffer.capacity() - (int) stringData;
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < stringCount; i++) {
+            int start = buffer.getInt(offsets + i * 4);
+            int end = buffer.getInt(offsets + (i + 1) * 4);
+            if (start < 0 || end < start || end > stringBytes) {
+                throw new IOException("string " + i + " out of bounds");
+            }
+            if (bytes.length < end - start) {
+                bytes = new byte[Math.max(end - start, bytes.length * 2)];
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position((int) stringData + start);
+            slice.get(bytes, 0, end - start);
+            strings[i] = new String(bytes, 0, end - start, StandardCharsets.UTF_8);
+        }
+
+        List<Product> products = new ArrayList<>(productCount);
+        for (int i = 0, at = HEADER_BYTES; i < productCount; i++, at += RECORD_BYTES) {
+            long cents = buffer.getLong(at + 24);
+            int stock = buffer.getInt(at + 32);
+            if (cents < 0 || stock < 0) {
+                throw new IOException("record " + i + " has a negative price or stock");
+            }
+            products.add(new Product(string(strings, buffer.getInt(at)), string(strings, buffer.getInt(at + 4)),
+                    string(strings, buffer.getInt(at + 8)), string(strings, buffer.getInt(at + 12)),
+                    string(strings, buffer.getInt(at + 16)), cents / 100.0, stock,
+                    (buffer.getInt(at + 36) != NO_DATE) ? LocalDate.ofEpochDay(buffer.getInt(at + 36)) : null,
+                    string(strings, buffer.getInt(at + 20))));
+        }
+        return new CatalogSnapshotFile(strings[0], catalogVersion, maxUpdatedAtMillis, writtenAtMillis, products);
+    }
+
+    private static long stringDataOffset(int productCount, int stringCount) {
+        return HEADER_BYTES + (long) productCount * RECORD_BYTES + (stringCount + 1L) * 4;
+    }
+
+    private static String string(String[] strings, int ref) throws IOException {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        if (ref < 0 || ref >= strings.length) {
+            throw new IOException("string ref " + ref + " out of bounds");
+        }
+        return strings[ref];
+    }
+
+    private static int ref(String value, Map<String, Integer> refs, List<byte[]> strings) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        Integer ref = refs.get(value);
+        if (ref == null) {
+            ref = strings.size();
+            refs.put(value, ref);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return ref;
+    }
+
+    /**
+     * Lets the buffered stream be closed (flushing it) without closing the channel underneath.
+     */
+    private static final class UnclosableOutputStream extends FilterOutputStream {
+        UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
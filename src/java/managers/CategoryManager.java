@@ -17,7 +17,7 @@ public class CategoryManager {
     public List<Category> getAllCategories() throws SQLException {
         List<Category> categories = new ArrayList<>();
         String sql = "SELECT * FROM Categories ORDER BY Name";
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection(); // Read-only: may be served by a replica
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
@@ -62,6 +62,7 @@ public class CategoryManager {
                 throw new SQLException("Creating category failed, no rows affected.");
             }
             System.out.println("Category added: " + categoryName + " (ID: " + newCategoryId + ")");
+            ProductManager.catalogCategoriesChanged(ProductManager.bumpCatalogVersion(conn)); // Category filters on product pages
             return newCategoryId;
         }
     }
@@ -98,7 +99,10 @@ public class CategoryManager {
             pstmt.setString(1, newCategoryName.trim());
             pstmt.setString(2, categoryId);
             int affectedRows = pstmt.executeUpdate();
-            if(affectedRows > 0) System.out.println("Category updated: " + categoryId + " to name " + newCategoryName);
+            if(affectedRows > 0) {
+                System.out.println("Category updated: " + categoryId + " to name " + newCategoryName);
+                ProductManager.catalogCategoriesChanged(ProductManager.bumpCatalogVersion(conn));
+            }
             return affectedRows > 0;
         }
     }
@@ -140,7 +144,10 @@ public class CategoryManager {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, categoryId);
             int affectedRows = pstmt.executeUpdate();
-             if(affectedRows > 0) System.out.println("Category deleted: " + categoryId);
+             if(affectedRows > 0) {
+                 System.out.println("Category deleted: " + categoryId);
+                 ProductManager.catalogCategoriesChanged(ProductManager.bumpCatalogVersion(conn));
+             }
             return affectedRows > 0;
         }
     }
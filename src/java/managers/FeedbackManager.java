@@ -4,6 +4,7 @@ import models.Feedback;
 import models.Product; // For fetching product name
 import models.User;    // For fetching user name
 import db.DBUtil;
+import db.RowCursor;
 import core.IdGenerator;
 
 import java.sql.*;
@@ -112,30 +113,43 @@ public class FeedbackManager {
         return feedbackList;
     }
 
-    /**
-     * Retrieves all feedback entries, including user names and product names. (For Admin View)
-     */
-    public List<Feedback> getAllFeedbackWithDetails() throws SQLException {
-        List<Feedback> feedbackList = new ArrayList<>();
-        String sql = "SELECT f.*, u.FullName, p.Name AS ProductName " +
+    private static final String ALL_FEEDBACK_SQL = "SELECT f.*, u.FullName, p.Name AS ProductName " +
                      "FROM Feedback f " +
                      "LEFT JOIN Users u ON f.UserID = u.UserID " + // LEFT JOIN in case user deleted
                      "LEFT JOIN Products p ON f.ProductID = p.ProductID " + // LEFT JOIN in case product deleted
                      "ORDER BY f.Timestamp DESC";
 
-        try (Connection conn = DBUtil.getConnection();
+    /**
+     * Retrieves all feedback entries, including user names and product names. (For Admin View)
+     */
+    public List<Feedback> getAllFeedbackWithDetails() throws SQLException {
+        List<Feedback> feedbackList = new ArrayList<>();
+        try (Connection conn = DBUtil.getReadConnection(); // Read-only: may be served by a replica
              Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             ResultSet rs = stmt.executeQuery(ALL_FEEDBACK_SQL)) {
             while (rs.next()) {
-                Feedback feedback = mapResultSetToFeedback(rs);
-                feedback.setUserName(rs.getString("FullName")); // Might be null if user deleted
-                feedback.setProductName(rs.getString("ProductName")); // Might be null if product deleted
-                feedbackList.add(feedback);
+                feedbackList.add(mapResultSetToFeedbackWithDetails(rs));
             }
         }
         return feedbackList;
     }
 
+    /**
+     * Streams all feedback entries (newest first) with user and product names, one row at a time.
+     * (For Admin View) The caller must close the returned cursor.
+     */
+    public RowCursor<Feedback> openAllFeedbackCursor() throws SQLException {
+        Connection conn = DBUtil.getReadConnection(); // Read-only: may be served by a replica
+        return RowCursor.open(conn, ALL_FEEDBACK_SQL, RowCursor.DEFAULT_FETCH_SIZE, this::mapResultSetToFeedbackWithDetails);
+    }
+
+    private Feedback mapResultSetToFeedbackWithDetails(ResultSet rs) throws SQLException {
+        Feedback feedback = mapResultSetToFeedback(rs);
+        feedback.setUserName(rs.getString("FullName")); // Might be null if user deleted
+        feedback.setProductName(rs.getString("ProductName")); // Might be null if product deleted
+        return feedback;
+    }
+
 
     private Feedback mapResultSetToFeedback(ResultSet rs) throws SQLException {
         Timestamp ts = rs.getTimestamp("Timestamp");
@@ -2,6 +2,7 @@
 package managers;
 
 import db.DBUtil;
+import db.RowCursor;
 import models.Order;
 import models.OrderDetail;
 import models.Product; 
@@ -10,9 +11,11 @@ import core.IdGenerator;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 public class OrderManager {
 
@@ -22,10 +25,16 @@ public class OrderManager {
 
     // ... (getOrderDetailByOrderId, getOrderById, getOrdersByUserId, getAllOrders methods remain the same) ...
     public List<OrderDetail> getOrderDetailsByOrderId(String orderId) throws SQLException {
+        try (Connection conn = DBUtil.getConnection()) {
+            return getOrderDetailsByOrderId(conn, orderId);
+        }
+    }
+
+    // Reads details on the caller's connection so they come from the same server as the order rows
+    private List<OrderDetail> getOrderDetailsByOrderId(Connection conn, String orderId) throws SQLException {
         List<OrderDetail> details = new ArrayList<>();
         String sql = "SELECT * FROM OrderDetails WHERE OrderID = ?";
-        try (Connection conn = DBUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, orderId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
@@ -77,7 +86,7 @@ public class OrderManager {
                      "FROM Orders o " +
                      "LEFT JOIN Users u ON o.UserID = u.UserID " +
                      "WHERE o.UserID = ? ORDER BY o.OrderDate DESC";
-        try (Connection conn = DBUtil.getConnection();
+        try (Connection conn = DBUtil.getReadConnection(); // Read-only: may be served by a replica
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, userId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -91,7 +100,7 @@ public class OrderManager {
                         orderDateTime,
                         rs.getDouble("TotalAmount")
                     );
-                    order.setOrderDetails(getOrderDetailsByOrderId(order.getOrderId()));
+                    order.setOrderDetails(getOrderDetailsByOrderId(conn, order.getOrderId()));
                     orders.add(order);
                 }
             }
@@ -99,32 +108,46 @@ public class OrderManager {
         return orders;
     }
 
-    public List<Order> getAllOrders() throws SQLException { // For Admin
-        List<Order> orders = new ArrayList<>();
-        String sql = "SELECT o.*, u.FullName AS CustomerName " +
+    private static final String ALL_ORDERS_SQL = "SELECT o.*, u.FullName AS CustomerName " +
                      "FROM Orders o " +
                      "LEFT JOIN Users u ON o.UserID = u.UserID " +
                      "ORDER BY o.OrderDate DESC";
+
+    public List<Order> getAllOrders() throws SQLException { // For Admin
+        List<Order> orders = new ArrayList<>();
         try (Connection conn = DBUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
+             PreparedStatement pstmt = conn.prepareStatement(ALL_ORDERS_SQL);
              ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                 Timestamp orderTs = rs.getTimestamp("OrderDate");
-                 LocalDateTime orderDateTime = (orderTs != null) ? orderTs.toLocalDateTime() : null;
-                Order order = new Order(
-                    rs.getString("OrderID"),
-                    rs.getString("UserID"),
-                    rs.getString("CustomerName"),
-                    orderDateTime,
-                    rs.getDouble("TotalAmount")
-                );
-                order.setOrderDetails(getOrderDetailsByOrderId(order.getOrderId()));
-                orders.add(order);
+                orders.add(mapOrderWithDetails(conn, rs));
             }
         }
         return orders;
     }
 
+    /**
+     * Streams all orders (newest first) with their items, one order at a time, for the admin listing.
+     * The caller must close the returned cursor.
+     */
+    public RowCursor<Order> openAllOrdersCursor() throws SQLException { // For Admin
+        Connection conn = DBUtil.getConnection();
+        return RowCursor.open(conn, ALL_ORDERS_SQL, RowCursor.DEFAULT_FETCH_SIZE, rs -> mapOrderWithDetails(conn, rs));
+    }
+
+    private Order mapOrderWithDetails(Connection conn, ResultSet rs) throws SQLException {
+        Timestamp orderTs = rs.getTimestamp("OrderDate");
+        LocalDateTime orderDateTime = (orderTs != null) ? orderTs.toLocalDateTime() : null;
+        Order order = new Order(
+            rs.getString("OrderID"),
+            rs.getString("UserID"),
+            rs.getString("CustomerName"),
+            orderDateTime,
+            rs.getDouble("TotalAmount")
+        );
+        order.setOrderDetails(getOrderDetailsByOrderId(conn, order.getOrderId()));
+        return order;
+    }
+
 
     public String createOrder(String userId, List<OrderDetail> items, double totalAmount, String shippingAddress) throws SQLException {
         String orderId = IdGenerator.generateOrderId();
@@ -145,6 +168,45 @@ public class OrderManager {
                 orderPstmt.executeUpdate();
             }
 
+            // Lock product rows in ProductID order so concurrent checkouts of overlapping carts
+            // queue behind each other instead of deadlocking (before the detail inserts,
+            // whose foreign key checks would otherwise lock the same rows in cart order)
+            List<OrderDetail> stockOrder = new ArrayList<>(items);
+            stockOrder.sort(Comparator.comparing(OrderDetail::getProductId));
+            String updateStockSql = "UPDATE Products SET Stock = Stock - ? WHERE ProductID = ? AND Stock >= ?";
+            Map<String, Integer> newStock = new HashMap<>();
+            try (PreparedStatement stockPstmt = conn.prepareStatement(updateStockSql)) {
+                for (OrderDetail item : stockOrder) {
+                    stockPstmt.setInt(1, item.getQuantity());
+                    stockPstmt.setString(2, item.getProductId());
+                    stockPstmt.setInt(3, item.getQuantity());
+                    int rowsAffected = stockPstmt.executeUpdate();
+                    if (rowsAffected == 0) {
+                        conn.rollback();
+                        throw new SQLException("Insufficient stock for Product: " + item.getProductName());
+                    }
+                    newStock.put(item.getProductId(), null);
+                }
+            }
+            // Read the new stock levels back in one query per chunk; the rows are locked by our updates
+            List<String> updatedIds = new ArrayList<>(newStock.keySet());
+            for (int from = 0; from < updatedIds.size(); from += ProductManager.IN_CHUNK_SIZE) {
+                List<String> chunk = updatedIds.subList(from, Math.min(updatedIds.size(), from + ProductManager.IN_CHUNK_SIZE));
+                String newStockSql = "SELECT ProductID, Stock FROM Products WHERE ProductID IN ("
+                        + ProductManager.placeholders(chunk.size()) + ")";
+                try (PreparedStatement newStockPstmt = conn.prepareStatement(newStockSql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        newStockPstmt.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = newStockPstmt.executeQuery()) {
+                        while (rs.next()) {
+                            newStock.put(rs.getString("ProductID"), rs.getInt("Stock"));
+                        }
+                    }
+                }
+            }
+            newStock.values().removeIf(Objects::isNull);
+
             String detailSql = "INSERT INTO OrderDetails (OrderDetailID, OrderID, ProductID, ProductName, Quantity, PriceAtOrder) " +
                                "VALUES (?, ?, ?, ?, ?, ?)";
             try (PreparedStatement detailPstmt = conn.prepareStatement(detailSql)) {
@@ -160,23 +222,13 @@ public class OrderManager {
                     detailPstmt.setInt(5, item.getQuantity());
                     detailPstmt.setDouble(6, item.getPrice());
                     detailPstmt.addBatch();
-
-                    String updateStockSql = "UPDATE Products SET Stock = Stock - ? WHERE ProductID = ? AND Stock >= ?";
-                    try (PreparedStatement stockPstmt = conn.prepareStatement(updateStockSql)) {
-                        stockPstmt.setInt(1, item.getQuantity());
-                        stockPstmt.setString(2, item.getProductId());
-                        stockPstmt.setInt(3, item.getQuantity());
-                        int rowsAffected = stockPstmt.executeUpdate();
-                        if (rowsAffected == 0) {
-                            conn.rollback();
-                            throw new SQLException("Insufficient stock for Product: " + item.getProductName());
-                        }
-                    }
                 }
                 detailPstmt.executeBatch();
             }
+            long catalogVersion = ProductManager.bumpCatalogVersion(conn); // Last: the row stays locked until commit
 
             conn.commit();
+            ProductManager.catalogStockChanged(catalogVersion, newStock); // Applied to the catalog snapshot once committed
             return orderId;
 
         } catch (SQLException e) {
@@ -0,0 +1,479 @@
+package managers;
+
+import java.util.Arrays;
+
+/**
+ * An immutable compressed set of product ordinals, in the style of a Roaring bitmap.
+ *
+ * Ordinals are split by their high 16 bits into chunks of 65536. A chunk holding at most 4096 ordinals is
+ * stored as a sorted {@code char[]} of its low 16 bits (2 bytes per member); a denser chunk is stored as a
+ * plain 8 KB {@code long[1024]} bitset. Sparse facets (a small brand) therefore cost a few bytes per
+ * product, dense ones (in stock) one bit per product, and AND/OR/count run a word or a merge at a time.
+ *
+ * Updates return a new bitmap that shares every chunk except the one that changed.
+ */
+final class OrdinalBitmap {
+
+    private static final int ARRAY_MAX = 4096;     // Above this, a bitset chunk is smaller than an array chunk
+    private static final int BITSET_WORDS = 1024;
+
+    static final OrdinalBitmap EMPTY = new OrdinalBitmap(new char[0], new Object[0], new int[0]);
+
+    private final char[] keys;          // High 16 bits of each chunk, ascending
+    private final Object[] chunks;      // char[] (sorted low bits) or long[BITSET_WORDS]
+    private final int[] cardinalities;
+
+    private OrdinalBitmap(char[] keys, Object[] chunks, int[] cardinalities) {
+        this.keys = keys;
+        this.chunks = chunks;
+        this.cardinalities = cardinalities;
+    }
+
+    /**
+     * Builds a bitmap; ordinals must be added in ascending order.
+     */
+    static final class Builder {
+        private char[] keys = new char[4];
+        private Object[] chunks = new Object[4];
+        private int[] cardinalities = new int[4];
+        private int size = 0;
+        private char[] current = new char[16];
+        private int currentKey = -1;
+        private int currentSize = 0;
+
+        void add(int ordinal) {
+            int key = ordinal >>> 16;
+            if (key != currentKey) {
+                flush();
+                currentKey = key;
+            }
+            if (currentSize == current.length) {
+                current = Arrays.copyOf(current, currentSize * 2);
+            }
+            current[currentSize++] = (char) ordinal;
+        }
+
+        private void flush() {
+            if (currentSize == 0) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                chunks = Arrays.copyOf(chunks, size * 2);
+                cardinalities = Arrays.copyOf(cardinalities, size * 2);
+            }
+            keys[size] = (char) currentKey;
+            chunks[size] = compact(Arrays.copyOf(current, currentSize), currentSize);
+            cardinalities[size++] = currentSize;
+            currentSize = 0;
+        }
+
+        OrdinalBitmap build() {
+            flush();
+            return (size == 0) ? EMPTY : new OrdinalBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(chunks, size),
+                    Arrays.copyOf(cardinalities, size));
+        }
+    }
+
+    /**
+     * A bitmap of the given ascending ordinals.
+     */
+    static OrdinalBitmap of(int[] sortedOrdinals) {
+        Builder builder = new Builder();
+        int previous = -1;
+        for (int ordinal : sortedOrdinals) {
+            if (ordinal != previous) {
+                builder.add(ordinal);
+                previous = ordinal;
+            }
+        }
+        return builder.build();
+    }
+
+    int cardinality() {
+        int total = 0;
+        for (int cardinality : cardinalities) {
+            total += cardinality;
+        }
+        return total;
+    }
+
+    boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    boolean contains(int ordinal) {
+        int idx = Arrays.binarySearch(keys, (char) (ordinal >>> 16));
+        if (idx < 0) {
+            return false;
+        }
+        char low = (char) ordinal;
+        Object chunk = chunks[idx];
+        if (chunk instanceof char[]) {
+            return Arrays.binarySearch((char[]) chunk, low) >= 0;
+        }
+        return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+    }
+
+    OrdinalBitmap with(int ordinal) {
+        if (contains(ordinal)) {
+            return this;
+        }
+        char key = (char) (ordinal >>> 16);
+        char low = (char) ordinal;
+        int idx = Arrays.binarySearch(keys, key);
+        if (idx < 0) {
+            int insertAt = -idx - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Object[] newChunks = new Object[keys.length + 1];
+            int[] newCardinalities = new int[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(chunks, 0, newChunks, 0, insertAt);
+            System.arraycopy(cardinalities, 0, newCardinalities, 0, insertAt);
+            newKeys[insertAt] = key;
+            newChunks[insertAt] = new char[]{low};
+            newCardinalities[insertAt] = 1;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(chunks, insertAt, newChunks, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(cardinalities, insertAt, newCardinalities, insertAt + 1, keys.length - insertAt);
+            return new OrdinalBitmap(newKeys, newChunks, newCardinalities);
+        }
+        Object chunk = chunks[idx];
+        Object updated;
+        if (chunk instanceof char[]) {
+            char[] values = (char[]) chunk;
+            int insertAt = -Arrays.binarySearch(values, low) - 1;
+            char[] grown = new char[values.length + 1];
+            System.arraycopy(values, 0, grown, 0, insertAt);
+            grown[insertAt] = low;
+            System.arraycopy(values, insertAt, grown, insertAt + 1, values.length - insertAt);
+            updated = compact(grown, grown.length);
+        } else {
+            long[] words = ((long[]) chunk).clone();
+            words[low >>> 6] |= 1L << low;
+            updated = words;
+        }
+        return replaceChunk(idx, updated, cardinalities[idx] + 1);
+    }
+
+    OrdinalBitmap without(int ordinal) {
+        if (!contains(ordinal)) {
+            return this;
+        }
+        int idx = Arrays.binarySearch(keys, (char) (ordinal >>> 16));
+        char low = (char) ordinal;
+        int cardinality = cardinalities[idx] - 1;
+        if (cardinality == 0) {
+            char[] newKeys = new char[keys.length - 1];
+            Object[] newChunks = new Object[keys.length - 1];
+            int[] newCardinalities = new int[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, idx);
+            System.arraycopy(chunks, 0, newChunks, 0, idx);
+            System.arraycopy(cardinalities, 0, newCardinalities, 0, idx);
+            System.arraycopy(keys, idx + 1, newKeys, idx, keys.length - idx - 1);
+            System.arraycopy(chunks, idx + 1, newChunks, idx, keys.length - idx - 1);
+            System.arraycopy(cardinalities, idx + 1, newCardinalities, idx, keys.length - idx - 1);
+            return new OrdinalBitmap(newKeys, newChunks, newCardinalities);
+        }
+        Object chunk = chunks[idx];
+        Object updated;
+        if (chunk instanceof char[]) {
+            char[] values = (char[]) chunk;
+            int at = Arrays.binarySearch(values, low);
+            char[] shrunk = new char[values.length - 1];
+            System.arraycopy(values, 0, shrunk, 0, at);
+            System.arraycopy(values, at + 1, shrunk, at, values.length - at - 1);
+            updated = shrunk;
+        } else {
+            long[] words = ((long[]) chunk).clone();
+            words[low >>> 6] &= ~(1L << low);
+            updated = (cardinality <= ARRAY_MAX) ? toArray(words, cardinality) : words;
+        }
+        return replaceChunk(idx, updated, cardinality);
+    }
+
+    private OrdinalBitmap replaceChunk(int idx, Object chunk, int cardinality) {
+        Object[] newChunks = chunks.clone();
+        int[] newCardinalities = cardinalities.clone();
+        newChunks[idx] = chunk;
+        newCardinalities[idx] = cardinality;
+        return new OrdinalBitmap(keys, newChunks, newCardinalities);
+    }
+
+    OrdinalBitmap and(OrdinalBitmap other) {
+        char[] outKeys = new char[Math.min(keys.length, other.keys.length)];
+        Object[] outChunks = new Object[outKeys.length];
+        int[] outCardinalities = new int[outKeys.length];
+        int i = 0, j = 0, n = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Object chunk = andChunks(chunks[i], other.chunks[j]);
+                int cardinality = chunkCardinality(chunk);
+                if (cardinality > 0) {
+                    outKeys[n] = keys[i];
+                    outChunks[n] = chunk;
+                    outCardinalities[n++] = cardinality;
+                }
+                i++;
+                j++;
+            }
+        }
+        return (n == 0) ? EMPTY : new OrdinalBitmap(Arrays.copyOf(outKeys, n), Arrays.copyOf(outChunks, n),
+                Arrays.copyOf(outCardinalities, n));
+    }
+
+    OrdinalBitmap or(OrdinalBitmap other) {
+        char[] outKeys = new char[keys.length + other.keys.length];
+        Object[] outChunks = new Object[outKeys.length];
+        int[] outCardinalities = new int[outKeys.length];
+        int i = 0, j = 0, n = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j >= other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                outKeys[n] = keys[i];
+                outChunks[n] = chunks[i];
+                outCardinalities[n++] = cardinalities[i++];
+            } else if (i >= keys.length || other.keys[j] < keys[i]) {
+                outKeys[n] = other.keys[j];
+                outChunks[n] = other.chunks[j];
+                outCardinalities[n++] = other.cardinalities[j++];
+            } else {
+                Object chunk = orChunks(chunks[i++], other.chunks[j++]);
+                outKeys[n] = keys[i - 1];
+                outChunks[n] = chunk;
+                outCardinalities[n++] = chunkCardinality(chunk);
+            }
+        }
+        return new OrdinalBitmap(Arrays.copyOf(outKeys, n), Arrays.copyOf(outChunks, n), Arrays.copyOf(outCardinalities, n));
+    }
+
+    /**
+     * {@code this.and(other).cardinality()} without building the intersection.
+     */
+    int andCardinality(OrdinalBitmap other) {
+        int total = 0;
+        int i = 0, j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                total += andChunkCardinality(chunks[i++], other.chunks[j++]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * The members in ascending order.
+     */
+    int[] toArray() {
+        int[] out = new int[cardinality()];
+        int n = 0;
+        for (int c = 0; c < keys.length; c++) {
+            int high = keys[c] << 16;
+            Object chunk = chunks[c];
+            if (chunk instanceof char[]) {
+                for (char low : (char[]) chunk) {
+                    out[n++] = high | low;
+                }
+            } else {
+                long[] words = (long[]) chunk;
+                for (int w = 0; w < words.length; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        out[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Up to {@code limit} members greater than {@code after}, ascending; a seek, not a scan of the smaller ones.
+     */
+    int[] membersAfter(int after, int limit) {
+        int[] out = new int[Math.min(limit, cardinality())];
+        int n = 0;
+        int from = after + 1;
+        int c = Arrays.binarySearch(keys, (char) (from >>> 16));
+        if (c < 0) {
+            c = -c - 1;
+            from = -1; // The chunk holding 'from' is absent, so every later chunk is entirely after it
+        }
+        for (; c < keys.length && n < out.length; c++) {
+            int high = keys[c] << 16;
+            int lowFrom = (from >= 0 && (from >>> 16) == keys[c]) ? (from & 0xFFFF) : 0;
+            Object chunk = chunks[c];
+            if (chunk instanceof char[]) {
+                char[] values = (char[]) chunk;
+                int i = Arrays.binarySearch(values, (char) lowFrom);
+                for (i = (i >= 0) ? i : -i - 1; i < values.length && n < out.length; i++) {
+                    out[n++] = high | values[i];
+                }
+            } else {
+                long[] words = (long[]) chunk;
+                for (int w = lowFrom >>> 6; w < words.length && n < out.length; w++) {
+                    long word = (w == lowFrom >>> 6) ? words[w] & (-1L << (lowFrom & 63)) : words[w];
+                    while (word != 0 && n < out.length) {
+                        out[n++] = high | (w << 6) | Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        return (n == out.length) ? out : Arrays.copyOf(out, n);
+    }
+
+    private static Object andChunks(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b;
+            char[] out = new char[Math.min(x.length, y.length)];
+            int i = 0, j = 0, n = 0;
+            while (i < x.length && j < y.length) {
+                if (x[i] < y[j]) {
+                    i++;
+                } else if (x[i] > y[j]) {
+                    j++;
+                } else {
+                    out[n++] = x[i++];
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] values = (char[]) ((a instanceof char[]) ? a : b);
+            long[] words = (long[]) ((a instanceof char[]) ? b : a);
+            char[] out = new char[values.length];
+            int n = 0;
+            for (char v : values) {
+                if ((words[v >>> 6] & (1L << v)) != 0) {
+                    out[n++] = v;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        long[] x = (long[]) a, y = (long[]) b;
+        long[] out = new long[BITSET_WORDS];
+        int cardinality = 0;
+        for (int w = 0; w < BITSET_WORDS; w++) {
+            out[w] = x[w] & y[w];
+            cardinality += Long.bitCount(out[w]);
+        }
+        return (cardinality <= ARRAY_MAX) ? toArray(out, cardinality) : out;
+    }
+
+    private static Object orChunks(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b;
+            char[] out = new char[x.length + y.length];
+            int i = 0, j = 0, n = 0;
+            while (i < x.length || j < y.length) {
+                if (j >= y.length || (i < x.length && x[i] < y[j])) {
+                    out[n++] = x[i++];
+                } else if (i >= x.length || y[j] < x[i]) {
+                    out[n++] = y[j++];
+                } else {
+                    out[n++] = x[i++];
+                    j++;
+                }
+            }
+            return compact(out, n);
+        }
+        long[] out = new long[BITSET_WORDS];
+        for (Object chunk : new Object[]{a, b}) {
+            if (chunk instanceof char[]) {
+                for (char v : (char[]) chunk) {
+                    out[v >>> 6] |= 1L << v;
+                }
+            } else {
+                long[] words = (long[]) chunk;
+                for (int w = 0; w < BITSET_WORDS; w++) {
+                    out[w] |= words[w];
+                }
+            }
+        }
+        return out; // At least one input was a bitset, so the union is dense too
+    }
+
+    private static int andChunkCardinality(Object a, Object b) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] x = (long[]) a, y = (long[]) b;
+            int cardinality = 0;
+            for (int w = 0; w < BITSET_WORDS; w++) {
+                cardinality += Long.bitCount(x[w] & y[w]);
+            }
+            return cardinality;
+        }
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a, y = (char[]) b;
+            int i = 0, j = 0, cardinality = 0;
+            while (i < x.length && j < y.length) {
+                if (x[i] < y[j]) {
+                    i++;
+                } else if (x[i] > y[j]) {
+                    j++;
+                } else {
+                    cardinality++;
+                    i++;
+                    j++;
+                }
+            }
+            return cardinality;
+        }
+        char[] values = (char[]) ((a instanceof char[]) ? a : b);
+        long[] words = (long[]) ((a instanceof char[]) ? b : a);
+        int cardinality = 0;
+        for (char v : values) {
+            if ((words[v >>> 6] & (1L << v)) != 0) {
+                cardinality++;
+            }
+        }
+        return cardinality;
+    }
+
+    private static int chunkCardinality(Object chunk) {
+        if (chunk instanceof char[]) {
+            return ((char[]) chunk).length;
+        }
+        int cardinality = 0;
+        for (long word : (long[]) chunk) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    /**
+     * Stores {@code size} sorted low bits as an array chunk, or as a bitset chunk once that is smaller.
+     */
+    private static Object compact(char[] values, int size) {
+        if (size <= ARRAY_MAX) {
+            return (values.length == size) ? values : Arrays.copyOf(values, size);
+        }
+        long[] words = new long[BITSET_WORDS];
+        for (int i = 0; i < size; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toArray(long[] words, int cardinality) {
+        char[] out = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                out[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return out;
+    }
+}
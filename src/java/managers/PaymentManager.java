@@ -17,8 +17,8 @@ public class PaymentManager {
      * Records a payment for an order.
      * In a real app, this would involve more steps like payment gateway interaction.
      * For this demo, it just creates a record in the Payments table.
-     * This method assumes it's called within an existing transaction if part of an order process,
-     * or handles its own if called standalone. For simplicity now, handles its own.
+     * When called during a request it joins the request's unit of work (see db.UnitOfWork),
+     * so it commits together with the order; standalone it runs in its own auto-commit transaction.
      */
     public String recordPayment(String orderId, double amount, String paymentMethodDetails) throws SQLException {
         String paymentId = IdGenerator.generatePaymentId();
@@ -29,7 +29,7 @@ public class PaymentManager {
         String sql = "INSERT INTO Payments (PaymentID, OrderID, PaymentMethod, TransactionID, PaymentDate, Status) " +
                      "VALUES (?, ?, ?, ?, ?, ?)";
 
-        try (Connection conn = DBUtil.getConnection(); // Manages its own connection for this standalone recording
+        try (Connection conn = DBUtil.getConnection(); // Joins the request's unit of work when one is active
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
 
             pstmt.setString(1, paymentId);
@@ -0,0 +1,93 @@
+package managers;
+
+/**
+ * A price and/or stock change applied to every product matching a filter, for
+ * {@link ProductManager#bulkUpdateProducts(ProductBulkUpdate)}. At least one filter must be set, so a
+ * form submitted with nothing filled in can't reprice the whole catalog.
+ */
+public class ProductBulkUpdate {
+
+    public enum PriceChange {
+        NONE,
+        PERCENT,  // Price * (1 + value / 100), e.g. -10 for 10% off
+        AMOUNT,   // Price + value, floored at 0
+        SET;      // Price = value
+
+        /**
+         * Parses a request parameter, treating missing or unknown values as NONE.
+         */
+        public static PriceChange fromParameter(String value) {
+            if (value != null) {
+                for (PriceChange change : values()) {
+                    if (change.name().equalsIgnoreCase(value.trim())) {
+                        return change;
+                    }
+                }
+            }
+            return NONE;
+        }
+    }
+
+    private String categoryId;
+    private String brand;
+    private PriceChange priceChange = PriceChange.NONE;
+    private double priceValue;
+    private int stockDelta; // Added to stock, floored at 0
+
+    // --- Getters ---
+    public String getCategoryId() {
+        return categoryId;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public PriceChange getPriceChange() {
+        return priceChange;
+    }
+
+    public double getPriceValue() {
+        return priceValue;
+    }
+
+    public int getStockDelta() {
+        return stockDelta;
+    }
+
+    public boolean hasFilter() {
+        return categoryId != null || brand != null;
+    }
+
+    public boolean changesSomething() {
+        return priceChange != PriceChange.NONE || stockDelta != 0;
+    }
+
+    // --- Setters (blank strings clear the filter) ---
+    public void setCategoryId(String categoryId) {
+        this.categoryId = blankToNull(categoryId);
+    }
+
+    public void setBrand(String brand) {
+        this.brand = blankToNull(brand);
+    }
+
+    public void setPriceChange(PriceChange priceChange, double priceValue) {
+        this.priceChange = (priceChange != null) ? priceChange : PriceChange.NONE;
+        this.priceValue = priceValue;
+    }
+
+    public void setStockDelta(int stockDelta) {
+        this.stockDelta = stockDelta;
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.trim().isEmpty()) ? null : value.trim();
+    }
+
+    @Override
+    public String toString() {
+        return "category=" + categoryId + ", brand=" + brand + ", price " + priceChange
+                + (priceChange != PriceChange.NONE ? " " + priceValue : "") + ", stock " + (stockDelta >= 0 ? "+" : "") + stockDelta;
+    }
+}
@@ -0,0 +1,349 @@
+package managers;
+
+import models.Product;
+
+import java.util.Arrays;
+
+/**
+ * Column-oriented copy of the catalog's hot attributes, indexed by product ordinal.
+ *
+ * {@link Product} objects are fine for rendering a page but expensive to scan: every price or stock check
+ * dereferences a separate object. Here the price (in paise, so comparisons are exact) and stock of every
+ * product sit in one primitive array each, and ProductIDs map to ordinals through an open-addressing table
+ * of parallel arrays instead of a {@code HashMap<String, Integer>} with an entry and a boxed Integer per
+ * product. Range filters, price sorts and aggregations walk these arrays and allocate nothing per product.
+ * A price-ordered permutation of the live ordinals is kept as well, so a price sort of a large result is a
+ * filtered pass over it and the cheapest and dearest match are usually found within a few steps.
+ *
+ * Category and brand already have per-ordinal value-id columns inside {@link ProductFacetIndex}, so they
+ * are not repeated here.
+ *
+ * Immutable; the {@code with...} methods return a new store, copying only the columns that changed.
+ */
+final class ProductColumnStore {
+
+    static final long NO_PRICE = -1;            // Price column value for a deleted ordinal
+
+    private static final int ORDINAL_BITS = 29;  // Packed sort keys: 34 bits of paise (DECIMAL(10,2)) + ordinal
+
+    private final String[] idSlots;              // Open addressing, linear probing; null = empty slot
+    private final int[] ordinalSlots;            // -1 = the ID was deleted (the slot stays as a tombstone)
+    private final int usedSlots;
+    private final long[] priceCents;
+    private final int[] stock;
+    private final int[] ordinalsByPrice;         // Live ordinals by (price, ordinal)
+
+    private ProductColumnStore(String[] idSlots, int[] ordinalSlots, int usedSlots, long[] priceCents, int[] stock,
+                               int[] ordinalsByPrice) {
+        this.idSlots = idSlots;
+        this.ordinalSlots = ordinalSlots;
+        this.usedSlots = usedSlots;
+        this.priceCents = priceCents;
+        this.stock = stock;
+        this.ordinalsByPrice = ordinalsByPrice;
+    }
+
+    static ProductColumnStore build(Product[] productsByOrdinal) {
+        int capacity = tableCapacity(productsByOrdinal.length);
+        String[] idSlots = new String[capacity];
+        int[] ordinalSlots = new int[capacity];
+        long[] priceCents = new long[productsByOrdinal.length];
+        int[] stock = new int[productsByOrdinal.length];
+        int used = 0;
+        int live = 0;
+        for (int ordinal = 0; ordinal < productsByOrdinal.length; ordinal++) {
+            Product product = productsByOrdinal[ordinal];
+            if (product == null) {
+                priceCents[ordinal] = NO_PRICE;
+                continue;
+            }
+            if (put(idSlots, ordinalSlots, product.getProductId(), ordinal)) {
+                used++;
+            }
+            priceCents[ordinal] = toCents(product.getPrice());
+            stock[ordinal] = product.getStock();
+            live++;
+        }
+        int[] ordinalsByPrice = new int[live];
+        int n = 0;
+        for (int ordinal = 0; ordinal < productsByOrdinal.length; ordinal++) {
+            if (priceCents[ordinal] != NO_PRICE) {
+                ordinalsByPrice[n++] = ordinal;
+            }
+        }
+        return new ProductColumnStore(idSlots, ordinalSlots, used, priceCents, stock,
+                sortByPrice(ordinalsByPrice, priceCents, false));
+    }
+
+    /**
+     * Returns a new store with {@code product} at {@code ordinal}; an ordinal equal to
+     * {@link #ordinalLimit()} appends.
+     */
+    ProductColumnStore withProduct(int ordinal, Product product) {
+        int limit = Math.max(priceCents.length, ordinal + 1);
+        long[] newPriceCents = Arrays.copyOf(priceCents, limit);
+        int[] newStock = Arrays.copyOf(stock, limit);
+        Arrays.fill(newPriceCents, priceCents.length, limit, NO_PRICE);
+        newPriceCents[ordinal] = toCents(product.getPrice());
+        newStock[ordinal] = product.getStock();
+        int[] newOrdinalsByPrice = ordinalsByPrice;
+        if (newPriceCents[ordinal] != priceCentsOrNone(ordinal)) {
+            newOrdinalsByPrice = insertByPrice(removeByPrice(ordinalsByPrice, ordinal), ordinal, newPriceCents);
+        }
+        if (ordinalOf(product.getProductId()) == ordinal) {
+            return new ProductColumnStore(idSlots, ordinalSlots, usedSlots, newPriceCents, newStock, newOrdinalsByPrice);
+        }
+        String[] newIdSlots;
+        int[] newOrdinalSlots;
+        int used = usedSlots;
+        if (tableCapacity(usedSlots + 1) > idSlots.length) {
+            newIdSlots = new String[tableCapacity(usedSlots + 1)];
+            newOrdinalSlots = new int[newIdSlots.length];
+            used = 0;
+            for (int slot = 0; slot < idSlots.length; slot++) {
+                if (idSlots[slot] != null && ordinalSlots[slot] >= 0) { // Tombstones are dropped when growing
+                    put(newIdSlots, newOrdinalSlots, idSlots[slot], ordinalSlots[slot]);
+                    used++;
+                }
+            }
+        } else {
+            newIdSlots = idSlots.clone();
+            newOrdinalSlots = ordinalSlots.clone();
+        }
+        if (put(newIdSlots, newOrdinalSlots, product.getProductId(), ordinal)) {
+            used++;
+        }
+        return new ProductColumnStore(newIdSlots, newOrdinalSlots, used, newPriceCents, newStock, newOrdinalsByPrice);
+    }
+
+    /**
+     * Returns a new store without the given product; its ordinal becomes a hole.
+     */
+    ProductColumnStore withoutProduct(String productId) {
+        int slot = find(idSlots, productId);
+        if (slot < 0 || ordinalSlots[slot] < 0) {
+            return this;
+        }
+        int ordinal = ordinalSlots[slot];
+        int[] newOrdinalSlots = ordinalSlots.clone();
+        newOrdinalSlots[slot] = -1; // Tombstone: the ID keeps its slot so probe chains through it stay intact
+        long[] newPriceCents = priceCents.clone();
+        int[] newStock = stock.clone();
+        newPriceCents[ordinal] = NO_PRICE;
+        newStock[ordinal] = 0;
+        return new ProductColumnStore(idSlots, newOrdinalSlots, usedSlots, newPriceCents, newStock,
+                removeByPrice(ordinalsByPrice, ordinal));
+    }
+
+    /**
+     * Returns a new store with {@code stock[i]} as the stock of the product at {@code ordinals[i]}.
+     */
+    ProductColumnStore withStock(int[] ordinals, int[] stock) {
+        int[] newStock = this.stock.clone();
+        for (int i = 0; i < ordinals.length; i++) {
+            newStock[ordinals[i]] = stock[i];
+        }
+        return new ProductColumnStore(idSlots, ordinalSlots, usedSlots, priceCents, newStock, ordinalsByPrice);
+    }
+
+    /**
+     * The ordinal of a product, or -1 if there is no such (live) product.
+     */
+    int ordinalOf(String productId) {
+        int slot = find(idSlots, productId);
+        return (slot >= 0) ? ordinalSlots[slot] : -1;
+    }
+
+    int ordinalLimit() {
+        return priceCents.length;
+    }
+
+    long priceCents(int ordinal) {
+        return priceCents[ordinal];
+    }
+
+    int stock(int ordinal) {
+        return stock[ordinal];
+    }
+
+    /**
+     * The members of {@code candidates} priced within [{@code minPrice}, {@code maxPrice}] (null = unbounded).
+     */
+    OrdinalBitmap priceBetween(OrdinalBitmap candidates, Double minPrice, Double maxPrice) {
+        long min = (minPrice != null) ? (long) Math.ceil(minPrice * 100 - 1e-6) : Long.MIN_VALUE;
+        long max = (maxPrice != null) ? (long) Math.floor(maxPrice * 100 + 1e-6) : Long.MAX_VALUE;
+        OrdinalBitmap.Builder builder = new OrdinalBitmap.Builder();
+        for (int ordinal : candidates.toArray()) {
+            long cents = priceCents[ordinal];
+            if (cents >= min && cents <= max) {
+                builder.add(ordinal);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * The members of {@code matches} by price, ties in ordinal order; null if ordinals are too large to pack.
+     * Ties come out in name order only while ordinals are, which the caller checks.
+     */
+    int[] sortByPrice(OrdinalBitmap matches, boolean descending) {
+        if (priceCents.length > (1 << ORDINAL_BITS)) {
+            return null;
+        }
+        int count = matches.cardinality();
+        if ((long) count * 8 < ordinalsByPrice.length) { // Few matches: sorting them beats a pass over everything
+            return sortByPrice(matches.toArray(), priceCents, descending);
+        }
+        int[] sorted = new int[count];
+        int n = 0;
+        for (int i = 0; i < ordinalsByPrice.length && n < count; i++) {
+            int ordinal = descending ? ordinalsByPrice[ordinalsByPrice.length - 1 - i] : ordinalsByPrice[i];
+            if (matches.contains(ordinal)) {
+                sorted[n++] = ordinal;
+            }
+        }
+        if (descending) { // Walking backwards left equal prices in descending ordinal order
+            for (int start = 0, end; start < n; start = end) {
+                end = start + 1;
+                while (end < n && priceCents[sorted[end]] == priceCents[sorted[start]]) {
+                    end++;
+                }
+                for (int i = start, j = end - 1; i < j; i++, j--) {
+                    int swap = sorted[i];
+                    sorted[i] = sorted[j];
+                    sorted[j] = swap;
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * {lowest, highest} price in paise among {@code members}, or null if it is empty.
+     */
+    long[] priceRangeCents(OrdinalBitmap members) {
+        if (members.isEmpty()) {
+            return null;
+        }
+        if ((long) members.cardinality() * 64 < ordinalsByPrice.length) { // Sparse: the ends could be far apart
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int ordinal : members.toArray()) {
+                min = Math.min(min, priceCents[ordinal]);
+                max = Math.max(max, priceCents[ordinal]);
+            }
+            return new long[]{min, max};
+        }
+        int low = 0;
+        while (!members.contains(ordinalsByPrice[low])) {
+            low++;
+        }
+        int high = ordinalsByPrice.length - 1;
+        while (!members.contains(ordinalsByPrice[high])) {
+            high--;
+        }
+        return new long[]{priceCents[ordinalsByPrice[low]], priceCents[ordinalsByPrice[high]]};
+    }
+
+    static long toCents(double price) {
+        return Math.round(price * 100);
+    }
+
+    private long priceCentsOrNone(int ordinal) {
+        return (ordinal < priceCents.length) ? priceCents[ordinal] : NO_PRICE;
+    }
+
+    /**
+     * Sorts {@code ordinals} in place by (price, ordinal), or by price descending then ordinal.
+     */
+    private static int[] sortByPrice(int[] ordinals, long[] priceCents, boolean descending) {
+        long[] keys = new long[ordinals.length];
+        for (int i = 0; i < ordinals.length; i++) {
+            long cents = priceCents[ordinals[i]];
+            keys[i] = ((descending ? (1L << 34) - 1 - cents : cents) << ORDINAL_BITS) | ordinals[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            ordinals[i] = (int) (keys[i] & ((1 << ORDINAL_BITS) - 1));
+        }
+        return ordinals;
+    }
+
+    /**
+     * Position of {@code ordinal} at {@code cents} in a (price, ordinal) ordering, as Arrays.binarySearch returns it.
+     */
+    private static int positionByPrice(int[] byPrice, long[] priceCents, int ordinal, long cents) {
+        int low = 0;
+        int high = byPrice.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midCents = priceCents[byPrice[mid]];
+            int cmp = (midCents != cents) ? Long.compare(midCents, cents) : Integer.compare(byPrice[mid], ordinal);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int[] removeByPrice(int[] byPrice, int ordinal) {
+        long cents = priceCentsOrNone(ordinal);
+        if (cents == NO_PRICE) {
+            return byPrice;
+        }
+        int at = positionByPrice(byPrice, priceCents, ordinal, cents);
+        int[] removed = new int[byPrice.length - 1];
+        System.arraycopy(byPrice, 0, removed, 0, at);
+        System.arraycopy(byPrice, at + 1, removed, at, removed.length - at);
+        return removed;
+    }
+
+    private static int[] insertByPrice(int[] byPrice, int ordinal, long[] priceCents) {
+        int at = -positionByPrice(byPrice, priceCents, ordinal, priceCents[ordinal]) - 1;
+        int[] inserted = new int[byPrice.length + 1];
+        System.arraycopy(byPrice, 0, inserted, 0, at);
+        inserted[at] = ordinal;
+        System.arraycopy(byPrice, at, inserted, at + 1, byPrice.length - at);
+        return inserted;
+    }
+
+    private static int tableCapacity(int entries) {
+        int capacity = 16;
+        while (capacity < entries * 2) { // Load factor <= 0.5 keeps probe chains short
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slotFor(String id, int capacity) {
+        int h = id.hashCode() * 0x9E3779B9; // Spread the bits; String hashes of sequential IDs cluster
+        return (h ^ (h >>> 16)) & (capacity - 1);
+    }
+
+    private static int find(String[] idSlots, String id) {
+        for (int slot = slotFor(id, idSlots.length); idSlots[slot] != null; slot = (slot + 1) & (idSlots.length - 1)) {
+            if (idSlots[slot].equals(id)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Maps {@code id} to {@code ordinal}; returns true if it took a new slot.
+     */
+    private static boolean put(String[] idSlots, int[] ordinalSlots, String id, int ordinal) {
+        int slot = slotFor(id, idSlots.length);
+        while (idSlots[slot] != null && !idSlots[slot].equals(id)) {
+            slot = (slot + 1) & (idSlots.length - 1);
+        }
+        boolean added = idSlots[slot] == null;
+        idSlots[slot] = id;
+        ordinalSlots[slot] = ordinal;
+        return added;
+    }
+}
@@ -0,0 +1,345 @@
+package managers;
+
+import models.Product;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prefix completions for product names and brands, ranked by units sold.
+ *
+ * The trie is stored in flat parallel arrays (one slot per node) rather than as node objects, and every
+ * node holds its precomputed top-k completions, so a lookup is a walk of at most {@code prefix.length()}
+ * binary searches followed by copying k precomputed JSON fragments to the response. Nodes are only
+ * created while more than k keys share a prefix; below that a node is a bucket whose (at most k) entries
+ * are filtered by the rest of the prefix, which keeps the trie small for long names.
+ *
+ * Instances are immutable; {@link ProductManager} rebuilds them periodically from the catalog and sales.
+ */
+public final class ProductCompletionTrie {
+
+    public static final int MAX_COMPLETIONS = 10;
+
+    private final long builtAtMillis;
+
+    // Entries, sorted by key
+    private final String[] keys;
+    private final long[] weights;
+    private final String[] json;
+
+    // Nodes, in breadth-first order so that the children of a node are contiguous
+    private final char[] labels;
+    private final int[] childStart;
+    private final int[] childCount;
+    private final int[] topStart;     // Into topEntries; best first
+    private final int[] topCount;
+    private final int[] topEntries;
+
+    private ProductCompletionTrie(long builtAtMillis, String[] keys, long[] weights, String[] json, char[] labels,
+                                  int[] childStart, int[] childCount, int[] topStart, int[] topCount, int[] topEntries) {
+        this.builtAtMillis = builtAtMillis;
+        this.keys = keys;
+        this.weights = weights;
+        this.json = json;
+        this.labels = labels;
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.topCount = topCount;
+        this.topEntries = topEntries;
+    }
+
+    /**
+     * Builds a trie over the names of {@code products} and their distinct brands.
+     *
+     * @param unitsSoldByProductId total quantity ordered per product; missing products count as 0.
+     */
+    static ProductCompletionTrie build(Collection<Product> products, Map<String, Long> unitsSoldByProductId) {
+        Map<String, Entry> entriesByKey = new HashMap<>(products.size() * 2);
+        Map<String, Entry> brands = new HashMap<>();
+        for (Product product : products) {
+            long sold = unitsSoldByProductId.getOrDefault(product.getProductId(), 0L);
+            String key = normalize(product.getName());
+            if (!key.isEmpty()) {
+                Entry entry = new Entry(key, sold, "{\"text\":\"" + jsonEscape(product.getName())
+                        + "\",\"type\":\"product\",\"id\":\"" + jsonEscape(product.getProductId()) + "\"}");
+                entriesByKey.merge(key, entry, (a, b) -> a.weight >= b.weight ? a : b); // Same name: best seller wins
+            }
+            String brandKey = normalize(product.getBrand());
+            if (!brandKey.isEmpty()) {
+                Entry brand = brands.computeIfAbsent(brandKey, k -> new Entry(k, 0, "{\"text\":\""
+                        + jsonEscape(product.getBrand().trim()) + "\",\"type\":\"brand\"}"));
+                brand.weight += sold + 1; // Every product counts a little, so unsold brands still rank by range
+            }
+        }
+        for (Entry brand : brands.values()) {
+            entriesByKey.merge(brand.key, brand, (product, b) -> product.weight >= b.weight ? product : b);
+        }
+
+        Entry[] entries = entriesByKey.values().toArray(new Entry[0]);
+        Arrays.sort(entries, (a, b) -> a.key.compareTo(b.key));
+        String[] keys = new String[entries.length];
+        long[] weights = new long[entries.length];
+        String[] json = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            keys[i] = entries[i].key;
+            weights[i] = entries[i].weight;
+            json[i] = entries[i].json;
+        }
+        return new Builder(keys, weights, json).build();
+    }
+
+    /**
+     * When this trie was built; also serves as its version for HTTP validators.
+     */
+    public long getBuiltAtMillis() {
+        return builtAtMillis;
+    }
+
+    /**
+     * Writes the best {@code limit} completions of {@code prefix} as a JSON array of
+     * {@code {"text":..., "type":"product"|"brand", "id":...}} objects.
+     */
+    public void writeCompletionsJson(String prefix, int limit, Writer out) throws IOException {
+        limit = Math.min(limit, MAX_COMPLETIONS);
+        String key = normalize(prefix);
+        out.write('[');
+        int node = key.isEmpty() ? -1 : 0;
+        int depth = 0;
+        while (node >= 0 && depth < key.length() && childCount[node] > 0) {
+            node = findChild(node, key.charAt(depth++));
+        }
+        if (node >= 0) {
+            int written = 0;
+            boolean bucket = depth < key.length(); // Ran out of nodes: filter the bucket by the rest of the prefix
+            for (int i = topStart[node], end = topStart[node] + topCount[node]; i < end && written < limit; i++) {
+                int entry = topEntries[i];
+                if (!bucket || keys[entry].startsWith(key)) {
+                    if (written++ > 0) {
+                        out.write(',');
+                    }
+                    out.write(json[entry]);
+                }
+            }
+        }
+        out.write(']');
+    }
+
+    private int findChild(int node, char c) {
+        int lo = childStart[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (labels[mid] < c) {
+                lo = mid + 1;
+            } else if (labels[mid] > c) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int getEntryCount() {
+        return keys.length;
+    }
+
+    public int getNodeCount() {
+        return labels.length;
+    }
+
+    /**
+     * Lowercases and collapses whitespace, so "Logitech  G915" and "logitech g915" complete alike.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static String jsonEscape(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '<': sb.append("\\u003c"); break; // Safe to embed in HTML too
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static final class Entry {
+        final String key;
+        long weight;
+        final String json;
+
+        Entry(String key, long weight, String json) {
+            this.key = key;
+            this.weight = weight;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Lays out the nodes breadth-first over the sorted keys, then fills in top-k lists bottom-up.
+     */
+    private static final class Builder {
+        private final String[] keys;
+        private final long[] weights;
+        private final String[] json;
+
+        private char[] labels = new char[1024];
+        private int[] childStart = new int[1024];
+        private int[] childCount = new int[1024];
+        private int[] rangeStart = new int[1024];  // Keys [rangeStart, rangeEnd) share the node's prefix
+        private int[] rangeEnd = new int[1024];
+        private int[] depths = new int[1024];
+        private int nodeCount = 0;
+
+        Builder(String[] keys, long[] weights, String[] json) {
+            this.keys = keys;
+            this.weights = weights;
+            this.json = json;
+        }
+
+        ProductCompletionTrie build() {
+            addNode('\0', 0, keys.length, 0); // Root
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(0);
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                if (rangeEnd[node] - rangeStart[node] <= MAX_COMPLETIONS) {
+                    continue; // Bucket: few enough keys to filter at lookup time
+                }
+                int depth = depths[node];
+                int i = rangeStart[node];
+                while (i < rangeEnd[node] && keys[i].length() == depth) {
+                    i++; // Keys ending exactly here sort first and stay in this node's range only
+                }
+                childStart[node] = nodeCount;
+                while (i < rangeEnd[node]) {
+                    char c = keys[i].charAt(depth);
+                    int j = i + 1;
+                    while (j < rangeEnd[node] && keys[j].charAt(depth) == c) {
+                        j++;
+                    }
+                    queue.add(addNode(c, i, j, depth + 1));
+                    i = j;
+                }
+                childCount[node] = nodeCount - childStart[node];
+            }
+
+            int[] topStart = new int[nodeCount];
+            int[] topCount = new int[nodeCount];
+            int[][] tops = new int[nodeCount][];
+            int totalTop = 0;
+            for (int node = nodeCount - 1; node >= 0; node--) { // Children always come after their parent
+                tops[node] = topK(node, tops);
+                totalTop += tops[node].length;
+            }
+            int[] topEntries = new int[totalTop];
+            int offset = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                topStart[node] = offset;
+                topCount[node] = tops[node].length;
+                System.arraycopy(tops[node], 0, topEntries, offset, tops[node].length);
+                offset += tops[node].length;
+            }
+            return new ProductCompletionTrie(System.currentTimeMillis(), keys, weights, json,
+                    Arrays.copyOf(labels, nodeCount), Arrays.copyOf(childStart, nodeCount),
+                    Arrays.copyOf(childCount, nodeCount), topStart, topCount, topEntries);
+        }
+
+        /**
+         * The best entries under {@code node}: a bucket ranks its own range; an inner node merges its
+         * children's lists with the keys that end at the node.
+         */
+        private int[] topK(int node, int[][] tops) {
+            int[] candidates;
+            if (childCount[node] == 0) {
+                candidates = new int[rangeEnd[node] - rangeStart[node]];
+                for (int i = 0; i < candidates.length; i++) {
+                    candidates[i] = rangeStart[node] + i;
+                }
+            } else {
+                int size = 0;
+                for (int child = childStart[node]; child < childStart[node] + childCount[node]; child++) {
+                    size += tops[child].length;
+                }
+                int ending = 0;
+                while (rangeStart[node] + ending < rangeEnd[node] && keys[rangeStart[node] + ending].length() == depths[node]) {
+                    ending++;
+                }
+                candidates = new int[size + ending];
+                int n = 0;
+                for (int i = 0; i < ending; i++) {
+                    candidates[n++] = rangeStart[node] + i;
+                }
+                for (int child = childStart[node]; child < childStart[node] + childCount[node]; child++) {
+                    System.arraycopy(tops[child], 0, candidates, n, tops[child].length);
+                    n += tops[child].length;
+                }
+            }
+            // Heaviest first; equal weights in key order (shorter, alphabetically earlier completions first).
+            // Sorted as packed primitives: inverted weight (capped at 2^31 - 1) in the high half, entry in the low half.
+            long[] packed = new long[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                long weight = Math.min(weights[candidates[i]], Integer.MAX_VALUE);
+                packed[i] = ((Integer.MAX_VALUE - weight) << 32) | candidates[i];
+            }
+            Arrays.sort(packed);
+            int[] top = new int[Math.min(MAX_COMPLETIONS, packed.length)];
+            for (int i = 0; i < top.length; i++) {
+                top[i] = (int) packed[i];
+            }
+            return top;
+        }
+
+        private int addNode(char label, int start, int end, int depth) {
+            if (nodeCount == labels.length) {
+                int capacity = nodeCount * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                childStart = Arrays.copyOf(childStart, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                rangeStart = Arrays.copyOf(rangeStart, capacity);
+                rangeEnd = Arrays.copyOf(rangeEnd, capacity);
+                depths = Arrays.copyOf(depths, capacity);
+            }
+            labels[nodeCount] = label;
+            rangeStart[nodeCount] = start;
+            rangeEnd[nodeCount] = end;
+            depths[nodeCount] = depth;
+            return nodeCount++;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package managers;
+
+import models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Bitmap indexes over product ordinals for the catalog filters: one {@link OrdinalBitmap} per category,
+ * per brand, per price bucket, plus the in-stock and live (not deleted) sets.
+ *
+ * A filter is the AND of the relevant bitmaps, and a facet count is the popcount of that AND with the
+ * facet value's bitmap (or, when the filtered set is small, a visit of its members), so neither scans the
+ * catalog. Price ranges are answered from whole buckets, checking actual prices (in the
+ * {@link ProductColumnStore} price column) only in the (at most two) buckets the range cuts through.
+ *
+ * Immutable; {@link #withDocument} returns a new index that shares every bitmap the change didn't touch.
+ */
+final class ProductFacetIndex {
+
+    // Upper bounds (exclusive) of the price buckets, in rupees; the last bucket is open-ended
+    private static final double[] PRICE_BUCKET_BOUNDS = {500, 1000, 2500, 5000, 10000, 25000, 50000, 100000};
+
+    private final OrdinalBitmap live;
+    private final OrdinalBitmap inStock;
+    private final Facet categories;
+    private final Facet brands;                           // Keyed by brandKey()
+    private final Map<String, String> brandNames;         // brandKey() -> brand as first seen
+    private final OrdinalBitmap[] byPriceBucket;
+
+    private ProductFacetIndex(OrdinalBitmap live, OrdinalBitmap inStock, Facet categories, Facet brands,
+                              Map<String, String> brandNames, OrdinalBitmap[] byPriceBucket) {
+        this.live = live;
+        this.inStock = inStock;
+        this.categories = categories;
+        this.brands = brands;
+        this.brandNames = brandNames;
+        this.byPriceBucket = byPriceBucket;
+    }
+
+    static ProductFacetIndex build(Product[] productsByOrdinal) {
+        OrdinalBitmap.Builder live = new OrdinalBitmap.Builder();
+        OrdinalBitmap.Builder inStock = new OrdinalBitmap.Builder();
+        String[] categoryKeys = new String[productsByOrdinal.length];
+        String[] brandKeys = new String[productsByOrdinal.length];
+        Map<String, String> brandNames = new HashMap<>();
+        OrdinalBitmap.Builder[] buckets = new OrdinalBitmap.Builder[PRICE_BUCKET_BOUNDS.length + 1];
+        for (int b = 0; b < buckets.length; b++) {
+            buckets[b] = new OrdinalBitmap.Builder();
+        }
+        for (int ordinal = 0; ordinal < productsByOrdinal.length; ordinal++) { // Ascending, as the builders require
+            Product product = productsByOrdinal[ordinal];
+            if (product == null) {
+                continue;
+            }
+            live.add(ordinal);
+            if (product.getStock() > 0) {
+                inStock.add(ordinal);
+            }
+            categoryKeys[ordinal] = product.getCategoryId();
+            brandKeys[ordinal] = brandKey(product.getBrand());
+            if (brandKeys[ordinal] != null) {
+                brandNames.putIfAbsent(brandKeys[ordinal], product.getBrand().trim());
+            }
+            buckets[priceBucket(product.getPrice())].add(ordinal);
+        }
+        OrdinalBitmap[] byPriceBucket = new OrdinalBitmap[buckets.length];
+        for (int b = 0; b < buckets.length; b++) {
+            byPriceBucket[b] = buckets[b].build();
+        }
+        return new ProductFacetIndex(live.build(), inStock.build(), Facet.build(categoryKeys), Facet.build(brandKeys),
+                brandNames, byPriceBucket);
+    }
+
+    /**
+     * Returns a new index in which the product at {@code ordinal} changed from {@code before} (null if new)
+     * to {@code after} (null if deleted).
+     */
+    ProductFacetIndex withDocument(int ordinal, Product before, Product after) {
+        OrdinalBitmap newLive = (after != null) ? live.with(ordinal) : live.without(ordinal);
+        boolean wasInStock = before != null && before.getStock() > 0;
+        boolean isInStock = after != null && after.getStock() > 0;
+        OrdinalBitmap newInStock = (wasInStock == isInStock) ? inStock
+                : (isInStock ? inStock.with(ordinal) : inStock.without(ordinal));
+
+        Facet newCategories = categories.with(ordinal, (before != null) ? before.getCategoryId() : null,
+                (after != null) ? after.getCategoryId() : null);
+
+        String newBrand = (after != null) ? brandKey(after.getBrand()) : null;
+        Facet newBrands = brands.with(ordinal, (before != null) ? brandKey(before.getBrand()) : null, newBrand);
+        Map<String, String> newBrandNames = brandNames;
+        if (newBrand != null && !brandNames.containsKey(newBrand)) {
+            newBrandNames = new HashMap<>(brandNames);
+            newBrandNames.put(newBrand, after.getBrand().trim());
+        }
+
+        int oldBucket = (before != null) ? priceBucket(before.getPrice()) : -1;
+        int newBucket = (after != null) ? priceBucket(after.getPrice()) : -1;
+        OrdinalBitmap[] newByPriceBucket = byPriceBucket;
+        if (oldBucket != newBucket) {
+            newByPriceBucket = byPriceBucket.clone();
+            if (oldBucket >= 0) {
+                newByPriceBucket[oldBucket] = byPriceBucket[oldBucket].without(ordinal);
+            }
+            if (newBucket >= 0) {
+                newByPriceBucket[newBucket] = byPriceBucket[newBucket].with(ordinal);
+            }
+        }
+        return new ProductFacetIndex(newLive, newInStock, newCategories, newBrands, newBrandNames, newByPriceBucket);
+    }
+
+    /**
+     * Products passing the stock and price filters (the filters that are not facets).
+     */
+    OrdinalBitmap baseFilter(boolean inStockOnly, Double minPrice, Double maxPrice, ProductColumnStore columns) {
+        OrdinalBitmap result = inStockOnly ? inStock : live;
+        if (minPrice == null && maxPrice == null) {
+            return result;
+        }
+        int firstBucket = (minPrice != null) ? priceBucket(minPrice) : 0;
+        int lastBucket = (maxPrice != null) ? priceBucket(maxPrice) : byPriceBucket.length - 1;
+        OrdinalBitmap inRange = OrdinalBitmap.EMPTY;
+        for (int b = firstBucket; b <= lastBucket; b++) {
+            OrdinalBitmap bucket = byPriceBucket[b];
+            boolean cutByMin = minPrice != null && b == firstBucket && minPrice > lowerBound(b);
+            boolean cutByMax = maxPrice != null && b == lastBucket;  // Bucket upper bounds are exclusive
+            if (cutByMin || cutByMax) {
+                bucket = columns.priceBetween(bucket.and(result), minPrice, maxPrice);
+            }
+            inRange = inRange.or(bucket);
+        }
+        return result.and(inRange);
+    }
+
+    /**
+     * The category's bitmap, or null (no filter) for a null category.
+     */
+    OrdinalBitmap category(String categoryId) {
+        return (categoryId != null) ? categories.bitmap(categoryId) : null;
+    }
+
+    /**
+     * The brand's bitmap (case-insensitive), or null (no filter) for a null brand.
+     */
+    OrdinalBitmap brand(String brand) {
+        if (brand == null) {
+            return null;
+        }
+        String key = brandKey(brand);
+        return (key != null) ? brands.bitmap(key) : OrdinalBitmap.EMPTY;
+    }
+
+    /**
+     * Number of products in {@code filter} per category ID (categories with none are omitted).
+     */
+    Map<String, Integer> countCategories(OrdinalBitmap filter) {
+        return categories.count(filter);
+    }
+
+    /**
+     * Number of products in {@code filter} per brand, keyed by display name (brands with none are omitted).
+     */
+    Map<String, Integer> countBrands(OrdinalBitmap filter) {
+        Map<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, Integer> entry : brands.count(filter).entrySet()) {
+            counts.put(brandNames.getOrDefault(entry.getKey(), entry.getKey()), entry.getValue());
+        }
+        return counts;
+    }
+
+    private static String brandKey(String brand) {
+        if (brand == null || brand.trim().isEmpty()) {
+            return null;
+        }
+        return brand.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket < PRICE_BUCKET_BOUNDS.length && price >= PRICE_BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private static double lowerBound(int bucket) {
+        return (bucket == 0) ? Double.NEGATIVE_INFINITY : PRICE_BUCKET_BOUNDS[bucket - 1];
+    }
+
+    /**
+     * One facet (category or brand): a bitmap per value, plus each product's value id so that counts over
+     * a small filter can be taken by visiting its members instead of intersecting every value's bitmap.
+     */
+    private static final class Facet {
+        private final String[] values;           // Value id -> value; ids are never reused
+        private final Map<String, Integer> ids;
+        private final OrdinalBitmap[] bitmaps;   // Value id -> products with that value
+        private final int[] valueByOrdinal;      // -1 for none
+
+        private Facet(String[] values, Map<String, Integer> ids, OrdinalBitmap[] bitmaps, int[] valueByOrdinal) {
+            this.values = values;
+            this.ids = ids;
+            this.bitmaps = bitmaps;
+            this.valueByOrdinal = valueByOrdinal;
+        }
+
+        static Facet build(String[] valueByOrdinal) {
+            Map<String, Integer> ids = new HashMap<>();
+            List<OrdinalBitmap.Builder> builders = new ArrayList<>();
+            int[] idByOrdinal = new int[valueByOrdinal.length];
+            for (int ordinal = 0; ordinal < valueByOrdinal.length; ordinal++) {
+                String value = valueByOrdinal[ordinal];
+                if (value == null) {
+                    idByOrdinal[ordinal] = -1;
+                    continue;
+                }
+                Integer id = ids.get(value);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(value, id);
+                    builders.add(new OrdinalBitmap.Builder());
+                }
+                builders.get(id).add(ordinal);
+                idByOrdinal[ordinal] = id;
+            }
+            String[] values = new String[ids.size()];
+            for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                values[entry.getValue()] = entry.getKey();
+            }
+            OrdinalBitmap[] bitmaps = new OrdinalBitmap[values.length];
+            for (int id = 0; id < bitmaps.length; id++) {
+                bitmaps[id] = builders.get(id).build();
+            }
+            return new Facet(values, ids, bitmaps, idByOrdinal);
+        }
+
+        OrdinalBitmap bitmap(String value) {
+            Integer id = ids.get(value);
+            return (id != null) ? bitmaps[id] : OrdinalBitmap.EMPTY;
+        }
+
+        Facet with(int ordinal, String from, String to) {
+            boolean newOrdinal = ordinal >= valueByOrdinal.length;
+            if (!newOrdinal && Objects.equals(from, to)) {
+                return this;
+            }
+            String[] newValues = values;
+            Map<String, Integer> newIds = ids;
+            OrdinalBitmap[] newBitmaps = bitmaps.clone();
+            int[] newValueByOrdinal = newOrdinal
+                    ? Arrays.copyOf(valueByOrdinal, ordinal + 1) : valueByOrdinal.clone();
+            if (newOrdinal) {
+                Arrays.fill(newValueByOrdinal, valueByOrdinal.length, ordinal + 1, -1);
+            }
+            if (from != null && ids.containsKey(from)) {
+                int id = ids.get(from);
+                newBitmaps[id] = bitmaps[id].without(ordinal);
+            }
+            int toId = -1;
+            if (to != null) {
+                Integer id = ids.get(to);
+                if (id == null) {
+                    id = values.length;
+                    newValues = Arrays.copyOf(values, id + 1);
+                    newValues[id] = to;
+                    newIds = new HashMap<>(ids);
+                    newIds.put(to, id);
+                    newBitmaps = Arrays.copyOf(newBitmaps, id + 1);
+                    newBitmaps[id] = OrdinalBitmap.EMPTY;
+                }
+                newBitmaps[id] = newBitmaps[id].with(ordinal);
+                toId = id;
+            }
+            newValueByOrdinal[ordinal] = toId;
+            return new Facet(newValues, newIds, newBitmaps, newValueByOrdinal);
+        }
+
+        Map<String, Integer> count(OrdinalBitmap filter) {
+            int[] counts = new int[values.length];
+            int members = filter.cardinality();
+            if (members <= (long) values.length * 4096) { // Cheaper to visit the members than to AND every value
+                for (int ordinal : filter.toArray()) {
+                    int id = valueByOrdinal[ordinal];
+                    if (id >= 0) {
+                        counts[id]++;
+                    }
+                }
+            } else {
+                for (int id = 0; id < values.length; id++) {
+                    counts[id] = filter.andCardinality(bitmaps[id]);
+                }
+            }
+            Map<String, Integer> result = new HashMap<>();
+            for (int id = 0; id < counts.length; id++) {
+                if (counts[id] > 0) {
+                    result.put(values[id], counts[id]);
+                }
+            }
+            return result;
+        }
+    }
+}
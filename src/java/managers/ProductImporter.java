@@ -0,0 +1,719 @@
+package managers;
+
+import core.IdGenerator;
+import db.DBUtil;
+import exceptions.InvalidPriceException;
+import exceptions.InvalidProductIdException;
+import exceptions.InvalidQuantityException;
+import models.Category;
+import models.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk product import from CSV or JSON Lines catalog feeds, run as a background job.
+ *
+ * The feed is read one row at a time, so memory stays bounded by the chunk size whatever the file size.
+ * Each chunk of valid rows is upserted by ProductID with one JDBC batch (sent as multi-row INSERTs thanks to
+ * {@code rewriteBatchedStatements}) in its own transaction. A chunk the database rejects is retried row by
+ * row so that only the offending rows fail. Rows that fail validation or the database are written, with
+ * their line number and reason, to an error file the admin can download.
+ *
+ * Columns (CSV header or JSON keys, case-insensitive): ProductID, Name, Brand, Model, Description, Price,
+ * Stock, ManufactureDate (yyyy-MM-dd), CategoryID. A missing ProductID gets a generated one.
+ */
+public class ProductImporter {
+
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * Picks the format from an uploaded file name (.csv, .jsonl, .ndjson or .json), or null if unknown.
+         */
+        public static Format forFileName(String fileName) {
+            String lower = (fileName != null) ? fileName.toLowerCase(Locale.ROOT) : "";
+            if (lower.endsWith(".csv")) {
+                return CSV;
+            }
+            if (lower.endsWith(".jsonl") || lower.endsWith(".ndjson") || lower.endsWith(".json")) {
+                return JSONL;
+            }
+            return null;
+        }
+    }
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    // Rows per batch and transaction; large enough to amortize round trips, small enough to keep locks short
+    private static final int CHUNK_SIZE = Integer.getInteger("techtrove.import.chunkSize", 1000);
+    private static final int PROGRESS_LOG_EVERY_ROWS = 10000;
+    private static final int MAX_RECENT_JOBS = 10;
+
+    // The row alias ("AS new") replaces the deprecated VALUES(col) and needs MySQL 8.0.19 or later.
+    // Connector/J still rewrites the batch into one multi-row INSERT with it.
+    private static final String UPSERT_SQL =
+            "INSERT INTO Products (ProductID, Name, Brand, Model, Description, Price, Stock, ManufactureDate, CategoryID) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) AS new " +
+            "ON DUPLICATE KEY UPDATE Name = new.Name, Brand = new.Brand, Model = new.Model, " +
+            "Description = new.Description, Price = new.Price, Stock = new.Stock, " +
+            "ManufactureDate = new.ManufactureDate, CategoryID = new.CategoryID";
+
+    // Column limits from the Products table
+    private static final int MAX_ID_LENGTH = 50;
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final int MAX_BRAND_MODEL_LENGTH = 100;
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99"); // DECIMAL(10, 2)
+
+    // One import at a time; concurrent imports would only contend on the same rows and indexes
+    private static final ExecutorService IMPORTER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ProductImport");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final Map<String, Job> JOBS = new LinkedHashMap<String, Job>() { // Guarded by itself
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_RECENT_JOBS && eldest.getValue().isFinished();
+        }
+    };
+
+    private ProductImporter() {
+    }
+
+    /**
+     * Queues an import of {@code upload}, which the job deletes when it is done with it.
+     *
+     * @return the job, whose progress can be followed with {@link #getJob(String)}.
+     */
+    public static Job start(Path upload, Format format, String fileName) {
+        Job job = new Job(IdGenerator.generateUniqueId(), fileName, format);
+        synchronized (JOBS) {
+            JOBS.put(job.id, job);
+        }
+        IMPORTER.execute(() -> run(job, upload));
+        return job;
+    }
+
+    public static Job getJob(String jobId) {
+        synchronized (JOBS) {
+            return JOBS.get(jobId);
+        }
+    }
+
+    /**
+     * Returns the most recent jobs, newest first.
+     */
+    public static List<Job> getRecentJobs() {
+        List<Job> jobs;
+        synchronized (JOBS) {
+            jobs = new ArrayList<>(JOBS.values());
+        }
+        Collections.reverse(jobs);
+        return jobs;
+    }
+
+    private static void run(Job job, Path upload) {
+        job.state = State.RUNNING;
+        long start = System.currentTimeMillis();
+        System.out.println("ProductImporter: Starting import " + job.id + " of " + job.fileName + " (" + job.format + ").");
+        Writer errors = null;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(upload), StandardCharsets.UTF_8)) {
+            Set<String> categoryIds = new HashSet<>();
+            for (Category category : new CategoryManager().getAllCategories()) {
+                categoryIds.add(category.getCategoryId());
+            }
+            RowReader rows = (job.format == Format.CSV) ? new CsvRowReader(reader) : new JsonLinesRowReader(reader);
+            List<ImportRow> chunk = new ArrayList<>(CHUNK_SIZE);
+            Map<String, String> row;
+            long nextProgressLog = PROGRESS_LOG_EVERY_ROWS;
+            while (true) {
+                try {
+                    row = rows.next();
+                } catch (IllegalArgumentException e) { // Malformed record; the reader has skipped past it
+                    errors = recordError(job, errors, rows.getRecordLine(), null, e.getMessage());
+                    continue;
+                }
+                if (row == null) {
+                    break;
+                }
+                long line = rows.getRecordLine();
+                job.rowsRead.incrementAndGet();
+                try {
+                    chunk.add(new ImportRow(line, toProduct(row, categoryIds)));
+                } catch (InvalidProductIdException | InvalidPriceException | InvalidQuantityException
+                         | IllegalArgumentException e) {
+                    errors = recordError(job, errors, line, row.get("productid"), e.getMessage());
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    errors = upsertChunk(job, chunk, errors);
+                    chunk.clear();
+                }
+                if (job.rowsRead.get() >= nextProgressLog) {
+                    System.out.println("ProductImporter: Import " + job.id + ": " + job.rowsRead.get() + " rows read, "
+                            + job.imported.get() + " imported, " + job.failed.get() + " failed.");
+                    nextProgressLog += PROGRESS_LOG_EVERY_ROWS;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                errors = upsertChunk(job, chunk, errors);
+            }
+            job.state = State.COMPLETED;
+        } catch (IOException | SQLException | RuntimeException e) {
+            job.message = e.getMessage();
+            job.state = State.FAILED;
+            System.err.println("ProductImporter: Import " + job.id + " failed: " + e.getMessage());
+        } finally {
+            if (errors != null) {
+                try {
+                    errors.close();
+                } catch (IOException e) {
+                    System.err.println("ProductImporter: Could not close error file for import " + job.id + ": " + e.getMessage());
+                }
+            }
+            try {
+                Files.deleteIfExists(upload);
+            } catch (IOException e) {
+                System.err.println("ProductImporter: Could not delete upload " + upload + ": " + e.getMessage());
+            }
+            if (job.imported.get() > 0) {
+                ProductManager.catalogBulkChanged();
+            }
+            job.finishedAtMillis = System.currentTimeMillis();
+        }
+        System.out.println("ProductImporter: Import " + job.id + " " + job.state + ": " + job.rowsRead.get() + " rows read, "
+                + job.imported.get() + " imported, " + job.failed.get() + " failed in " + (job.finishedAtMillis - start) + " ms.");
+    }
+
+    /**
+     * Upserts one chunk in a single transaction; if the database rejects it, retries its rows one at a
+     * time so the rest still go in and the bad ones end up in the error file.
+     */
+    private static Writer upsertChunk(Job job, List<ImportRow> chunk, Writer errors) throws SQLException, IOException {
+        try (Connection conn = DBUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                for (ImportRow row : chunk) {
+                    bind(pstmt, row.product);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+                job.imported.addAndGet(chunk.size());
+                return errors;
+            } catch (SQLException e) {
+                conn.rollback();
+                System.err.println("ProductImporter: Chunk of " + chunk.size() + " rows from line " + chunk.get(0).line
+                        + " rejected (" + e.getMessage() + "); retrying row by row.");
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                for (ImportRow row : chunk) {
+                    try {
+                        bind(pstmt, row.product);
+                        pstmt.executeUpdate();
+                        job.imported.incrementAndGet();
+                    } catch (SQLException e) {
+                        errors = recordError(job, errors, row.line, row.product.getProductId(), e.getMessage());
+                    }
+                }
+            }
+        }
+        return errors;
+    }
+
+    private static void bind(PreparedStatement pstmt, Product product) throws SQLException {
+        pstmt.setString(1, product.getProductId());
+        pstmt.setString(2, product.getName());
+        pstmt.setString(3, product.getBrand());
+        pstmt.setString(4, product.getModel());
+        pstmt.setString(5, product.getDescription());
+        pstmt.setDouble(6, product.getPrice());
+        pstmt.setInt(7, product.getStock());
+        pstmt.setDate(8, product.getManufactureDate() != null ? java.sql.Date.valueOf(product.getManufactureDate()) : null);
+        pstmt.setString(9, product.getCategoryId());
+    }
+
+    /**
+     * Validates a row and turns it into a product; keys are lower-case column names.
+     */
+    static Product toProduct(Map<String, String> row, Set<String> categoryIds)
+            throws InvalidProductIdException, InvalidPriceException, InvalidQuantityException {
+        String productId = trimToNull(row.get("productid"));
+        if (productId == null) {
+            productId = IdGenerator.generateProductId();
+        } else if (productId.length() > MAX_ID_LENGTH) {
+            throw new InvalidProductIdException("ProductID longer than " + MAX_ID_LENGTH + " characters: " + productId);
+        } else if (!productId.matches("[A-Za-z0-9_.-]+")) {
+            throw new InvalidProductIdException("ProductID may only contain letters, digits, '_', '.' and '-': " + productId);
+        }
+
+        String name = trimToNull(row.get("name"));
+        if (name == null) {
+            throw new IllegalArgumentException("Name is required");
+        }
+        checkLength("Name", name, MAX_NAME_LENGTH);
+        String brand = trimToNull(row.get("brand"));
+        checkLength("Brand", brand, MAX_BRAND_MODEL_LENGTH);
+        String model = trimToNull(row.get("model"));
+        checkLength("Model", model, MAX_BRAND_MODEL_LENGTH);
+
+        String priceText = trimToNull(row.get("price"));
+        if (priceText == null) {
+            throw new InvalidPriceException("Price is required");
+        }
+        BigDecimal price;
+        try {
+            price = new BigDecimal(priceText);
+        } catch (NumberFormatException e) {
+            throw new InvalidPriceException("Price is not a number: " + priceText);
+        }
+        if (price.signum() < 0) {
+            throw new InvalidPriceException("Price cannot be negative: " + priceText);
+        }
+        if (price.compareTo(MAX_PRICE) > 0 || price.stripTrailingZeros().scale() > 2) {
+            throw new InvalidPriceException("Price must be at most " + MAX_PRICE + " with at most 2 decimals: " + priceText);
+        }
+
+        String stockText = trimToNull(row.get("stock"));
+        int stock = 0;
+        if (stockText != null) {
+            try {
+                stock = Integer.parseInt(stockText);
+            } catch (NumberFormatException e) {
+                throw new InvalidQuantityException("Stock is not a whole number: " + stockText);
+            }
+            if (stock < 0) {
+                throw new InvalidQuantityException("Stock cannot be negative: " + stockText);
+            }
+        }
+
+        String dateText = trimToNull(row.get("manufacturedate"));
+        LocalDate manufactureDate = null;
+        if (dateText != null) {
+            try {
+                manufactureDate = LocalDate.parse(dateText);
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("ManufactureDate is not a yyyy-MM-dd date: " + dateText);
+            }
+        }
+
+        String categoryId = trimToNull(row.get("categoryid"));
+        if (categoryId != null && !categoryIds.contains(categoryId)) {
+            throw new IllegalArgumentException("Unknown CategoryID: " + categoryId);
+        }
+
+        return new Product(productId, name, brand, model, trimToNull(row.get("description")), price.doubleValue(),
+                stock, manufactureDate, categoryId);
+    }
+
+    private static void checkLength(String column, String value, int maxLength) {
+        if (value != null && value.length() > maxLength) {
+            throw new IllegalArgumentException(column + " longer than " + maxLength + " characters");
+        }
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private static Writer recordError(Job job, Writer errors, long line, String productId, String message) throws IOException {
+        job.failed.incrementAndGet();
+        if (errors == null) {
+            Path errorFile = Paths.get(System.getProperty("java.io.tmpdir"), "techtrove-import-" + job.id + "-errors.csv");
+            errors = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8);
+            errors.write("Line,ProductID,Error\n");
+            job.errorFile = errorFile;
+        }
+        errors.write(line + "," + csvField(productId) + "," + csvField(message) + "\n");
+        return errors;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * A background import and its progress, updated by the import thread as it goes.
+     */
+    public static final class Job {
+        private final String id;
+        private final String fileName;
+        private final Format format;
+        private final long startedAtMillis = System.currentTimeMillis();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong imported = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private volatile State state = State.QUEUED;
+        private volatile long finishedAtMillis;
+        private volatile String message;
+        private volatile Path errorFile;
+
+        Job(String id, String fileName, Format format) {
+            this.id = id;
+            this.fileName = fileName;
+            this.format = format;
+        }
+
+        public String getId() { return id; }
+        public String getFileName() { return fileName; }
+        public Format getFormat() { return format; }
+        public long getStartedAtMillis() { return startedAtMillis; }
+        public long getFinishedAtMillis() { return finishedAtMillis; }
+        public State getState() { return state; }
+        public long getRowsRead() { return rowsRead.get(); }
+        public long getImported() { return imported.get(); }
+        public long getFailed() { return failed.get(); }
+        /** Why the job failed as a whole, if it did. */
+        public String getMessage() { return message; }
+        /** The per-row error file (CSV: line, product ID, error), or null if no row failed. */
+        public Path getErrorFile() { return errorFile; }
+
+        public boolean isFinished() {
+            return state == State.COMPLETED || state == State.FAILED;
+        }
+    }
+
+    private static final class ImportRow {
+        final long line;
+        final Product product;
+
+        ImportRow(long line, Product product) {
+            this.line = line;
+            this.product = product;
+        }
+    }
+
+    /**
+     * Reads a feed one record at a time as lower-case column name to value.
+     */
+    private interface RowReader {
+        /**
+         * @return the next record, or null at the end of the feed.
+         * @throws IllegalArgumentException if the record is malformed; the next call continues after it.
+         */
+        Map<String, String> next() throws IOException;
+
+        /** The physical line the last record (returned or rejected) started on. */
+        long getRecordLine();
+    }
+
+    /**
+     * RFC 4180 CSV with a header row: comma-separated, fields optionally double-quoted, quotes doubled
+     * inside quoted fields, which may span lines.
+     */
+    static final class CsvRowReader implements RowReader {
+        private final BufferedReader in;
+        private final String[] header;
+        private long lineNumber = 0;
+        private long recordLine = 0;
+
+        CsvRowReader(Reader reader) throws IOException {
+            this.in = new BufferedReader(reader, 1 << 16);
+            skipByteOrderMark(in);
+            List<String> columns = readRecord();
+            if (columns == null) {
+                throw new IOException("CSV file is empty");
+            }
+            header = new String[columns.size()];
+            for (int i = 0; i < header.length; i++) {
+                header[i] = columns.get(i).trim().toLowerCase(Locale.ROOT);
+            }
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty()); // Blank line
+            if (fields.size() > header.length) {
+                throw new IllegalArgumentException("Row has " + fields.size() + " fields but the header has " + header.length);
+            }
+            Map<String, String> row = new HashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                row.put(header[i], fields.get(i));
+            }
+            return row;
+        }
+
+        @Override
+        public long getRecordLine() {
+            return recordLine;
+        }
+
+        private List<String> readRecord() throws IOException {
+            int c = in.read();
+            if (c < 0) {
+                return null;
+            }
+            recordLine = ++lineNumber;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean afterQuote = false; // Just past a quoted field's closing quote
+            while (true) {
+                if (c < 0) {
+                    if (quoted) {
+                        throw new IllegalArgumentException("Unterminated quoted field at end of file");
+                    }
+                    break;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        in.mark(1);
+                        int peek = in.read();
+                        if (peek == '"') {
+                            field.append('"');
+                        } else {
+                            in.reset();
+                            quoted = false;
+                            afterQuote = true;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            lineNumber++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    afterQuote = false;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        in.mark(1);
+                        if (in.read() != '\n') {
+                            in.reset();
+                        }
+                    }
+                    break;
+                } else if (c == '"' && field.length() == 0 && !afterQuote) {
+                    quoted = true;
+                } else if (afterQuote) {
+                    skipLine(); // Keep the next record aligned
+                    throw new IllegalArgumentException("Unexpected character after a closing quote");
+                } else {
+                    field.append((char) c);
+                }
+                c = in.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private void skipLine() throws IOException {
+            int c;
+            while ((c = in.read()) >= 0 && c != '\n') {
+                // Discard
+            }
+        }
+    }
+
+    /**
+     * JSON Lines: one flat JSON object per line, with string, number, boolean or null values.
+     */
+    static final class JsonLinesRowReader implements RowReader {
+        private final BufferedReader in;
+        private long lineNumber = 0;
+
+        JsonLinesRowReader(Reader reader) throws IOException {
+            this.in = new BufferedReader(reader, 1 << 16);
+            skipByteOrderMark(in);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+            } while (line.trim().isEmpty());
+            return new FlatJsonParser(line).parseObject();
+        }
+
+        @Override
+        public long getRecordLine() {
+            return lineNumber;
+        }
+    }
+
+    private static final class FlatJsonParser {
+        private final String text;
+        private int pos = 0;
+
+        FlatJsonParser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> parseObject() {
+            Map<String, String> row = new HashMap<>();
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    String key = parseString().toLowerCase(Locale.ROOT);
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    row.put(key, parseValue());
+                    skipWhitespace();
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw error("expected ',' or '}'");
+                    }
+                }
+            }
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw error("unexpected text after the object");
+            }
+            return row;
+        }
+
+        private String parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            if (c == '{' || c == '[') {
+                throw error("nested objects and arrays are not supported");
+            }
+            int start = pos;
+            while (pos < text.length() && ",} \t\r\n".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw error("invalid value '" + literal + "'");
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"': case '\\': case '/': sb.append(escaped); break;
+                    case 'b': sb.append('\b'); break;
+                    case 'f': sb.append('\f'); break;
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("truncated \\u escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("invalid \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("invalid escape '\\" + escaped + "'");
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("unexpected end of line");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("expected '" + expected + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at column " + (pos + 1) + ": " + message);
+        }
+    }
+
+    private static void skipByteOrderMark(BufferedReader in) throws IOException {
+        in.mark(1);
+        if (in.read() != '\uFEFF') {
+            in.reset();
+        }
+    }
+}
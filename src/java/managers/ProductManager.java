@@ -2,32 +2,545 @@
 package managers;
 
 import db.DBUtil;
+import db.TransactionRetry;
+import db.UnitOfWork;
 import models.Product;
+import models.ProductSummary;
 import core.IdGenerator; 
+import exceptions.InvalidPriceException;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ProductManager {
 
+    // Columns behind a ProductSummary; list, cart and checkout queries select these instead of *
+    static final String SUMMARY_COLUMNS = "ProductID, Name, Brand, Price, Stock, CategoryID";
+
+    // IDs per "WHERE ProductID IN (...)" query; keeps statements well under max_allowed_packet and the plan a range scan
+    static final int IN_CHUNK_SIZE = 500;
+
+    // Rows per transaction in bulkUpdateProducts(); bounds how long row locks are held
+    private static final int BULK_UPDATE_CHUNK_SIZE = Integer.getInteger("techtrove.bulkUpdate.chunkSize", 1000);
+
+    // Catalog snapshot shared by all ProductManager instances; see getCatalog()
+    private static final long CATALOG_MAX_STALENESS_MS = Long.getLong("techtrove.catalog.maxStalenessMs", 60000L);
+    private static final AtomicReference<CatalogSnapshot> CATALOG = new AtomicReference<>();
+    private static final Object CATALOG_WRITE_LOCK = new Object();
+    private static final AtomicBoolean CATALOG_REFRESHING = new AtomicBoolean(false);
+    private static final AtomicBoolean CATALOG_BULK_CHANGED = new AtomicBoolean(false); // Refresh again, and rebuild the trie
+    private static final ExecutorService CATALOG_REFRESHER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "CatalogRefresh");
+        t.setDaemon(true);
+        return t;
+    });
+    private static long catalogVersion = 0;                              // Guarded by CATALOG_WRITE_LOCK
+    private static List<CatalogPatch> patchesDuringRefresh = null;       // Guarded by CATALOG_WRITE_LOCK
+
+    // Local copy of the catalog served on a restart while the rows changed since are read; see CatalogSnapshotFile.
+    // An empty techtrove.catalog.snapshotFile turns it off.
+    private static final String CATALOG_FILE = System.getProperty("techtrove.catalog.snapshotFile",
+            Paths.get(System.getProperty("java.io.tmpdir"), "techtrove-catalog.bin").toString());
+    private static final long CATALOG_DELTA_OVERLAP_MS = Long.getLong("techtrove.catalog.deltaOverlapMs", 60000L);
+    private static final int CATALOG_DELTA_PATCH_LIMIT = 256; // Beyond this many changed rows a rebuild is cheaper
+
+    // Autocomplete trie; sales ranks drift slowly, so it is simply rebuilt once it is this old
+    private static final long COMPLETIONS_MAX_AGE_MS = Long.getLong("techtrove.autocomplete.maxAgeMs", 300000L);
+    private static final AtomicReference<ProductCompletionTrie> COMPLETIONS = new AtomicReference<>();
+    private static final AtomicBoolean COMPLETIONS_REBUILDING = new AtomicBoolean(false);
+
     public ProductManager() throws SQLException {
         // Constructor
     }
 
+    /**
+     * Returns all products sorted by name, from the in-memory catalog snapshot.
+     * The returned list is unmodifiable and its products must not be modified.
+     */
     public List<Product> getAllProducts() throws SQLException {
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM Products ORDER BY Name"; // ImageURL no longer selected
-        try (Connection conn = DBUtil.getConnection();
+        return getCatalog().getProducts();
+    }
+
+    /**
+     * Returns the current catalog snapshot without touching the database, except on first use.
+     *
+     * Writes made through this application patch the snapshot as soon as they commit. To pick up
+     * changes made outside the application, a snapshot older than {@code techtrove.catalog.maxStalenessMs}
+     * (default 60 s) triggers a background reload; the current snapshot keeps being served meanwhile.
+     */
+    public static CatalogSnapshot getCatalog() throws SQLException {
+        CatalogSnapshot snapshot = CATALOG.get();
+        if (snapshot == null) {
+            return loadCatalog();
+        }
+        if (System.currentTimeMillis() - snapshot.getLoadedAtMillis() > CATALOG_MAX_STALENESS_MS) {
+            refreshCatalogAsync();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drops the snapshot, e.g. after switching to a different database. The next read reloads it.
+     */
+    public static void invalidateCatalog() {
+        synchronized (CATALOG_WRITE_LOCK) {
+            CATALOG.set(null);
+        }
+        COMPLETIONS.set(null);
+    }
+
+    private static CatalogSnapshot loadCatalog() throws SQLException {
+        synchronized (CATALOG_WRITE_LOCK) { // Only one thread loads on a cold start
+            CatalogSnapshot snapshot = CATALOG.get();
+            if (snapshot != null) {
+                return snapshot;
+            }
+            snapshot = loadCatalogFromFile();
+            if (snapshot == null) {
+                CatalogSnapshotFile rows = queryCatalogRows();
+                snapshot = snapshotOf(rows);
+                saveCatalogFileAsync(rows);
+            }
+            CATALOG.set(snapshot);
+            System.out.println("ProductManager: Loaded catalog snapshot v" + snapshot.getVersion() + " (" + snapshot.size() + " products).");
+            return snapshot;
+        }
+    }
+
+    /**
+     * Builds the snapshot from the local catalog file if there is one written from this database, and
+     * schedules a read of the rows changed since. Returns null if the catalog has to be read in full.
+     */
+    private static CatalogSnapshot loadCatalogFromFile() throws SQLException {
+        Path path = catalogFilePath();
+        if (catalogVersion > 0 || path == null || !Files.exists(path)) { // Only a cold start; not after invalidateCatalog()
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        CatalogSnapshotFile file;
+        try {
+            file = CatalogSnapshotFile.read(path);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ProductManager: Ignoring catalog file " + path + ": " + e.getMessage());
+            return null;
+        }
+        CatalogStamp stamp;
+        try (Connection conn = DBUtil.getReadConnection()) {
+            stamp = queryCatalogStamp(conn);
+        }
+        if (stamp == null || !stamp.catalogId.equals(file.getCatalogId())) {
+            System.out.println("ProductManager: Catalog file " + path + " is from another database; reading the catalog in full.");
+            return null;
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.of(++catalogVersion, file.getProducts());
+        System.out.println("ProductManager: Read catalog file " + path + " (catalog version " + file.getCatalogVersion()
+                + ", database at " + stamp.version + ") in " + (System.currentTimeMillis() - start) + " ms.");
+        refreshCatalogDeltaAsync(file, stamp);
+        return snapshot;
+    }
+
+    /**
+     * Builds a snapshot from rows read in full, at the shared version read with them. Called under
+     * CATALOG_WRITE_LOCK.
+     */
+    private static CatalogSnapshot snapshotOf(CatalogSnapshotFile rows) {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(++catalogVersion, rows.getProducts());
+        return (rows.getCatalogId() != null) ? snapshot.withSharedVersion(rows.getCatalogId(), rows.getCatalogVersion()) : snapshot;
+    }
+
+    /**
+     * Brings a snapshot built from the catalog file up to date: re-reads rows whose UpdatedAt is at or after
+     * the newest one in the file (less an overlap for transactions that committed late) and, if products may
+     * have been deleted since, the list of product IDs.
+     */
+    private static void refreshCatalogDeltaAsync(CatalogSnapshotFile file, CatalogStamp stamp) {
+        boolean checkDeletions = stamp.version != file.getCatalogVersion();
+        if (!CATALOG_REFRESHING.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (CATALOG_WRITE_LOCK) {
+            patchesDuringRefresh = new ArrayList<>();
+        }
+        try {
+            CATALOG_REFRESHER.execute(() -> {
+                try {
+                    long start = System.currentTimeMillis();
+                    List<Product> changed = queryProductsUpdatedSince(file.getMaxUpdatedAtMillis() - CATALOG_DELTA_OVERLAP_MS);
+                    Set<String> liveIds = checkDeletions ? queryProductIds() : null;
+                    synchronized (CATALOG_WRITE_LOCK) {
+                        CatalogSnapshot snapshot = CATALOG.get();
+                        if (snapshot != null) {
+                            List<String> deleted = new ArrayList<>();
+                            if (liveIds != null) {
+                                for (Product product : snapshot.getProducts()) {
+                                    if (!liveIds.contains(product.getProductId())) {
+                                        deleted.add(product.getProductId());
+                                    }
+                                }
+                            }
+                            if (changed.size() + deleted.size() <= CATALOG_DELTA_PATCH_LIMIT) {
+                                for (Product product : changed) {
+                                    snapshot = snapshot.withProduct(++catalogVersion, product);
+                                }
+                                for (String productId : deleted) {
+                                    snapshot = snapshot.withoutProduct(++catalogVersion, productId);
+                                }
+                            } else {
+                                Map<String, Product> merged = new LinkedHashMap<>();
+                                for (Product product : snapshot.getProducts()) {
+                                    merged.put(product.getProductId(), product);
+                                }
+                                for (Product product : changed) {
+                                    merged.put(product.getProductId(), product);
+                                }
+                                merged.keySet().removeAll(deleted);
+                                snapshot = CatalogSnapshot.of(++catalogVersion, new ArrayList<>(merged.values()));
+                            }
+                            snapshot = snapshot.withSharedVersion(stamp.catalogId, stamp.version); // Read before the delta
+                            for (CatalogPatch patch : patchesDuringRefresh) { // Newer than the rows just read
+                                snapshot = patch.apply(snapshot, ++catalogVersion);
+                            }
+                            CATALOG.set(snapshot);
+                            System.out.println("ProductManager: Applied catalog delta (" + changed.size() + " changed, "
+                                    + deleted.size() + " deleted) in " + (System.currentTimeMillis() - start) + " ms.");
+                        }
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("ProductManager: Catalog delta refresh failed; serving the file until the next full refresh: " + e.getMessage());
+                } finally {
+                    synchronized (CATALOG_WRITE_LOCK) {
+                        patchesDuringRefresh = null;
+                    }
+                    CATALOG_REFRESHING.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (CATALOG_WRITE_LOCK) {
+                patchesDuringRefresh = null;
+            }
+            CATALOG_REFRESHING.set(false);
+            throw e;
+        }
+    }
+
+    private static void saveCatalogFileAsync(CatalogSnapshotFile rows) {
+        if (catalogFilePath() != null && rows.getCatalogId() != null) {
+            CATALOG_REFRESHER.execute(() -> saveCatalogFile(rows));
+        }
+    }
+
+    private static void saveCatalogFile(CatalogSnapshotFile rows) {
+        Path path = catalogFilePath();
+        if (path == null || rows.getCatalogId() == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            rows.write(path);
+            System.out.println("ProductManager: Wrote catalog file " + path + " (" + rows.getProducts().size()
+                    + " products) in " + (System.currentTimeMillis() - start) + " ms.");
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ProductManager: Could not write catalog file " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static Path catalogFilePath() {
+        return CATALOG_FILE.trim().isEmpty() ? null : Paths.get(CATALOG_FILE.trim());
+    }
+
+    private static void refreshCatalogAsync() {
+        if (!CATALOG_REFRESHING.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (CATALOG_WRITE_LOCK) {
+            patchesDuringRefresh = new ArrayList<>(); // Writes committed while we read must be replayed on the result
+        }
+        try {
+            CATALOG_REFRESHER.execute(() -> {
+                boolean bulkChanged = CATALOG_BULK_CHANGED.getAndSet(false); // Cleared before reading, so a later one re-runs us
+                try {
+                    CatalogSnapshotFile rows = queryCatalogRows();
+                    synchronized (CATALOG_WRITE_LOCK) {
+                        if (CATALOG.get() != null) {
+                            CatalogSnapshot snapshot = snapshotOf(rows);
+                            for (CatalogPatch patch : patchesDuringRefresh) {
+                                snapshot = patch.apply(snapshot, ++catalogVersion);
+                            }
+                            CATALOG.set(snapshot);
+                        }
+                    }
+                    if (bulkChanged && COMPLETIONS.get() != null) {
+                        COMPLETIONS.set(buildCompletionTrie()); // Built from the snapshot just swapped in
+                    }
+                    saveCatalogFile(rows); // Already on the refresher thread
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("ProductManager: Background catalog refresh failed: " + e.getMessage());
+                } finally {
+                    synchronized (CATALOG_WRITE_LOCK) {
+                        patchesDuringRefresh = null;
+                    }
+                    CATALOG_REFRESHING.set(false);
+                    if (CATALOG_BULK_CHANGED.get()) { // Came in after our read started; its rows may be missing
+                        refreshCatalogAsync();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (CATALOG_WRITE_LOCK) {
+                patchesDuringRefresh = null;
+            }
+            CATALOG_REFRESHING.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Applies a change to the snapshot once the surrounding transaction commits. {@code sharedVersion} is
+     * what {@link #bumpCatalogVersion(Connection)} returned in that transaction.
+     */
+    private static void patchCatalogAfterCommit(long sharedVersion, CatalogPatch change) {
+        CatalogPatch patch = (snapshot, version) -> withSharedVersion(change.apply(snapshot, version), sharedVersion);
+        UnitOfWork.afterCommit(() -> {
+            synchronized (CATALOG_WRITE_LOCK) {
+                CatalogSnapshot snapshot = CATALOG.get();
+                if (snapshot != null) {
+                    CATALOG.set(patch.apply(snapshot, ++catalogVersion));
+                }
+                if (patchesDuringRefresh != null) {
+                    patchesDuringRefresh.add(patch);
+                }
+            }
+        });
+    }
+
+    /**
+     * Moves a patched snapshot to the shared version of its change if it reflected every version before
+     * it. If one is missing (a write made on another server, or commits seen out of order), the snapshot
+     * no longer matches any shared version until the next reload.
+     */
+    private static CatalogSnapshot withSharedVersion(CatalogSnapshot patched, long sharedVersion) {
+        if (patched.getCatalogId() == null) {
+            return patched;
+        }
+        if (sharedVersion >= 0 && sharedVersion <= patched.getSharedVersion()) {
+            return patched; // Replayed after a reload that already read it
+        }
+        if (sharedVersion >= 0 && sharedVersion == patched.getSharedVersion() + 1) {
+            return patched.withSharedVersion(patched.getCatalogId(), sharedVersion);
+        }
+        return patched.withSharedVersion(null, -1);
+    }
+
+    /**
+     * Records new absolute stock levels (e.g. after an order) in the catalog snapshot once they commit.
+     */
+    static void catalogStockChanged(long sharedVersion, Map<String, Integer> stockByProductId) {
+        if (!stockByProductId.isEmpty()) {
+            Map<String, Integer> copy = new HashMap<>(stockByProductId);
+            patchCatalogAfterCommit(sharedVersion, (snapshot, version) -> snapshot.withStock(version, copy));
+        }
+    }
+
+    /**
+     * Moves the catalog to a new version once the surrounding transaction commits, for category changes
+     * that catalog pages show (and cache by version) although no product changed.
+     */
+    static void catalogCategoriesChanged(long sharedVersion) {
+        patchCatalogAfterCommit(sharedVersion, (snapshot, version) -> snapshot.withVersion(version));
+    }
+
+    /**
+     * Returns the autocomplete trie for product names and brands, building it on first use.
+     * A trie older than {@code techtrove.autocomplete.maxAgeMs} (default 5 min) is rebuilt in the
+     * background, picking up catalog changes and new sales, while the current one keeps being served.
+     */
+    public static ProductCompletionTrie getCompletionTrie() throws SQLException {
+        ProductCompletionTrie trie = COMPLETIONS.get();
+        if (trie == null) {
+            synchronized (COMPLETIONS) {
+                trie = COMPLETIONS.get();
+                if (trie == null) {
+                    trie = buildCompletionTrie();
+                    COMPLETIONS.set(trie);
+                }
+            }
+        } else if (System.currentTimeMillis() - trie.getBuiltAtMillis() > COMPLETIONS_MAX_AGE_MS
+                && COMPLETIONS_REBUILDING.compareAndSet(false, true)) {
+            try {
+                CATALOG_REFRESHER.execute(() -> {
+                    try {
+                        COMPLETIONS.set(buildCompletionTrie());
+                    } catch (SQLException | RuntimeException e) {
+                        System.err.println("ProductManager: Autocomplete rebuild failed: " + e.getMessage());
+                    } finally {
+                        COMPLETIONS_REBUILDING.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                COMPLETIONS_REBUILDING.set(false);
+                throw e;
+            }
+        }
+        return trie;
+    }
+
+    private static ProductCompletionTrie buildCompletionTrie() throws SQLException {
+        long start = System.currentTimeMillis();
+        CatalogSnapshot catalog = getCatalog();
+        ProductCompletionTrie trie = ProductCompletionTrie.build(catalog.getProducts(), queryUnitsSold());
+        System.out.println("ProductManager: Built autocomplete trie (" + trie.getEntryCount() + " entries, "
+                + trie.getNodeCount() + " nodes) in " + (System.currentTimeMillis() - start) + " ms.");
+        return trie;
+    }
+
+    private static Map<String, Long> queryUnitsSold() throws SQLException {
+        Map<String, Long> unitsSold = new HashMap<>();
+        String sql = "SELECT ProductID, SUM(Quantity) AS UnitsSold FROM OrderDetails WHERE ProductID IS NOT NULL GROUP BY ProductID";
+        try (Connection conn = DBUtil.getReadConnection(); // Ranking tolerates replica lag
              PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
-                products.add(mapResultSetToProduct(rs));
+                unitsSold.put(rs.getString("ProductID"), rs.getLong("UnitsSold"));
+            }
+        }
+        return unitsSold;
+    }
+
+    /**
+     * Reads every product together with the catalog stamp, which is read first so that a file written
+     * from the result (or a listing ETag) errs towards an older version: a larger delta on the next start,
+     * or a tag that changes once more than needed, never one that hides a change.
+     */
+    private static CatalogSnapshotFile queryCatalogRows() throws SQLException {
+        List<Product> products = new ArrayList<>();
+        long maxUpdatedAt = 0;
+        String sql = "SELECT * FROM Products ORDER BY Name"; // ImageURL no longer selected
+        try (Connection conn = DBUtil.getReadConnection()) { // Read-only: may be served by a replica
+            CatalogStamp stamp = queryCatalogStamp(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapResultSetToProduct(rs));
+                    Timestamp updatedAt = rs.getTimestamp("UpdatedAt");
+                    if (updatedAt != null && updatedAt.getTime() > maxUpdatedAt) {
+                        maxUpdatedAt = updatedAt.getTime();
+                    }
+                }
+            }
+            return new CatalogSnapshotFile((stamp != null) ? stamp.catalogId : null, (stamp != null) ? stamp.version : 0,
+                    maxUpdatedAt, System.currentTimeMillis(), products);
+        }
+    }
+
+    private static List<Product> queryProductsUpdatedSince(long sinceMillis) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        String sql = "SELECT * FROM Products WHERE UpdatedAt >= ?"; // Range scan on idx_products_updated
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, new Timestamp(sinceMillis));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapResultSetToProduct(rs));
+                }
             }
         }
         return products;
     }
 
+    private static Set<String> queryProductIds() throws SQLException {
+        Set<String> ids = new HashSet<>();
+        try (Connection conn = DBUtil.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT ProductID FROM Products");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getString("ProductID"));
+            }
+        }
+        return ids;
+    }
+
+    private static CatalogStamp queryCatalogStamp(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT CatalogID, Version FROM CatalogVersion WHERE ID = 1");
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? new CatalogStamp(rs.getString("CatalogID"), rs.getLong("Version")) : null;
+        }
+    }
+
+    /**
+     * Counts every change catalog pages show: product inserts, updates and deletes, stock changes from
+     * orders and category changes. A catalog file uses it to tell whether rows may have been deleted since
+     * it was written, and listing ETags use it as a version that all servers share. Writers should bump it
+     * as their transaction's last statement, as the row stays locked until they commit.
+     *
+     * @return the new version, or -1 if the CatalogVersion row is missing.
+     */
+    static long bumpCatalogVersion(Connection conn) throws SQLException {
+        String sql = "UPDATE CatalogVersion SET Version = LAST_INSERT_ID(Version + 1) WHERE ID = 1";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            if (pstmt.executeUpdate() == 0) {
+                return -1;
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) { // The LAST_INSERT_ID(expr) value; no extra round trip
+                return keys.next() ? keys.getLong(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Records a change to many products at once (bulk import or update): bumps the catalog version once
+     * and reloads the catalog and autocomplete trie in the background, rather than patching them row by
+     * row. The old snapshot keeps being served until the new one is swapped in, so no request has to
+     * wait for a full reload.
+     */
+    static void catalogBulkChanged() {
+        try (Connection conn = DBUtil.getConnection()) {
+            bumpCatalogVersion(conn);
+        } catch (SQLException e) {
+            System.err.println("ProductManager: Could not bump the catalog version: " + e.getMessage());
+        }
+        if (CATALOG.get() == null) {
+            COMPLETIONS.set(null); // Nothing cached to refresh; the next read loads the current rows
+            return;
+        }
+        CATALOG_BULK_CHANGED.set(true); // Before refreshCatalogAsync(), so a refresh already running picks it up
+        refreshCatalogAsync();
+    }
+
+    private static final class CatalogStamp {
+        final String catalogId;
+        final long version;
+
+        CatalogStamp(String catalogId, long version) {
+            this.catalogId = catalogId;
+            this.version = version;
+        }
+    }
+
+    private interface CatalogPatch {
+        CatalogSnapshot apply(CatalogSnapshot snapshot, long newVersion);
+    }
+
+    /**
+     * Reads one product from the primary (or the current unit of work's connection), bypassing the
+     * catalog snapshot.
+     */
     public Product getProductById(String productId) throws SQLException {
         Product product = null;
         String sql = "SELECT * FROM Products WHERE ProductID = ?"; // ImageURL no longer selected
@@ -43,22 +556,146 @@ public class ProductManager {
         return product;
     }
 
-    public List<Product> searchProductsByName(String searchTerm) throws SQLException {
-        List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM Products WHERE Name LIKE ? ORDER BY Name"; // ImageURL no longer selected
+    /**
+     * Looks up several products at once, returning those that exist keyed by ID, in the order the IDs
+     * were given. Replaces a loop of {@link #getProductById} calls (one round trip each).
+     *
+     * Products are served from the catalog snapshot when it is loaded; any it doesn't have (e.g. added
+     * outside the application since the last refresh) are read with one {@code IN (...)} query per
+     * {@value #IN_CHUNK_SIZE} IDs. The returned products are copies the caller may modify.
+     *
+     * Meant for display: the snapshot can lag other servers' writes and misses go to a replica. A write
+     * that validates against a product (e.g. its stock) should read it with {@link #getProductById},
+     * which uses the primary.
+     */
+    public Map<String, Product> getProductsByIds(Collection<String> productIds) throws SQLException {
+        Map<String, Product> products = new LinkedHashMap<>();
+        Set<String> missing = new LinkedHashSet<>();
+        CatalogSnapshot snapshot = CATALOG.get();
+        for (String productId : productIds) {
+            Product cached = (snapshot != null) ? snapshot.getProduct(productId) : null;
+            if (cached != null) {
+                products.put(productId, CatalogSnapshot.copyOf(cached));
+            } else if (productId != null) {
+                products.put(productId, null); // Placeholder keeps the caller's order
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<String> ids = new ArrayList<>(missing);
+            try (Connection conn = DBUtil.getReadConnection()) {
+                for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                    List<String> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK_SIZE));
+                    String sql = "SELECT * FROM Products WHERE ProductID IN (" + placeholders(chunk.size()) + ")";
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        for (int i = 0; i < chunk.size(); i++) {
+                            pstmt.setString(i + 1, chunk.get(i));
+                        }
+                        try (ResultSet rs = pstmt.executeQuery()) {
+                            while (rs.next()) {
+                                Product product = mapResultSetToProduct(rs);
+                                products.put(product.getProductId(), product);
+                            }
+                        }
+                    }
+                }
+            }
+            products.values().removeIf(Objects::isNull); // IDs that don't exist
+        }
+        return products;
+    }
+
+    /**
+     * "?, ?, ..., ?" with {@code count} parameters, for an {@code IN (...)} list.
+     */
+    static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 3);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns up to {@code pageSize} product summaries in (Name, ProductID) order, continuing after {@code pageToken}
+     * (null for the first page). Reads the primary, so the admin pages see their own writes immediately.
+     *
+     * This is keyset pagination: the next page is {@code WHERE (Name, ProductID) > (last Name, last ProductID)},
+     * a seek on idx_products_name (InnoDB appends the primary key to it), instead of an OFFSET that reads and
+     * throws away every earlier row.
+     */
+    public ProductPage getProductPage(String pageToken, int pageSize) throws SQLException {
+        pageSize = Math.max(1, pageSize);
+        ProductPageToken after = ProductPageToken.decode(pageToken, ProductQuery.SortOrder.NAME, 0);
+        String sql = (after == null)
+                ? "SELECT " + SUMMARY_COLUMNS + " FROM Products ORDER BY Name, ProductID LIMIT ?"
+                : "SELECT " + SUMMARY_COLUMNS + " FROM Products WHERE Name > ? OR (Name = ? AND ProductID > ?) ORDER BY Name, ProductID LIMIT ?";
+        List<ProductSummary> products = new ArrayList<>(pageSize + 1);
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + searchTerm + "%");
+            int index = 1;
+            if (after != null) {
+                pstmt.setString(index++, after.getName());
+                pstmt.setString(index++, after.getName());
+                pstmt.setString(index++, after.getProductId());
+            }
+            pstmt.setInt(index, pageSize + 1); // One extra row tells whether there is a next page
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    products.add(mapResultSetToProduct(rs));
+                    products.add(mapResultSetToSummary(rs));
                 }
             }
         }
-        return products;
+        String nextPageToken = null;
+        if (products.size() > pageSize) {
+            products.remove(pageSize);
+            ProductSummary last = products.get(pageSize - 1);
+            nextPageToken = ProductPageToken.afterName(last.getProductId(), last.getName()).encode();
+        }
+        return new ProductPage(products, nextPageToken);
+    }
+
+    /**
+     * Searches product name, brand, model and description using the snapshot's inverted index
+     * (previously {@code Name LIKE '%term%'}, which scanned the whole table). All words must match;
+     * {@code OR} between words matches either side. Results are ranked by relevance.
+     */
+    public List<Product> searchProducts(String query) throws SQLException {
+        return getCatalog().search(query);
+    }
+
+    /**
+     * Returns the products matching {@code query}, sorted as requested, along with category and brand
+     * facet counts. Filters and counts are evaluated on the snapshot's bitmap indexes (see
+     * {@link CatalogSnapshot#query(ProductQuery)}), so their cost doesn't grow with a per-product scan.
+     */
+    public ProductQueryResult queryProducts(ProductQuery query) throws SQLException {
+        return getCatalog().query(query);
+    }
+
+    /**
+     * Suggests a spelling-corrected version of a query that found nothing, for a fuzzy fallback search.
+     * Returns null if no word could be corrected.
+     */
+    public String suggestSearchCorrection(String query) throws SQLException {
+        return getCatalog().correctQuery(query);
+    }
+
+    /**
+     * Maps the {@link #SUMMARY_COLUMNS} of a row (other columns may be present and are ignored).
+     */
+    static ProductSummary mapResultSetToSummary(ResultSet rs) throws SQLException {
+        return new ProductSummary(
+            rs.getString("ProductID"),
+            rs.getString("Name"),
+            rs.getString("Brand"),
+            rs.getDouble("Price"),
+            rs.getInt("Stock"),
+            rs.getString("CategoryID")
+        );
     }
 
-    private Product mapResultSetToProduct(ResultSet rs) throws SQLException {
+    private static Product mapResultSetToProduct(ResultSet rs) throws SQLException {
         java.sql.Date sqlMfgDate = rs.getDate("ManufactureDate");
         return new Product(
             rs.getString("ProductID"),
@@ -81,6 +718,7 @@ public class ProductManager {
         // SQL and PreparedStatement updated
         String sql = "INSERT INTO Products (ProductID, Name, Brand, Model, Description, Price, Stock, ManufactureDate, CategoryID) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)"; // ImageURL column removed
+        long sharedVersion;
         try (Connection conn = DBUtil.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, product.getProductId()); 
@@ -94,8 +732,11 @@ public class ProductManager {
             pstmt.setString(9, product.getCategoryId());
             // pstmt.setString(10, product.getImageUrl()); // REMOVED
             pstmt.executeUpdate();
+            sharedVersion = bumpCatalogVersion(conn);
             System.out.println("Product added: " + product.getName() + " (ID: " + product.getProductId() + ")");
         }
+        Product added = CatalogSnapshot.copyOf(product);
+        patchCatalogAfterCommit(sharedVersion, (snapshot, version) -> snapshot.withProduct(version, added));
     }
 
     public boolean updateProduct(Product product) throws SQLException {
@@ -119,12 +760,130 @@ public class ProductManager {
             // Old index 9 was imageUrl, old index 10 was productId for WHERE
             int rowsAffected = pstmt.executeUpdate();
             if (rowsAffected > 0) {
+                long sharedVersion = bumpCatalogVersion(conn);
                 System.out.println("Product updated: " + product.getName());
+                Product updated = CatalogSnapshot.copyOf(product);
+                patchCatalogAfterCommit(sharedVersion, (snapshot, version) -> snapshot.withProduct(version, updated));
             }
             return rowsAffected > 0;
         }
     }
 
+    /**
+     * Applies a price and/or stock change to every product matching the filter, as set-based UPDATEs
+     * over chunks of {@code techtrove.bulkUpdate.chunkSize} products in ProductID order. Each chunk is its
+     * own short transaction (retried on deadlock), so row locks are never held for the whole run; a
+     * failure part-way leaves the earlier chunks applied. The catalog is refreshed once at the end, after
+     * a failure too.
+     *
+     * @return the number of products updated.
+     * @throws InvalidPriceException if the price change could make prices negative.
+     * @throws IllegalArgumentException if no filter is set or nothing would change.
+     */
+    public int bulkUpdateProducts(ProductBulkUpdate update) throws SQLException, InvalidPriceException {
+        if (!update.hasFilter()) {
+            throw new IllegalArgumentException("Choose a category or brand to update.");
+        }
+        if (!update.changesSomething()) {
+            throw new IllegalArgumentException("Nothing to change: set a price change or a stock delta.");
+        }
+        double value = update.getPriceValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new InvalidPriceException("Price change is not a number.");
+        }
+        if ((update.getPriceChange() == ProductBulkUpdate.PriceChange.PERCENT && value < -100)
+                || (update.getPriceChange() == ProductBulkUpdate.PriceChange.SET && value < 0)) {
+            throw new InvalidPriceException("Price change would make prices negative: " + update);
+        }
+
+        List<String> sets = new ArrayList<>();
+        switch (update.getPriceChange()) {
+            case PERCENT: sets.add("Price = ROUND(Price * (100 + ?) / 100, 2)"); break;
+            case AMOUNT: sets.add("Price = GREATEST(0, Price + ?)"); break;
+            case SET: sets.add("Price = ?"); break;
+            default: break;
+        }
+        if (update.getStockDelta() != 0) {
+            sets.add("Stock = GREATEST(0, Stock + ?)");
+        }
+        List<String> filterParams = new ArrayList<>();
+        StringBuilder filter = new StringBuilder();
+        if (update.getCategoryId() != null) {
+            filter.append(" AND CategoryID = ?");
+            filterParams.add(update.getCategoryId());
+        }
+        if (update.getBrand() != null) {
+            filter.append(" AND Brand = ?");
+            filterParams.add(update.getBrand());
+        }
+        String selectSql = "SELECT ProductID FROM Products WHERE ProductID > ?" + filter
+                + " ORDER BY ProductID LIMIT " + BULK_UPDATE_CHUNK_SIZE;
+
+        long start = System.currentTimeMillis();
+        int total = 0;
+        String afterId = "";
+        try {
+            while (true) {
+                String from = afterId;
+                int[] updated = new int[1];
+                List<String> ids = TransactionRetry.execute("bulk product update", () -> {
+                    List<String> chunk = new ArrayList<>(BULK_UPDATE_CHUNK_SIZE);
+                    try (Connection conn = DBUtil.getConnection()) {
+                        try (PreparedStatement pstmt = conn.prepareStatement(selectSql)) {
+                            pstmt.setString(1, from);
+                            for (int i = 0; i < filterParams.size(); i++) {
+                                pstmt.setString(i + 2, filterParams.get(i));
+                            }
+                            try (ResultSet rs = pstmt.executeQuery()) {
+                                while (rs.next()) {
+                                    chunk.add(rs.getString("ProductID"));
+                                }
+                            }
+                        }
+                        if (chunk.isEmpty()) {
+                            return chunk;
+                        }
+                        // The filter is repeated so a product moved out of it since the SELECT is left alone
+                        String updateSql = "UPDATE Products SET " + String.join(", ", sets)
+                                + " WHERE ProductID IN (" + placeholders(chunk.size()) + ")" + filter;
+                        try (PreparedStatement pstmt = conn.prepareStatement(updateSql)) {
+                            int index = 1;
+                            if (update.getPriceChange() != ProductBulkUpdate.PriceChange.NONE) {
+                                pstmt.setDouble(index++, value);
+                            }
+                            if (update.getStockDelta() != 0) {
+                                pstmt.setInt(index++, update.getStockDelta());
+                            }
+                            for (String id : chunk) {
+                                pstmt.setString(index++, id);
+                            }
+                            for (String param : filterParams) {
+                                pstmt.setString(index++, param);
+                            }
+                            updated[0] = pstmt.executeUpdate();
+                        }
+                    }
+                    return chunk;
+                });
+                if (ids.isEmpty()) {
+                    break;
+                }
+                total += updated[0];
+                afterId = ids.get(ids.size() - 1);
+                if (ids.size() < BULK_UPDATE_CHUNK_SIZE) {
+                    break;
+                }
+            }
+        } finally {
+            if (total > 0) { // Chunks committed before a failure are live too
+                catalogBulkChanged();
+            }
+        }
+        System.out.println("ProductManager: Bulk update (" + update + ") changed " + total + " products in "
+                + (System.currentTimeMillis() - start) + " ms.");
+        return total;
+    }
+
     public boolean deleteProduct(String productId) throws SQLException {
          if (productId == null || productId.trim().isEmpty()) {
             throw new SQLException("Product ID cannot be null or empty for a delete operation.");
@@ -135,7 +894,9 @@ public class ProductManager {
             pstmt.setString(1, productId);
             int rowsAffected = pstmt.executeUpdate();
             if (rowsAffected > 0) {
+                long sharedVersion = bumpCatalogVersion(conn);
                 System.out.println("Product deleted: " + productId);
+                patchCatalogAfterCommit(sharedVersion, (snapshot, version) -> snapshot.withoutProduct(version, productId));
             }
             return rowsAffected > 0;
         }
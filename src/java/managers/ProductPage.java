@@ -0,0 +1,32 @@
+package managers;
+
+import models.ProductSummary;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of product summaries in (Name, ProductID) order, with the token for the page after it.
+ */
+public class ProductPage {
+
+    private final List<ProductSummary> products;
+    private final String nextPageToken; // null on the last page
+
+    public ProductPage(List<ProductSummary> products, String nextPageToken) {
+        this.products = Collections.unmodifiableList(products);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<ProductSummary> getProducts() {
+        return products;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+}
@@ -0,0 +1,115 @@
+package managers;
+
+import models.Product;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * A keyset pagination cursor: the sort key of the last product on the previous page, encoded as an
+ * opaque URL-safe string. The next page starts right after that key, so it costs the same however deep
+ * it is, and rows added or removed meanwhile never shift a page (unlike OFFSET).
+ *
+ * The sort key is always completed by (Name, ProductID), which makes it unique. A token also records the
+ * sort order and a hash of the filters it was issued for; {@link #decode} rejects one used with others.
+ */
+final class ProductPageToken {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final ProductQuery.SortOrder sortOrder;
+    private final int filterHash;
+    private final String productId;
+    private final String name;
+    private final double price;
+    private final long manufactureEpochDay;
+
+    private ProductPageToken(ProductQuery.SortOrder sortOrder, int filterHash, String productId, String name,
+                             double price, long manufactureEpochDay) {
+        this.sortOrder = sortOrder;
+        this.filterHash = filterHash;
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.manufactureEpochDay = manufactureEpochDay;
+    }
+
+    /**
+     * A token positioned after {@code last}.
+     */
+    static ProductPageToken after(Product last, ProductQuery.SortOrder sortOrder, int filterHash) {
+        return new ProductPageToken(sortOrder, filterHash, last.getProductId(), last.getName(), last.getPrice(),
+                (last.getManufactureDate() != null) ? last.getManufactureDate().toEpochDay() : NO_DATE);
+    }
+
+    /**
+     * A name-order token positioned after the given product, for listings that carry no other sort key.
+     */
+    static ProductPageToken afterName(String productId, String name) {
+        return new ProductPageToken(ProductQuery.SortOrder.NAME, 0, productId, name, 0, NO_DATE);
+    }
+
+    String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(sortOrder.ordinal());
+            out.writeInt(filterHash);
+            out.writeUTF(productId);
+            out.writeUTF(name);
+            out.writeDouble(price);
+            out.writeLong(manufactureEpochDay);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode page token.", e); // Not possible for an in-memory stream
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * Decodes a token issued for the same sort order and filters, or returns null (meaning "first page")
+     * if it is missing, malformed or was issued for a different query.
+     */
+    static ProductPageToken decode(String token, ProductQuery.SortOrder sortOrder, int filterHash) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != FORMAT_VERSION || in.readByte() != sortOrder.ordinal() || in.readInt() != filterHash) {
+                return null;
+            }
+            String productId = in.readUTF();
+            String name = in.readUTF();
+            double price = in.readDouble();
+            long manufactureEpochDay = in.readLong();
+            if (productId.isEmpty() || name.isEmpty() || !(price >= 0)) {
+                return null;
+            }
+            return new ProductPageToken(sortOrder, filterHash, productId, name, price, manufactureEpochDay);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("ProductPageToken: Ignoring malformed page token: " + e.getMessage());
+            return null;
+        }
+    }
+
+    String getProductId() {
+        return productId;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * A stand-in product carrying just the sort key, for comparing against real products.
+     */
+    Product toProbe() {
+        return new Product(productId, name, null, null, null, price, 0,
+                (manufactureEpochDay != NO_DATE) ? LocalDate.ofEpochDay(manufactureEpochDay) : null, null);
+    }
+}
@@ -0,0 +1,130 @@
+package managers;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Filters and sort order for {@link ProductManager#queryProducts(ProductQuery)}.
+ * Unset (null) filters match everything. With a page size set, one page is returned at a time; the
+ * result's next-page token, passed back via {@link #setPageToken}, continues after its last product.
+ */
+public class ProductQuery {
+
+    public enum SortOrder {
+        RELEVANCE,  // Search ranking; same as NAME when there is no search text
+        NAME,
+        PRICE_ASC,
+        PRICE_DESC,
+        NEWEST;
+
+        /**
+         * Parses a request parameter, falling back to {@code defaultOrder} for missing or unknown values.
+         */
+        public static SortOrder fromParameter(String value, SortOrder defaultOrder) {
+            if (value != null) {
+                for (SortOrder order : values()) {
+                    if (order.name().equalsIgnoreCase(value.trim())) {
+                        return order;
+                    }
+                }
+            }
+            return defaultOrder;
+        }
+    }
+
+    private String searchText;
+    private String categoryId;
+    private String brand;
+    private Double minPrice;
+    private Double maxPrice;
+    private boolean inStockOnly;
+    private SortOrder sortOrder = SortOrder.RELEVANCE;
+    private String pageToken;
+    private int pageSize; // 0 = everything in one page
+
+    // --- Getters ---
+    public String getSearchText() {
+        return searchText;
+    }
+
+    public String getCategoryId() {
+        return categoryId;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public boolean isInStockOnly() {
+        return inStockOnly;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public String getPageToken() {
+        return pageToken;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    // --- Setters (blank strings are treated as "no filter") ---
+    public void setSearchText(String searchText) {
+        this.searchText = blankToNull(searchText);
+    }
+
+    public void setCategoryId(String categoryId) {
+        this.categoryId = blankToNull(categoryId);
+    }
+
+    public void setBrand(String brand) {
+        this.brand = blankToNull(brand);
+    }
+
+    public void setMinPrice(Double minPrice) {
+        this.minPrice = minPrice;
+    }
+
+    public void setMaxPrice(Double maxPrice) {
+        this.maxPrice = maxPrice;
+    }
+
+    public void setInStockOnly(boolean inStockOnly) {
+        this.inStockOnly = inStockOnly;
+    }
+
+    public void setSortOrder(SortOrder sortOrder) {
+        this.sortOrder = (sortOrder != null) ? sortOrder : SortOrder.RELEVANCE;
+    }
+
+    public void setPageToken(String pageToken) {
+        this.pageToken = blankToNull(pageToken);
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = Math.max(0, pageSize);
+    }
+
+    /**
+     * Hash of the filters (not the sort order or page), so a page token can't be replayed against another result set.
+     */
+    int filterHash() {
+        return Objects.hash(searchText, categoryId, (brand != null) ? brand.toLowerCase(Locale.ROOT) : null,
+                minPrice, maxPrice, inStockOnly);
+    }
+
+    private static String blankToNull(String value) {
+        return (value == null || value.trim().isEmpty()) ? null : value.trim();
+    }
+}
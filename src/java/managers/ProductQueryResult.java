@@ -0,0 +1,75 @@
+package managers;
+
+import models.Product;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The products matching a {@link ProductQuery}, with facet counts for narrowing it further.
+ *
+ * Each facet is counted with every filter applied except its own, so the category counts show how many
+ * products each category would have under the current brand, price and stock filters (and vice versa).
+ */
+public class ProductQueryResult {
+
+    private final List<Product> products;
+    private final Map<String, Integer> categoryCounts; // CategoryID -> matching products
+    private final Map<String, Integer> brandCounts;    // Brand -> matching products, sorted by brand
+    private final int totalCount;                      // All matches, not just this page
+    private final String nextPageToken;                // null on the last page
+    private final Double lowestPrice;                  // Over all matches; null if there are none
+    private final Double highestPrice;
+
+    public ProductQueryResult(List<Product> products, Map<String, Integer> categoryCounts, Map<String, Integer> brandCounts) {
+        this(products, products.size(), null, null, null, categoryCounts, brandCounts);
+    }
+
+    public ProductQueryResult(List<Product> products, int totalCount, String nextPageToken, Double lowestPrice,
+                              Double highestPrice, Map<String, Integer> categoryCounts, Map<String, Integer> brandCounts) {
+        this.products = Collections.unmodifiableList(products);
+        this.totalCount = totalCount;
+        this.nextPageToken = nextPageToken;
+        this.lowestPrice = lowestPrice;
+        this.highestPrice = highestPrice;
+        this.categoryCounts = Collections.unmodifiableMap(categoryCounts);
+        this.brandCounts = Collections.unmodifiableMap(brandCounts);
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public Map<String, Integer> getCategoryCounts() {
+        return categoryCounts;
+    }
+
+    public Map<String, Integer> getBrandCounts() {
+        return brandCounts;
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNextPage() {
+        return nextPageToken != null;
+    }
+
+    public Double getLowestPrice() {
+        return lowestPrice;
+    }
+
+    public Double getHighestPrice() {
+        return highestPrice;
+    }
+
+    public int getCategoryCount(String categoryId) {
+        return categoryCounts.getOrDefault(categoryId, 0);
+    }
+}
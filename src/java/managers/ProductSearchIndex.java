@@ -0,0 +1,414 @@
+package managers;
+
+import models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An immutable inverted index over product Name, Brand, Model and Description.
+ *
+ * Each token maps to a posting list: the sorted ordinals of the products containing it (see
+ * {@link CatalogSnapshot}) plus a parallel array of field-weighted term weights. Queries are a list of
+ * terms, all of which must match (AND); the keyword {@code OR} separates alternatives. A term also matches
+ * tokens it is a prefix of (at a lower weight), so "keyb" finds "keyboard". Results are ranked by the sum of
+ * weight x IDF over the matched terms.
+ *
+ * Updates never modify an index in place: {@link #withDocument} and {@link #withoutDocument} return a
+ * new index that shares every posting list the change didn't touch, so a snapshot and its index are
+ * always consistent and can be read without locks.
+ */
+final class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float MODEL_WEIGHT = 2.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "the", "of", "for", "with", "in", "on", "to", "is"));
+
+    private final NavigableMap<String, Posting> postings;
+    private final int documentCount;
+
+    private ProductSearchIndex(NavigableMap<String, Posting> postings, int documentCount) {
+        this.postings = postings;
+        this.documentCount = documentCount;
+    }
+
+    /**
+     * Builds an index over {@code productsByOrdinal} (null entries are skipped).
+     */
+    static ProductSearchIndex build(Product[] productsByOrdinal) {
+        Map<String, PostingBuilder> builders = new HashMap<>();
+        int count = 0;
+        for (int ordinal = 0; ordinal < productsByOrdinal.length; ordinal++) { // Ascending, so postings come out sorted
+            Product product = productsByOrdinal[ordinal];
+            if (product == null) {
+                continue;
+            }
+            count++;
+            for (Map.Entry<String, Float> term : termWeights(product).entrySet()) {
+                builders.computeIfAbsent(term.getKey(), k -> new PostingBuilder()).add(ordinal, term.getValue());
+            }
+        }
+        TreeMap<String, Posting> postings = new TreeMap<>();
+        for (Map.Entry<String, PostingBuilder> entry : builders.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().build());
+        }
+        return new ProductSearchIndex(postings, count);
+    }
+
+    /**
+     * Returns a new index in which the document at {@code ordinal} has changed from {@code before}
+     * (null if new) to {@code after}.
+     */
+    ProductSearchIndex withDocument(int ordinal, Product before, Product after) {
+        Map<String, Float> oldTerms = (before != null) ? termWeights(before) : Collections.<String, Float>emptyMap();
+        Map<String, Float> newTerms = termWeights(after);
+        TreeMap<String, Posting> updated = new TreeMap<>(postings);
+        for (String token : oldTerms.keySet()) {
+            if (!newTerms.containsKey(token)) {
+                removeFromPosting(updated, token, ordinal);
+            }
+        }
+        for (Map.Entry<String, Float> term : newTerms.entrySet()) {
+            Float oldWeight = oldTerms.get(term.getKey());
+            if (oldWeight == null || !oldWeight.equals(term.getValue())) {
+                Posting posting = updated.get(term.getKey());
+                updated.put(term.getKey(), (posting == null)
+                        ? new Posting(new int[]{ordinal}, new float[]{term.getValue()})
+                        : posting.with(ordinal, term.getValue()));
+            }
+        }
+        return new ProductSearchIndex(updated, documentCount + (before == null ? 1 : 0));
+    }
+
+    /**
+     * Returns a new index without the document at {@code ordinal}, which contained {@code before}.
+     */
+    ProductSearchIndex withoutDocument(int ordinal, Product before) {
+        TreeMap<String, Posting> updated = new TreeMap<>(postings);
+        for (String token : termWeights(before).keySet()) {
+            removeFromPosting(updated, token, ordinal);
+        }
+        return new ProductSearchIndex(updated, Math.max(0, documentCount - 1));
+    }
+
+    private static void removeFromPosting(TreeMap<String, Posting> postings, String token, int ordinal) {
+        Posting posting = postings.get(token);
+        if (posting == null) {
+            return;
+        }
+        Posting remaining = posting.without(ordinal);
+        if (remaining.docs.length == 0) {
+            postings.remove(token);
+        } else {
+            postings.put(token, remaining);
+        }
+    }
+
+    /**
+     * Evaluates {@code query} and returns matching ordinals, best match first.
+     */
+    int[] search(String query) {
+        Posting hits = Posting.EMPTY;
+        for (List<String> terms : parse(query)) {
+            hits = hits.union(scoreConjunction(terms), 1f); // A document matching several alternatives keeps its best score
+        }
+        // Sort by score descending, then ordinal ascending (name order after a full load), on packed primitives
+        long[] keys = new long[hits.docs.length];
+        for (int i = 0; i < keys.length; i++) {
+            long inverseScore = Integer.MAX_VALUE - Float.floatToIntBits(hits.weights[i]); // Order-preserving for scores >= 0
+            keys[i] = (inverseScore << 32) | hits.docs[i];
+        }
+        Arrays.sort(keys);
+        int[] result = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            result[i] = (int) keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the documents matching every term, each weighted by its summed weight x IDF.
+     */
+    private Posting scoreConjunction(List<String> terms) {
+        List<Posting> termPostings = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Posting posting = expand(term);
+            if (posting.docs.length == 0) {
+                return Posting.EMPTY; // AND with an unmatched term matches nothing
+            }
+            termPostings.add(posting);
+        }
+        if (termPostings.isEmpty()) {
+            return Posting.EMPTY;
+        }
+        termPostings.sort((a, b) -> Integer.compare(a.docs.length, b.docs.length)); // Rarest first keeps intermediates small
+
+        Posting first = termPostings.get(0);
+        Posting result = first.scaled(idf(first.docs.length));
+        for (int i = 1; i < termPostings.size() && result.docs.length > 0; i++) {
+            Posting next = termPostings.get(i);
+            result = result.intersect(next, idf(next.docs.length));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the posting for {@code term} merged with the (down-weighted) postings of tokens it prefixes.
+     */
+    private Posting expand(String term) {
+        Posting exact = postings.get(term);
+        if (term.length() < MIN_PREFIX_LENGTH) {
+            return (exact != null) ? exact : Posting.EMPTY;
+        }
+        Posting merged = (exact != null) ? exact : Posting.EMPTY;
+        int expansions = 0;
+        for (Map.Entry<String, Posting> entry : postings.subMap(term, false, term + Character.MAX_VALUE, false).entrySet()) {
+            if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            merged = merged.union(entry.getValue(), PREFIX_MATCH_FACTOR);
+        }
+        return merged;
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1.0 + (double) Math.max(documentCount, 1) / documentFrequency);
+    }
+
+    /**
+     * Returns the first index at or after {@code from} whose value is >= {@code target}.
+     */
+    private static int gallop(int[] values, int from, int target) {
+        int step = 1;
+        int hi = from;
+        while (hi < values.length && values[hi] < target) {
+            from = hi;
+            hi += step;
+            step <<= 1;
+        }
+        int idx = Arrays.binarySearch(values, from, Math.min(hi + 1, values.length), target);
+        return (idx >= 0) ? idx : -idx - 1;
+    }
+
+    /**
+     * Splits a query into OR-separated groups of AND-ed terms.
+     */
+    static List<List<String>> parse(String query) {
+        List<List<String>> alternatives = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        if (query != null) {
+            for (String word : query.trim().split("\\s+")) {
+                if (word.equals("OR")) {
+                    if (!current.isEmpty()) {
+                        alternatives.add(current);
+                        current = new ArrayList<>();
+                    }
+                    continue;
+                }
+                for (String token : tokenize(word)) {
+                    if (!current.contains(token)) {
+                        current.add(token);
+                    }
+                }
+            }
+        }
+        if (!current.isEmpty()) {
+            alternatives.add(current);
+        }
+        return alternatives;
+    }
+
+    /**
+     * Lowercases {@code text} and splits it into letter/digit tokens, dropping stop words.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = lower.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static Map<String, Float> termWeights(Product product) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getBrand(), BRAND_WEIGHT);
+        addField(weights, product.getModel(), MODEL_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        return weights;
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float fieldWeight) {
+        for (String token : new HashSet<>(tokenize(text))) { // A field counts once per token
+            weights.merge(token, fieldWeight, Float::sum);
+        }
+    }
+
+    /**
+     * Number of products containing {@code token} in any indexed field.
+     */
+    int documentFrequency(String token) {
+        Posting posting = postings.get(token);
+        return (posting != null) ? posting.docs.length : 0;
+    }
+
+    /**
+     * True if {@code term} would match something on its own, exactly or as a prefix.
+     */
+    boolean hasMatch(String term) {
+        String ceiling = postings.ceilingKey(term);
+        return ceiling != null && (ceiling.equals(term) || (term.length() >= MIN_PREFIX_LENGTH && ceiling.startsWith(term)));
+    }
+
+    /**
+     * Sorted document ordinals with one weight per document. Immutable.
+     */
+    private static final class Posting {
+        static final Posting EMPTY = new Posting(new int[0], new float[0]);
+
+        final int[] docs;
+        final float[] weights;
+
+        Posting(int[] docs, float[] weights) {
+            this.docs = docs;
+            this.weights = weights;
+        }
+
+        Posting scaled(float factor) {
+            float[] newWeights = new float[weights.length];
+            for (int i = 0; i < weights.length; i++) {
+                newWeights[i] = weights[i] * factor;
+            }
+            return new Posting(docs, newWeights);
+        }
+
+        /**
+         * Documents in both postings, weighted by this weight plus {@code other}'s weight x {@code factor}.
+         * Galloping skips quickly through the longer list when the other is much shorter.
+         */
+        Posting intersect(Posting other, float factor) {
+            int[] outDocs = new int[Math.min(docs.length, other.docs.length)];
+            float[] outWeights = new float[outDocs.length];
+            int i = 0, j = 0, n = 0;
+            while (i < docs.length && j < other.docs.length) {
+                if (docs[i] < other.docs[j]) {
+                    i = gallop(docs, i, other.docs[j]);
+                } else if (docs[i] > other.docs[j]) {
+                    j = gallop(other.docs, j, docs[i]);
+                } else {
+                    outDocs[n] = docs[i];
+                    outWeights[n++] = weights[i++] + other.weights[j++] * factor;
+                }
+            }
+            return new Posting(Arrays.copyOf(outDocs, n), Arrays.copyOf(outWeights, n));
+        }
+
+        Posting with(int ordinal, float weight) {
+            int idx = Arrays.binarySearch(docs, ordinal);
+            if (idx >= 0) {
+                float[] newWeights = weights.clone();
+                newWeights[idx] = weight;
+                return new Posting(docs, newWeights);
+            }
+            int insertAt = -idx - 1;
+            int[] newDocs = new int[docs.length + 1];
+            float[] newWeights = new float[docs.length + 1];
+            System.arraycopy(docs, 0, newDocs, 0, insertAt);
+            System.arraycopy(weights, 0, newWeights, 0, insertAt);
+            newDocs[insertAt] = ordinal;
+            newWeights[insertAt] = weight;
+            System.arraycopy(docs, insertAt, newDocs, insertAt + 1, docs.length - insertAt);
+            System.arraycopy(weights, insertAt, newWeights, insertAt + 1, docs.length - insertAt);
+            return new Posting(newDocs, newWeights);
+        }
+
+        Posting without(int ordinal) {
+            int idx = Arrays.binarySearch(docs, ordinal);
+            if (idx < 0) {
+                return this;
+            }
+            int[] newDocs = new int[docs.length - 1];
+            float[] newWeights = new float[docs.length - 1];
+            System.arraycopy(docs, 0, newDocs, 0, idx);
+            System.arraycopy(weights, 0, newWeights, 0, idx);
+            System.arraycopy(docs, idx + 1, newDocs, idx, docs.length - idx - 1);
+            System.arraycopy(weights, idx + 1, newWeights, idx, docs.length - idx - 1);
+            return new Posting(newDocs, newWeights);
+        }
+
+        /**
+         * Merges {@code other} into this posting; documents only in {@code other} get their weight scaled
+         * by {@code factor}, documents in both keep the higher weight.
+         */
+        Posting union(Posting other, float factor) {
+            int[] outDocs = new int[docs.length + other.docs.length];
+            float[] outWeights = new float[outDocs.length];
+            int i = 0, j = 0, n = 0;
+            while (i < docs.length || j < other.docs.length) {
+                if (j >= other.docs.length || (i < docs.length && docs[i] < other.docs[j])) {
+                    outDocs[n] = docs[i];
+                    outWeights[n++] = weights[i++];
+                } else if (i >= docs.length || other.docs[j] < docs[i]) {
+                    outDocs[n] = other.docs[j];
+                    outWeights[n++] = other.weights[j++] * factor;
+                } else {
+                    outDocs[n] = docs[i];
+                    outWeights[n++] = Math.max(weights[i++], other.weights[j++] * factor);
+                }
+            }
+            return new Posting(Arrays.copyOf(outDocs, n), Arrays.copyOf(outWeights, n));
+        }
+    }
+
+    /**
+     * Accumulates a posting during a full build; ordinals must be added in ascending order.
+     */
+    private static final class PostingBuilder {
+        private int[] docs = new int[4];
+        private float[] weights = new float[4];
+        private int size = 0;
+
+        void add(int ordinal, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = ordinal;
+            weights[size++] = weight;
+        }
+
+        Posting build() {
+            return new Posting(Arrays.copyOf(docs, size), Arrays.copyOf(weights, size));
+        }
+    }
+}
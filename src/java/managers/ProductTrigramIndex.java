@@ -0,0 +1,245 @@
+package managers;
+
+import models.Product;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A trigram index over the words of product Name, Brand and Model, used to correct misspelled search
+ * terms ("logitec" -> "logitech", "gamng keybord" -> "gaming keyboard").
+ *
+ * Each distinct word is split into trigrams of {@code "$" + word + "$"}, and posted under each trigram
+ * together with its length, so a lookup only sees words of a plausible length. A misspelling within edit
+ * distance k of a word still shares at least {@code max(len) - 4k} of its trigrams (an adjacent
+ * transposition breaks up to four), so only words reaching that count are compared with a bounded edit
+ * distance (insertions, deletions, substitutions and adjacent transpositions). Edit distance is 1 for
+ * words of 4-7 characters and 2 for longer ones; shorter words are never corrected.
+ *
+ * Like {@link ProductSearchIndex}, the index is immutable and derived incrementally by the catalog patches.
+ * Words are reference-counted so that a word disappears only when the last product using it does.
+ */
+final class ProductTrigramIndex {
+
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int LONG_WORD_LENGTH = 8;
+
+    private final Map<String, Integer> wordRefCounts;     // word -> number of products using it
+    private final Map<String, String[]> wordsByTrigram;   // trigram + (char) word length -> words
+
+    private ProductTrigramIndex(Map<String, Integer> wordRefCounts, Map<String, String[]> wordsByTrigram) {
+        this.wordRefCounts = wordRefCounts;
+        this.wordsByTrigram = wordsByTrigram;
+    }
+
+    static ProductTrigramIndex build(Product[] productsByOrdinal) {
+        Map<String, Integer> refCounts = new HashMap<>();
+        for (Product product : productsByOrdinal) {
+            if (product != null) {
+                for (String word : words(product)) {
+                    refCounts.merge(word, 1, Integer::sum);
+                }
+            }
+        }
+        Map<String, Set<String>> byTrigram = new HashMap<>();
+        for (String word : refCounts.keySet()) {
+            for (String trigram : trigrams(word)) {
+                byTrigram.computeIfAbsent(postingKey(trigram, word.length()), k -> new HashSet<>()).add(word);
+            }
+        }
+        Map<String, String[]> wordsByTrigram = new HashMap<>(byTrigram.size() * 2);
+        for (Map.Entry<String, Set<String>> entry : byTrigram.entrySet()) {
+            wordsByTrigram.put(entry.getKey(), entry.getValue().toArray(new String[0]));
+        }
+        return new ProductTrigramIndex(refCounts, wordsByTrigram);
+    }
+
+    /**
+     * Returns a new index in which one product changed from {@code before} (null if new) to {@code after}
+     * (null if deleted).
+     */
+    ProductTrigramIndex withDocument(Product before, Product after) {
+        Set<String> oldWords = (before != null) ? words(before) : Collections.<String>emptySet();
+        Set<String> newWords = (after != null) ? words(after) : Collections.<String>emptySet();
+        if (oldWords.equals(newWords)) {
+            return this;
+        }
+        Map<String, Integer> refCounts = new HashMap<>(wordRefCounts);
+        Map<String, String[]> byTrigram = new HashMap<>(wordsByTrigram);
+        for (String word : oldWords) {
+            if (!newWords.contains(word) && refCounts.merge(word, -1, Integer::sum) <= 0) {
+                refCounts.remove(word);
+                for (String trigram : trigrams(word)) {
+                    String key = postingKey(trigram, word.length());
+                    String[] remaining = remove(byTrigram.get(key), word);
+                    if (remaining.length == 0) {
+                        byTrigram.remove(key);
+                    } else {
+                        byTrigram.put(key, remaining);
+                    }
+                }
+            }
+        }
+        for (String word : newWords) {
+            if (!oldWords.contains(word) && refCounts.merge(word, 1, Integer::sum) == 1) {
+                for (String trigram : trigrams(word)) {
+                    String key = postingKey(trigram, word.length());
+                    String[] existing = byTrigram.get(key);
+                    String[] added = (existing == null) ? new String[1] : Arrays.copyOf(existing, existing.length + 1);
+                    added[added.length - 1] = word;
+                    byTrigram.put(key, added);
+                }
+            }
+        }
+        return new ProductTrigramIndex(refCounts, byTrigram);
+    }
+
+    /**
+     * Rewrites {@code query}, replacing each term that matches nothing in {@code searchIndex} with the
+     * closest known word. Returns null if no term could be corrected.
+     */
+    String correct(String query, ProductSearchIndex searchIndex) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder corrected = new StringBuilder();
+        boolean changed = false;
+        for (String word : query.trim().split("\\s+")) {
+            if (word.equals("OR")) {
+                corrected.append(corrected.length() > 0 ? " " : "").append(word);
+                continue;
+            }
+            for (String term : ProductSearchIndex.tokenize(word)) {
+                String replacement = searchIndex.hasMatch(term) ? null : closestWord(term, searchIndex);
+                corrected.append(corrected.length() > 0 ? " " : "").append(replacement != null ? replacement : term);
+                changed |= replacement != null;
+            }
+        }
+        return changed ? corrected.toString() : null;
+    }
+
+    /**
+     * The known word nearest to {@code term} within the allowed edit distance; ties go to the word used
+     * by more products. Null if there is none.
+     */
+    String closestWord(String term, ProductSearchIndex searchIndex) {
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return null;
+        }
+        int maxEdits = (term.length() >= LONG_WORD_LENGTH) ? 2 : 1;
+        List<String> termTrigrams = trigrams(term);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : new HashSet<>(termTrigrams)) {
+            for (int length = term.length() - maxEdits; length <= term.length() + maxEdits; length++) {
+                String[] candidates = wordsByTrigram.get(postingKey(trigram, length));
+                if (candidates != null) {
+                    for (String candidate : candidates) {
+                        shared.merge(candidate, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        String best = null;
+        int bestDistance = maxEdits + 1;
+        int bestFrequency = -1;
+        for (Map.Entry<String, Integer> entry : shared.entrySet()) {
+            String candidate = entry.getKey();
+            int required = Math.max(termTrigrams.size(), candidate.length()) - 4 * maxEdits; // q-gram lemma
+            if (entry.getValue() < required) {
+                continue;
+            }
+            int distance = boundedEditDistance(term, candidate, maxEdits);
+            if (distance > maxEdits || distance > bestDistance) {
+                continue;
+            }
+            int frequency = searchIndex.documentFrequency(candidate);
+            if (distance < bestDistance || frequency > bestFrequency
+                    || (frequency == bestFrequency && candidate.compareTo(best) < 0)) {
+                best = candidate;
+                bestDistance = distance;
+                bestFrequency = frequency;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Optimal string alignment distance between {@code a} and {@code b}, or {@code max + 1} as soon as it
+     * is known to exceed {@code max}.
+     */
+    static int boundedEditDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous2 = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static Set<String> words(Product product) {
+        Set<String> words = new HashSet<>();
+        words.addAll(ProductSearchIndex.tokenize(product.getName()));
+        words.addAll(ProductSearchIndex.tokenize(product.getBrand()));
+        words.addAll(ProductSearchIndex.tokenize(product.getModel()));
+        return words;
+    }
+
+    /**
+     * Trigrams of the word padded with '$' on both sides, so a word of n characters has n trigrams.
+     */
+    static List<String> trigrams(String word) {
+        String padded = "$" + word + "$";
+        String[] trigrams = new String[padded.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = padded.substring(i, i + 3);
+        }
+        return Arrays.asList(trigrams);
+    }
+
+    private static String postingKey(String trigram, int wordLength) {
+        return trigram + (char) wordLength;
+    }
+
+    private static String[] remove(String[] words, String word) {
+        if (words == null) {
+            return new String[0];
+        }
+        String[] result = new String[words.length];
+        int n = 0;
+        for (String w : words) {
+            if (!w.equals(word)) {
+                result[n++] = w;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
@@ -2,23 +2,23 @@ package models;
 
 /**
  * Represents a user-facing view of an item in the shopping cart.
- * This object combines the quantity from the Cart table entry with the
- * full details of the associated Product. It is typically constructed
- * after joining Cart and Products data.
+ * This object combines the quantity from the Cart table entry with a
+ * summary of the associated Product (no description). It is typically
+ * constructed after joining Cart and Products data.
  */
 public class CartItem {
     private final String cartId;    // The unique ID of the corresponding Cart table row
-    private final Product product;  // The full Product object associated with this cart item
+    private final ProductSummary product;  // Summary of the product associated with this cart item
     private int quantity;     // Quantity of this product in the cart (can be updated)
 
     /**
      * Constructs a CartItem.
      *
      * @param cartId    The unique ID of the entry in the Cart table.
-     * @param product   The associated Product object (must not be null).
+     * @param product   Summary of the associated product (must not be null).
      * @param quantity  The quantity of the product in the cart (should be positive).
      */
-    public CartItem(String cartId, Product product, int quantity) {
+    public CartItem(String cartId, ProductSummary product, int quantity) {
         if (cartId == null || cartId.trim().isEmpty()) {
             throw new IllegalArgumentException("Cart ID cannot be null or empty for CartItem.");
         }
@@ -39,8 +39,8 @@ public class CartItem {
         return cartId;
     }
 
-    /** Gets the full Product object associated with this cart item. */
-    public Product getProduct() {
+    /** Gets the summary of the product associated with this cart item. */
+    public ProductSummary getProduct() {
         return product;
     }
 
@@ -77,7 +77,7 @@ public class CartItem {
     // --- Calculation ---
     /**
      * Calculates the subtotal for this line item (price * quantity).
-     * Uses the current price stored in the associated Product object.
+     * Uses the current price stored in the associated product summary.
      * @return The calculated subtotal.
      */
     public double getSubtotal() {
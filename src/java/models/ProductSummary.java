@@ -0,0 +1,64 @@
+// src/java/models/ProductSummary.java
+package models;
+
+import java.util.Objects;
+
+/**
+ * A lightweight, read-only view of a product for list, cart and checkout pages.
+ * It carries only the columns those pages show; in particular it leaves out the Description
+ * TEXT column, which can be large. Load the full {@link Product} (or just its description)
+ * when a page actually needs it.
+ */
+public class ProductSummary {
+    private final String productId;
+    private final String name;
+    private final String brand;
+    private final double price;
+    private final int stock;
+    private final String categoryId;
+
+    public ProductSummary(String productId, String name, String brand, double price, int stock, String categoryId) {
+        if (productId == null || productId.trim().isEmpty())
+            throw new IllegalArgumentException("Product ID cannot be null or empty.");
+        if (name == null || name.trim().isEmpty())
+            throw new IllegalArgumentException("Product Name cannot be null or empty.");
+
+        this.productId = productId;
+        this.name = name;
+        this.brand = brand;             // Can be null
+        this.price = price;
+        this.stock = stock;
+        this.categoryId = categoryId;   // Can be null
+    }
+
+    // Getters
+    public String getProductId() { return productId; }
+    public String getName() { return name; }
+    public String getBrand() { return brand; }
+    public double getPrice() { return price; }
+    public int getStock() { return stock; }
+    public String getCategoryId() { return categoryId; }
+
+    @Override
+    public String toString() {
+        return "ProductSummary{" +
+               "productId='" + productId + '\'' +
+               ", name='" + name + '\'' +
+               ", price=₹" + String.format("%.2f", price) +
+               ", stock=" + stock +
+               '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ProductSummary that = (ProductSummary) o;
+        return Objects.equals(productId, that.productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(productId);
+    }
+}
@@ -1,10 +1,11 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="java.util.List" %>
+<%@ page import="db.RowCursor" %>
 <%@ page import="models.Feedback" %>
 <%@ page import="java.time.format.DateTimeFormatter" %>
 
 <%
-    List<Feedback> feedbackList = (List<Feedback>) request.getAttribute("feedbackList");
+    RowCursor<Feedback> feedbackList = (RowCursor<Feedback>) request.getAttribute("feedbackCursor"); // Streamed; closed by the servlet
     String errorMessage = (String) request.getAttribute("errorMessage");
     String successMessage = (String) request.getAttribute("successMessage"); // For future admin actions
 
@@ -69,7 +70,7 @@
             <div class="message-bar error-message-bar"><%= errorMessage %></div>
         <% } %>
 
-        <% if (feedbackList != null && !feedbackList.isEmpty()) { %>
+        <% if (feedbackList != null && feedbackList.hasNext()) { %>
             <table class="admin-table">
                 <thead>
                     <tr>
@@ -83,7 +84,8 @@
                     </tr>
                 </thead>
                 <tbody>
-                    <% for (Feedback fb : feedbackList) { %>
+                    <% while (feedbackList.hasNext()) {
+                           Feedback fb = feedbackList.next(); %>
                         <tr>
                             <td><%= fb.getFeedbackId() %></td>
                             <td>
@@ -1,5 +1,6 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="java.util.List" %>
+<%@ page import="db.RowCursor" %>
 <%@ page import="models.Order" %>
 <%@ page import="models.OrderDetail" %>
 <%@ page import="java.text.NumberFormat" %>
@@ -7,7 +8,7 @@
 <%@ page import="java.time.format.DateTimeFormatter" %>
 
 <%
-    List<Order> orders = (List<Order>) request.getAttribute("orders");
+    RowCursor<Order> orders = (RowCursor<Order>) request.getAttribute("orderCursor"); // Streamed; closed by the servlet
     String errorMessage = (String) request.getAttribute("errorMessage");
 
     NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance(new Locale("en", "IN"));
@@ -50,7 +51,7 @@
             <div class="message-bar error-message-bar"><%= errorMessage %></div>
         <% } %>
 
-        <% if (orders != null && !orders.isEmpty()) { %>
+        <% if (orders != null && orders.hasNext()) { %>
             <table class="admin-table">
                 <thead>
                     <tr>
@@ -64,7 +65,8 @@
                     </tr>
                 </thead>
                 <tbody>
-                    <% for (Order order : orders) { %>
+                    <% while (orders.hasNext()) {
+                           Order order = orders.next(); %>
                         <tr>
                             <td><%= order.getOrderId() %></td>
                             <td><%= order.getCustomerName() != null ? order.getCustomerName() : "(N/A)" %></td>
@@ -0,0 +1,96 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page import="models.Category" %>
+<%@ page import="java.util.List" %>
+
+<%
+    List<Category> categories = (List<Category>) request.getAttribute("categories");
+%>
+<!DOCTYPE html>
+<html>
+<head>
+    <meta http-equiv="Content-Type" content="text/html; charset=UTF-8">
+    <title>TechTrove - Bulk Price / Stock Update</title>
+    <link rel="stylesheet" type="text/css" href="${pageContext.request.contextPath}/css/style.css">
+    <style>
+        .admin-form-container { padding: 20px; max-width: 700px; margin: auto; }
+        .page-header { text-align: center; margin-bottom: 20px; color: #333; }
+        .form-box { background-color: #fff; border: 1px solid #ddd; border-radius: 8px; padding: 25px; box-shadow: 0 2px 8px rgba(0,0,0,0.05); }
+        .form-box h3 { margin: 0 0 10px 0; font-size: 1em; color: #495057; }
+        .form-group { margin-bottom: 15px; }
+        .form-group label { display: block; margin-bottom: 5px; font-weight: bold; color: #555; }
+        .form-group input[type="text"],
+        .form-group input[type="number"],
+        .form-group select {
+            width: 100%; padding: 10px; border: 1px solid #ccc; border-radius: 4px; box-sizing: border-box; font-size: 0.95em;
+        }
+        .hint { font-size: 0.85em; color: #6c757d; margin-top: 4px; }
+        .form-actions { margin-top: 20px; text-align: right; }
+        .btn-submit { background-color: #007bff; color: white; padding: 10px 20px; border: none; border-radius: 4px; cursor: pointer; font-size: 1em; }
+        .btn-submit:hover { background-color: #0056b3; }
+        .btn-cancel { background-color: #6c757d; color: white; padding: 10px 20px; border: none; border-radius: 4px; cursor: pointer; font-size: 1em; text-decoration: none; margin-left:10px;}
+        .btn-cancel:hover { background-color: #545b62; }
+    </style>
+</head>
+<body>
+    <jsp:include page="/WEB-INF/jsp/common/admin_navbar.jsp" />
+
+    <div class="admin-form-container">
+        <div class="page-header">
+            <h1>Bulk Price / Stock Update</h1>
+        </div>
+
+        <div class="form-box">
+            <form action="${pageContext.request.contextPath}/AdminProductServlet" method="post"
+                  onsubmit="return confirm('Apply this change to every matching product?');">
+                <input type="hidden" name="action" value="bulk_update">
+
+                <h3>Products to update (at least one)</h3>
+                <div class="form-group">
+                    <label for="categoryId">Category:</label>
+                    <select id="categoryId" name="categoryId">
+                        <option value="">-- Any Category --</option>
+                        <% if (categories != null) {
+                            for (Category category : categories) { %>
+                            <option value="<%= category.getCategoryId() %>"><%= category.getCategoryName() %></option>
+                        <%  }
+                           }
+                        %>
+                    </select>
+                </div>
+                <div class="form-group">
+                    <label for="brand">Brand:</label>
+                    <input type="text" id="brand" name="brand" placeholder="Exact brand name, e.g. Logitech">
+                </div>
+
+                <h3>Change</h3>
+                <div class="form-group">
+                    <label for="priceChange">Price:</label>
+                    <select id="priceChange" name="priceChange">
+                        <option value="NONE">Leave unchanged</option>
+                        <option value="PERCENT">Change by percent</option>
+                        <option value="AMOUNT">Change by amount (₹)</option>
+                        <option value="SET">Set to (₹)</option>
+                    </select>
+                </div>
+                <div class="form-group">
+                    <label for="priceValue">Price value:</label>
+                    <input type="number" id="priceValue" name="priceValue" step="0.01" placeholder="e.g. -10 for 10% off">
+                    <div class="hint">Prices never go below ₹0.</div>
+                </div>
+                <div class="form-group">
+                    <label for="stockDelta">Stock change:</label>
+                    <input type="number" id="stockDelta" name="stockDelta" step="1" value="0">
+                    <div class="hint">Added to each product's stock; negative values reduce it, never below 0.</div>
+                </div>
+
+                <div class="form-actions">
+                    <button type="submit" class="btn-submit">Apply</button>
+                    <a href="${pageContext.request.contextPath}/AdminProductServlet?action=list" class="btn-cancel">Cancel</a>
+                </div>
+            </form>
+        </div>
+    </div>
+
+    <jsp:include page="/WEB-INF/jsp/common/footer.jsp" />
+</body>
+</html>
@@ -1,13 +1,23 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="java.util.List" %>
-<%@ page import="models.Product" %>
+<%@ page import="models.ProductSummary" %>
+<%@ page import="managers.ProductImporter" %>
 <%@ page import="java.text.NumberFormat" %>
 <%@ page import="java.util.Locale" %>
 
 <%
-    List<Product> products = (List<Product>) request.getAttribute("products");
+    List<ProductSummary> products = (List<ProductSummary>) request.getAttribute("products");
     String successMessage = (String) request.getAttribute("adminProductSuccess");
     String errorMessage = (String) request.getAttribute("adminProductError");
+    String nextPageToken = (String) request.getAttribute("nextPageToken"); // URL-safe already
+    Boolean isFirstPage = (Boolean) request.getAttribute("isFirstPage");
+    List<ProductImporter.Job> importJobs = (List<ProductImporter.Job>) request.getAttribute("importJobs");
+    boolean importRunning = false;
+    if (importJobs != null) {
+        for (ProductImporter.Job job : importJobs) {
+            if (!job.isFinished()) { importRunning = true; }
+        }
+    }
 
     NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance(new Locale("en", "IN"));
 %>
@@ -16,6 +26,7 @@
 <head>
     <meta http-equiv="Content-Type" content="text/html; charset=UTF-8">
     <title>TechTrove - Product Management</title>
+    <% if (importRunning) { %><meta http-equiv="refresh" content="5"><% } %>
     <link rel="stylesheet" type="text/css" href="${pageContext.request.contextPath}/css/style.css">
     <style>
         /* ... (styles remain largely the same, but image specific styles for thumbnail can be removed if desired) ... */
@@ -40,7 +51,13 @@
         .top-actions { margin-bottom: 15px; text-align: right; }
         .btn-add-new { background-color: #28a745; color: white; padding: 8px 15px; text-decoration: none; border-radius: 4px; display: inline-block; }
         .btn-add-new:hover { background-color: #218838; }
+        .pager { margin-top: 15px; text-align: center; }
+        .pager a { margin: 0 8px; color: #007bff; text-decoration: none; }
         .no-data-message { text-align: center; padding: 20px; font-style: italic; color: #777;}
+        .import-panel { background-color: #f8f9fa; border: 1px solid #ddd; border-radius: 4px; padding: 12px 15px; margin-bottom: 15px; }
+        .import-panel h3 { margin: 0 0 8px 0; font-size: 1em; color: #495057; }
+        .import-panel .hint { font-size: 0.85em; color: #6c757d; }
+        .import-panel .admin-table { margin-top: 10px; }
     </style>
     <script>
         function confirmDelete(productId, productName) {
@@ -63,9 +80,44 @@
         <% } %>
 
         <div class="top-actions">
+            <a href="${pageContext.request.contextPath}/AdminProductServlet?action=bulk_form" class="btn-add-new">Bulk Price / Stock Update</a>
             <a href="${pageContext.request.contextPath}/AdminProductServlet?action=add_form" class="btn-add-new">Add New Product</a>
         </div>
 
+        <div class="import-panel">
+            <h3>Bulk import</h3>
+            <form action="${pageContext.request.contextPath}/AdminProductServlet" method="post" enctype="multipart/form-data">
+                <input type="hidden" name="action" value="import_products">
+                <input type="file" name="importFile" accept=".csv,.jsonl,.ndjson,.json">
+                <button type="submit">Import</button>
+            </form>
+            <p class="hint">CSV with a header row or JSON Lines. Columns: ProductID, Name, Brand, Model, Description, Price, Stock,
+                ManufactureDate (yyyy-MM-dd), CategoryID. Existing products with the same ProductID are updated.</p>
+            <% if (importJobs != null && !importJobs.isEmpty()) { %>
+                <table class="admin-table">
+                    <thead>
+                        <tr><th>File</th><th>Status</th><th>Rows read</th><th>Imported</th><th>Failed</th><th>Errors</th></tr>
+                    </thead>
+                    <tbody>
+                        <% for (ProductImporter.Job job : importJobs) { %>
+                            <tr>
+                                <td><%= job.getFileName() %></td>
+                                <td><%= job.getState() %><%= job.getMessage() != null ? ": " + job.getMessage() : "" %></td>
+                                <td><%= job.getRowsRead() %></td>
+                                <td><%= job.getImported() %></td>
+                                <td><%= job.getFailed() %></td>
+                                <td>
+                                    <% if (job.getErrorFile() != null) { %>
+                                        <a href="${pageContext.request.contextPath}/AdminProductServlet?action=import_errors&amp;jobId=<%= job.getId() %>">Download</a>
+                                    <% } %>
+                                </td>
+                            </tr>
+                        <% } %>
+                    </tbody>
+                </table>
+            <% } %>
+        </div>
+
         <% if (products != null && !products.isEmpty()) { %>
             <table class="admin-table">
                 <thead>
@@ -81,7 +133,7 @@
                     </tr>
                 </thead>
                 <tbody>
-                    <% for (Product p : products) { %>
+                    <% for (ProductSummary p : products) { %>
                         <tr>
                             <%-- Image td REMOVED
                             <td>
@@ -107,6 +159,14 @@
                     <% } %>
                 </tbody>
             </table>
+            <div class="pager">
+                <% if (isFirstPage != null && !isFirstPage) { %>
+                    <a href="${pageContext.request.contextPath}/AdminProductServlet?action=list">&laquo; First page</a>
+                <% } %>
+                <% if (nextPageToken != null) { %>
+                    <a href="${pageContext.request.contextPath}/AdminProductServlet?action=list&amp;pageToken=<%= nextPageToken %>">Next page &raquo;</a>
+                <% } %>
+            </div>
         <% } else if (errorMessage == null) { %>
             <p class="no-data-message">No products found in the database. Click 'Add New Product' to get started.</p>
         <% } %>
@@ -0,0 +1,146 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ page import="java.util.List" %>
+<%@ page import="db.QueryMetrics" %>
+<%@ page import="db.TransactionRetry" %>
+<%@ page import="java.text.SimpleDateFormat" %>
+<%@ page import="java.util.Date" %>
+
+<%!
+    private static String escapeHtml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+%>
+<%
+    List<QueryMetrics.StatementStats> queryStats = (List<QueryMetrics.StatementStats>) request.getAttribute("queryStats");
+    Long slowQueryThresholdMs = (Long) request.getAttribute("slowQueryThresholdMs");
+    String errorMessage = (String) request.getAttribute("errorMessage");
+    String successMessage = (String) request.getAttribute("successMessage");
+
+    SimpleDateFormat timeFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm:ss");
+%>
+<!DOCTYPE html>
+<html>
+<head>
+    <meta http-equiv="Content-Type" content="text/html; charset=UTF-8">
+    <title>TechTrove - Query Statistics</title>
+    <link rel="stylesheet" type="text/css" href="${pageContext.request.contextPath}/css/style.css">
+    <style>
+        .admin-content-container { padding: 20px; max-width: 1400px; margin: auto; }
+        .page-header { text-align: center; margin-bottom: 20px; color: #333; }
+        .message-bar { padding: 10px; border-radius: 4px; margin-bottom: 15px; text-align: center; }
+        .error-message-bar { background-color: #f8d7da; color: #721c24; border: 1px solid #f5c6cb; }
+        .success-message-bar { background-color: #d4edda; color: #155724; border: 1px solid #c3e6cb; }
+
+        .stats-controls { display: flex; gap: 20px; align-items: center; margin-bottom: 15px; }
+        .stats-controls form { display: inline-flex; gap: 8px; align-items: center; }
+        .stats-controls input[type=number] { width: 90px; padding: 5px; }
+        .stats-controls button { padding: 6px 12px; border: none; border-radius: 3px; cursor: pointer; background-color: #17a2b8; color: white; }
+        .stats-controls button.reset-button { background-color: #dc3545; }
+
+        .admin-table { width: 100%; border-collapse: collapse; background-color: #fff; box-shadow: 0 2px 5px rgba(0,0,0,0.05); font-size: 0.85em; }
+        .admin-table th, .admin-table td { border: 1px solid #ddd; padding: 6px; text-align: left; vertical-align: top; }
+        .admin-table th { background-color: #e9ecef; font-weight: bold; color: #495057; }
+        .admin-table td.numeric { text-align: right; white-space: nowrap; }
+        .admin-table td.sql-text { font-family: monospace; max-width: 450px; word-wrap: break-word; }
+        .plan-findings { color: #856404; margin: 4px 0; padding-left: 18px; }
+        .plan-text { font-family: monospace; font-size: 0.85em; background-color: #f8f9fa; padding: 6px; overflow-x: auto; white-space: pre; }
+        .retry-summary { margin-bottom: 15px; color: #495057; }
+        .no-data-message { text-align: center; padding: 20px; font-style: italic; color: #777; }
+    </style>
+</head>
+<body>
+    <jsp:include page="/WEB-INF/jsp/common/admin_navbar.jsp" />
+
+    <div class="admin-content-container">
+        <h1 class="page-header">Query Statistics</h1>
+
+        <% if (successMessage != null) { %>
+            <div class="message-bar success-message-bar"><%= successMessage %></div>
+        <% } %>
+        <% if (errorMessage != null) { %>
+            <div class="message-bar error-message-bar"><%= errorMessage %></div>
+        <% } %>
+
+        <div class="stats-controls">
+            <form method="post" action="${pageContext.request.contextPath}/AdminQueryStatsServlet">
+                <input type="hidden" name="action" value="threshold">
+                <label for="slowQueryThresholdMs">Slow query threshold (ms):</label>
+                <input type="number" min="0" id="slowQueryThresholdMs" name="slowQueryThresholdMs" value="<%= slowQueryThresholdMs %>">
+                <button type="submit">Update</button>
+            </form>
+            <form method="post" action="${pageContext.request.contextPath}/AdminQueryStatsServlet"
+                  onsubmit="return confirm('Reset all query statistics?');">
+                <input type="hidden" name="action" value="reset">
+                <button type="submit" class="reset-button">Reset Statistics</button>
+            </form>
+        </div>
+
+        <p class="retry-summary">
+            <strong>Transaction retries:</strong>
+            <%= TransactionRetry.getOperationCount() %> operations,
+            <%= TransactionRetry.getRetryCount() %> retries,
+            <%= TransactionRetry.getRecoveredCount() %> recovered,
+            <%= TransactionRetry.getExhaustedCount() %> gave up
+        </p>
+
+        <% if (queryStats != null && !queryStats.isEmpty()) { %>
+            <table class="admin-table">
+                <thead>
+                    <tr>
+                        <th style="width:40%;">Statement</th>
+                        <th>Calls</th>
+                        <th>Errors</th>
+                        <th>Slow</th>
+                        <th>Rows Read</th>
+                        <th>Rows Changed</th>
+                        <th>Total (ms)</th>
+                        <th>Mean (ms)</th>
+                        <th>p50 (ms)</th>
+                        <th>p95 (ms)</th>
+                        <th>p99 (ms)</th>
+                        <th>Max (ms)</th>
+                    </tr>
+                </thead>
+                <tbody>
+                    <% for (QueryMetrics.StatementStats stats : queryStats) { %>
+                        <tr>
+                            <td class="sql-text">
+                                <%= escapeHtml(stats.getSql()) %>
+                                <% if (stats.getExplainPlan() != null) { %>
+                                    <% if (!stats.getExplainFindings().isEmpty()) { %>
+                                        <ul class="plan-findings">
+                                            <% for (String finding : stats.getExplainFindings()) { %>
+                                                <li><%= escapeHtml(finding) %></li>
+                                            <% } %>
+                                        </ul>
+                                    <% } %>
+                                    <details>
+                                        <summary>Execution plan (captured <%= timeFormat.format(new Date(stats.getExplainCapturedAtMillis())) %>)</summary>
+                                        <div class="plan-text"><%= escapeHtml(stats.getExplainPlan()) %></div>
+                                    </details>
+                                <% } %>
+                            </td>
+                            <td class="numeric"><%= stats.getCalls() %></td>
+                            <td class="numeric"><%= stats.getErrors() %></td>
+                            <td class="numeric"><%= stats.getSlowCalls() %></td>
+                            <td class="numeric"><%= stats.getRowsReturned() %></td>
+                            <td class="numeric"><%= stats.getRowsAffected() %></td>
+                            <td class="numeric"><%= String.format("%.1f", stats.getTotalMillis()) %></td>
+                            <td class="numeric"><%= String.format("%.2f", stats.getMeanMillis()) %></td>
+                            <td class="numeric"><%= String.format("%.2f", stats.getP50Millis()) %></td>
+                            <td class="numeric"><%= String.format("%.2f", stats.getP95Millis()) %></td>
+                            <td class="numeric"><%= String.format("%.2f", stats.getP99Millis()) %></td>
+                            <td class="numeric"><%= String.format("%.2f", stats.getMaxMillis()) %></td>
+                        </tr>
+                    <% } %>
+                </tbody>
+            </table>
+        <% } else if (errorMessage == null) { %>
+            <p class="no-data-message">No queries have been recorded yet.</p>
+        <% } %>
+    </div>
+
+    <jsp:include page="/WEB-INF/jsp/common/footer.jsp" />
+</body>
+</html>
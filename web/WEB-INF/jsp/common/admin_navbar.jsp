@@ -58,6 +58,7 @@
     <a href="${pageContext.request.contextPath}/AdminProductServlet">Products</a>
     <a href="${pageContext.request.contextPath}/AdminOrderServlet">Orders</a>
     <a href="${pageContext.request.contextPath}/AdminFeedbackServlet">Feedback</a>
+    <a href="${pageContext.request.contextPath}/AdminQueryStatsServlet">Query Stats</a>
     <%-- <a href="#">Users</a> --%>
 
     <% if (loggedInAdmin != null) { %>
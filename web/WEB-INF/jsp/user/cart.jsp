@@ -1,7 +1,7 @@
 <%@ page contentType="text/html;charset=UTF-8" language="java" %>
 <%@ page import="java.util.List" %>
 <%@ page import="models.CartItem" %>
-<%@ page import="models.Product" %>
+<%@ page import="models.ProductSummary" %>
 <%@ page import="java.text.NumberFormat" %>
 <%@ page import="java.util.Locale" %>
 
@@ -80,7 +80,7 @@
                 </thead>
                 <tbody>
                     <% for (CartItem item : cartItems) {
-                        Product product = item.getProduct();
+                        ProductSummary product = item.getProduct();
                     %>
                         <tr>
                             <td class="product-image">
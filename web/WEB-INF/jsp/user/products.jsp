@@ -3,10 +3,28 @@
 <%@ page import="models.Product" %>
 <%@ page import="java.text.NumberFormat" %>
 <%@ page import="java.util.Locale" %>
+<%@ page import="java.util.Map" %>
+<%@ page import="models.Category" %>
+<%@ page import="managers.ProductQuery" %>
+<%@ page import="managers.ProductQueryResult" %>
+<%!
+    private static String escapeHtml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+%>
 
 <%
     List<Product> products = (List<Product>) request.getAttribute("products");
     String errorMessage = (String) request.getAttribute("errorMessage");
+    String correctedQuery = (String) request.getAttribute("correctedQuery"); // Letters, digits and spaces only
+    ProductQueryResult queryResult = (ProductQueryResult) request.getAttribute("queryResult");
+    ProductQuery productQuery = (ProductQuery) request.getAttribute("productQuery");
+    List<Category> categories = (List<Category>) request.getAttribute("categories");
+    String nextPageUrl = (String) request.getAttribute("nextPageUrl");
+    String firstPageUrl = (String) request.getAttribute("firstPageUrl");
+    if (productQuery == null) productQuery = new ProductQuery();
+    ProductQuery.SortOrder sortOrder = productQuery.getSortOrder();
     NumberFormat currencyFormatter = NumberFormat.getCurrencyInstance(new Locale("en", "IN"));
 %>
 <!DOCTYPE html>
@@ -22,6 +40,10 @@
         .search-filter-bar input[type="text"], .search-filter-bar select { padding: 8px; margin-right: 10px; border: 1px solid #ddd; border-radius: 4px; }
         .search-filter-bar button { padding: 8px 15px; background-color: #007bff; color: white; border: none; border-radius: 4px; cursor: pointer; }
         .search-filter-bar button:hover { background-color: #0056b3; }
+        .search-filter-bar form { display: flex; flex-wrap: wrap; align-items: center; gap: 8px; }
+        .search-filter-bar input.price-input { width: 90px; padding: 8px; border: 1px solid #ddd; border-radius: 4px; }
+        .search-filter-bar label { font-size: 0.9em; color: #555; }
+        .result-count { color: #666; font-size: 0.9em; margin-bottom: 15px; }
 
         .product-grid { display: grid; grid-template-columns: repeat(auto-fill, minmax(280px, 1fr)); gap: 20px; }
         .product-card {
@@ -48,7 +70,10 @@
             transition: background-color 0.3s ease;
         }
         .product-card .btn-add-to-cart:hover { background-color: #0056b3; }
+        .pager { margin-top: 20px; text-align: center; }
+        .pager a { margin: 0 8px; color: #007bff; text-decoration: none; }
         .no-products { text-align: center; font-size: 1.2em; color: #777; padding: 30px; }
+        .info-message-bar { background-color: #e7f1ff; color: #084298; border: 1px solid #b6d4fe; padding: 10px; border-radius: 4px; margin-bottom: 20px; text-align: center;}
         .error-message-bar { background-color: #f8d7da; color: #721c24; border: 1px solid #f5c6cb; padding: 10px; border-radius: 4px; margin-bottom: 20px; text-align: center;}
     </style>
 </head>
@@ -59,17 +84,82 @@
         <h1 class="page-header">Browse Our Products</h1>
 
         <div class="search-filter-bar">
-            <form action="${pageContext.request.contextPath}/ProductServlet" method="get" style="display:flex;">
-                <input type="text" name="search" placeholder="Search products..." value="${param.search != null ? param.search : ''}">
-                <button type="submit">Search</button>
+            <form action="${pageContext.request.contextPath}/ProductServlet" method="get">
+                <input type="text" id="search-input" name="search" placeholder="Search products..." value="<%= escapeHtml(productQuery.getSearchText()) %>" list="search-suggestions" autocomplete="off">
+                <datalist id="search-suggestions"></datalist>
+                <%-- Facet counts apply every other active filter --%>
+                <select name="category">
+                    <option value="">All categories</option>
+                    <% if (categories != null) {
+                           for (Category category : categories) {
+                               int count = (queryResult != null) ? queryResult.getCategoryCount(category.getCategoryId()) : 0; %>
+                        <option value="<%= escapeHtml(category.getCategoryId()) %>" <%= category.getCategoryId().equals(productQuery.getCategoryId()) ? "selected" : "" %>>
+                            <%= escapeHtml(category.getCategoryName()) %> (<%= count %>)
+                        </option>
+                    <%     }
+                       } %>
+                </select>
+                <select name="brand">
+                    <option value="">All brands</option>
+                    <% if (queryResult != null) {
+                           for (Map.Entry<String, Integer> brand : queryResult.getBrandCounts().entrySet()) { %>
+                        <option value="<%= escapeHtml(brand.getKey()) %>" <%= brand.getKey().equalsIgnoreCase(productQuery.getBrand()) ? "selected" : "" %>>
+                            <%= escapeHtml(brand.getKey()) %> (<%= brand.getValue() %>)
+                        </option>
+                    <%     }
+                       } %>
+                </select>
+                <input type="number" class="price-input" name="minPrice" min="0" step="0.01" placeholder="<%= (queryResult != null && queryResult.getLowestPrice() != null) ? "From " + (long) Math.floor(queryResult.getLowestPrice()) : "Min price" %>" value="<%= productQuery.getMinPrice() != null ? productQuery.getMinPrice() : "" %>">
+                <input type="number" class="price-input" name="maxPrice" min="0" step="0.01" placeholder="<%= (queryResult != null && queryResult.getHighestPrice() != null) ? "To " + (long) Math.ceil(queryResult.getHighestPrice()) : "Max price" %>" value="<%= productQuery.getMaxPrice() != null ? productQuery.getMaxPrice() : "" %>">
+                <label><input type="checkbox" name="inStock" value="1" <%= productQuery.isInStockOnly() ? "checked" : "" %>> In stock only</label>
+                <select name="sort">
+                    <option value="relevance" <%= sortOrder == ProductQuery.SortOrder.RELEVANCE ? "selected" : "" %>>Best match</option>
+                    <option value="name" <%= sortOrder == ProductQuery.SortOrder.NAME ? "selected" : "" %>>Name</option>
+                    <option value="price_asc" <%= sortOrder == ProductQuery.SortOrder.PRICE_ASC ? "selected" : "" %>>Price: low to high</option>
+                    <option value="price_desc" <%= sortOrder == ProductQuery.SortOrder.PRICE_DESC ? "selected" : "" %>>Price: high to low</option>
+                    <option value="newest" <%= sortOrder == ProductQuery.SortOrder.NEWEST ? "selected" : "" %>>Newest</option>
+                </select>
+                <button type="submit">Apply</button>
             </form>
+            <script>
+                // Search-as-you-type suggestions from AutocompleteServlet
+                (function () {
+                    var input = document.getElementById('search-input');
+                    var list = document.getElementById('search-suggestions');
+                    var pending = null;
+                    input.addEventListener('input', function () {
+                        clearTimeout(pending);
+                        var prefix = input.value.trim();
+                        if (prefix.length < 2) { list.innerHTML = ''; return; }
+                        pending = setTimeout(function () {
+                            fetch('${pageContext.request.contextPath}/products/suggest?limit=8&q=' + encodeURIComponent(prefix))
+                                .then(function (res) { return res.ok ? res.json() : []; })
+                                .then(function (suggestions) {
+                                    list.innerHTML = '';
+                                    suggestions.forEach(function (s) {
+                                        var option = document.createElement('option');
+                                        option.value = s.text;
+                                        list.appendChild(option);
+                                    });
+                                })
+                                .catch(function () { /* Suggestions are optional */ });
+                        }, 100);
+                    });
+                })();
+            </script>
         </div>
 
         <% if (errorMessage != null) { %>
             <div class="error-message-bar"><%= errorMessage %></div>
         <% } %>
 
+        <% if (correctedQuery != null) { %>
+            <div class="info-message-bar">No exact matches found. Showing results for <strong><%= correctedQuery %></strong>.</div>
+        <% } %>
+
         <% if (products != null && !products.isEmpty()) { %>
+            <% int totalCount = (queryResult != null) ? queryResult.getTotalCount() : products.size(); %>
+            <p class="result-count"><%= totalCount %> product<%= totalCount == 1 ? "" : "s" %> found</p>
             <div class="product-grid">
                 <% for (Product product : products) { %>
                     <div class="product-card">
@@ -100,6 +190,14 @@
                     </div>
                 <% } %>
             </div>
+            <div class="pager">
+                <% if (firstPageUrl != null) { %>
+                    <a href="<%= escapeHtml(firstPageUrl) %>">&laquo; First page</a>
+                <% } %>
+                <% if (nextPageUrl != null) { %>
+                    <a href="<%= escapeHtml(nextPageUrl) %>">Next page &raquo;</a>
+                <% } %>
+            </div>
         <% } else if (errorMessage == null) { %>
             <p class="no-products">No products found matching your criteria or the store is currently empty.</p>
         <% } %>
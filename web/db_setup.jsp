@@ -75,6 +75,10 @@
                     <label for="password">Database Password:</label>
                     <input type="password" id="password" name="db_password">
                 </div>
+                <div class="form-group">
+                    <label for="replicas">Read Replicas (optional):</label>
+                    <input type="text" id="replicas" name="db_replicas" placeholder="host:port, host:port">
+                </div>
                 <div class="form-group">
                     <input type="submit" value="Configure & Initialize Database">
                 </div>